@@ -1,6 +1,7 @@
 package edu.jhuapl.sbmt.pointing;
 
 import picante.math.vectorspace.UnwritableVectorIJK;
+import picante.math.vectorspace.VectorIJK;
 
 public abstract class AbstractInstrumentPointing implements InstrumentPointing
 {
@@ -42,4 +43,19 @@ public abstract class AbstractInstrumentPointing implements InstrumentPointing
         return vector;
     }
 
+    /**
+     * Normalize the specified vector in place, with the same corner-case
+     * behavior as {@link #normalize(UnwritableVectorIJK)}: a vector of length 0
+     * is left unchanged.
+     *
+     * @param vector the vector to normalize
+     * @return the vector
+     */
+    public static VectorIJK normalizeInPlace(VectorIJK vector)
+    {
+        double norm = vector.getLength();
+
+        return norm != 1. && norm != 0. ? vector.scale(1.0 / norm) : vector;
+    }
+
 }
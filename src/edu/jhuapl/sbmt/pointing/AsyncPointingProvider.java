@@ -0,0 +1,280 @@
+package edu.jhuapl.sbmt.pointing;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Asynchronous facade over an {@link IPointingProvider}. Single pointings are
+ * returned as {@link CompletableFuture}s, and the pointings for a range of
+ * times are streamed by a {@link Flow.Publisher}, so that UI and pipeline
+ * stages may consume pointings as they are produced rather than waiting for a
+ * whole window.
+ * <p>
+ * Pointings are computed on an {@link Executor}. By default this is a shared
+ * pool of daemon threads, one per processor. The pool is deliberately fixed:
+ * concurrent providers such as the SPICE provider create their functions
+ * once for each thread that calls them, so the threads are kept and reused
+ * rather than started for each task.
+ * <p>
+ * Unless the facade is created for a concurrent provider (see
+ * {@link #AsyncPointingProvider(IPointingProvider, Executor, boolean)}), calls
+ * to the provider are serialized on the provider, so a provider that must not
+ * be used by more than one thread at a time may still be wrapped.
+ */
+public final class AsyncPointingProvider
+{
+    private static final Executor DefaultExecutor = createDefaultExecutor();
+
+    private final IPointingProvider provider;
+    private final Executor executor;
+    private final Object lock;
+
+    /**
+     * Create a facade that computes pointings on the default executor, one at
+     * a time.
+     *
+     * @param provider the provider
+     */
+    public AsyncPointingProvider(IPointingProvider provider)
+    {
+        this(provider, DefaultExecutor, false);
+    }
+
+    /**
+     * Create a facade that computes pointings on the specified executor, one
+     * at a time.
+     *
+     * @param provider the provider
+     * @param executor the executor
+     */
+    public AsyncPointingProvider(IPointingProvider provider, Executor executor)
+    {
+        this(provider, executor, false);
+    }
+
+    /**
+     * Create a facade that computes pointings on the specified executor.
+     *
+     * @param provider the provider
+     * @param executor the executor
+     * @param concurrent true if the provider may be called from any number of
+     *            threads simultaneously, false to serialize calls
+     */
+    public AsyncPointingProvider(IPointingProvider provider, Executor executor, boolean concurrent)
+    {
+        this.provider = Preconditions.checkNotNull(provider);
+        this.executor = Preconditions.checkNotNull(executor);
+        this.lock = concurrent ? null : provider;
+    }
+
+    /**
+     * @return the provider
+     */
+    public IPointingProvider getProvider()
+    {
+        return provider;
+    }
+
+    /**
+     * Return a future that completes with the pointing of the specified
+     * instrument at the specified time, or exceptionally with the exception
+     * thrown by the provider.
+     *
+     * @param instrumentName the instrument
+     * @param time the time
+     * @return the future pointing
+     */
+    public CompletableFuture<InstrumentPointing> provide(String instrumentName, double time)
+    {
+        Preconditions.checkNotNull(instrumentName, "Instrument name must be defined");
+
+        return CompletableFuture.supplyAsync(() -> provideNow(instrumentName, time), executor);
+    }
+
+    /**
+     * Return a publisher of the pointings of the specified instrument from the
+     * start time to the stop time at the specified step. Each subscriber
+     * receives all the pointings, in time order, and pointings are only
+     * computed as the subscriber requests them. If the provider throws an
+     * exception, the subscriber's {@link Flow.Subscriber#onError(Throwable)}
+     * is called with it and no further pointings are published.
+     *
+     * @param instrumentName the instrument
+     * @param start the first time
+     * @param stop the last time
+     * @param step the time between pointings
+     * @return the publisher
+     */
+    public Flow.Publisher<InstrumentPointing> publish(String instrumentName, double start, double stop, double step)
+    {
+        Preconditions.checkNotNull(instrumentName, "Instrument name must be defined");
+        Preconditions.checkArgument(start <= stop, "Time range must not end before it starts");
+        Preconditions.checkArgument(step > 0., "Time step must be positive");
+
+        long count = (long) Math.floor((stop - start) / step) + 1;
+
+        return subscriber -> {
+            Preconditions.checkNotNull(subscriber);
+
+            TimeRangeSubscription subscription = new TimeRangeSubscription(subscriber, instrumentName, start, step, count);
+            subscriber.onSubscribe(subscription);
+        };
+    }
+
+    private InstrumentPointing provideNow(String instrumentName, double time)
+    {
+        if (lock == null)
+        {
+            return provider.provide(instrumentName, time);
+        }
+
+        synchronized (lock)
+        {
+            return provider.provide(instrumentName, time);
+        }
+    }
+
+    /**
+     * Subscription that computes the next pointings whenever there is demand.
+     * At most one task computes pointings for a subscription at a time, so the
+     * subscriber's methods are never called concurrently.
+     */
+    private final class TimeRangeSubscription implements Flow.Subscription, Runnable
+    {
+        private final Flow.Subscriber<? super InstrumentPointing> subscriber;
+        private final String instrumentName;
+        private final double start;
+        private final double step;
+        private final long count;
+        private final AtomicLong demand;
+        private final AtomicInteger pendingDrains;
+        private volatile boolean done;
+        private volatile IllegalArgumentException invalidRequest;
+        // Only accessed by the task that is draining.
+        private long index;
+
+        TimeRangeSubscription(Flow.Subscriber<? super InstrumentPointing> subscriber, String instrumentName, double start, double step, long count)
+        {
+            this.subscriber = subscriber;
+            this.instrumentName = instrumentName;
+            this.start = start;
+            this.step = step;
+            this.count = count;
+            this.demand = new AtomicLong();
+            this.pendingDrains = new AtomicInteger();
+            this.done = false;
+            this.invalidRequest = null;
+            this.index = 0;
+        }
+
+        @Override
+        public void request(long n)
+        {
+            if (n <= 0)
+            {
+                invalidRequest = new IllegalArgumentException("Requested number of pointings must be positive, not " + n);
+            }
+            else
+            {
+                // Add to the demand, capping it at Long.MAX_VALUE (unbounded).
+                demand.accumulateAndGet(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+            }
+
+            drain();
+        }
+
+        @Override
+        public void cancel()
+        {
+            done = true;
+        }
+
+        private void drain()
+        {
+            if (pendingDrains.getAndIncrement() == 0)
+            {
+                try
+                {
+                    executor.execute(this);
+                }
+                catch (RejectedExecutionException e)
+                {
+                    done = true;
+                    subscriber.onError(e);
+                }
+            }
+        }
+
+        @Override
+        public void run()
+        {
+            int missed = 1;
+            do
+            {
+                if (done)
+                {
+                    return;
+                }
+
+                if (invalidRequest != null)
+                {
+                    done = true;
+                    subscriber.onError(invalidRequest);
+                    return;
+                }
+
+                long requested = demand.get();
+                long emitted = 0;
+                while (emitted != requested && index < count && !done)
+                {
+                    InstrumentPointing pointing;
+                    try
+                    {
+                        pointing = provideNow(instrumentName, start + index * step);
+                    }
+                    catch (RuntimeException e)
+                    {
+                        done = true;
+                        subscriber.onError(e);
+                        return;
+                    }
+
+                    ++index;
+                    subscriber.onNext(pointing);
+                    ++emitted;
+                }
+
+                if (index == count && !done)
+                {
+                    done = true;
+                    subscriber.onComplete();
+                    return;
+                }
+
+                if (emitted != 0 && requested != Long.MAX_VALUE)
+                {
+                    demand.addAndGet(-emitted);
+                }
+
+                missed = pendingDrains.addAndGet(-missed);
+            }
+            while (missed != 0);
+        }
+    }
+
+    /**
+     * Create a fixed pool of daemon threads, one per available processor.
+     */
+    private static Executor createDefaultExecutor()
+    {
+        return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), new DaemonThreadFactory("Asynchronous pointing"));
+    }
+
+}
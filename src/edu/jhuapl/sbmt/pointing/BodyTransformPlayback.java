@@ -0,0 +1,384 @@
+package edu.jhuapl.sbmt.pointing;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.ObjDoubleConsumer;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+
+import edu.jhuapl.sbmt.pointing.modules.BodyTransformEvaluator;
+import edu.jhuapl.sbmt.pointing.spice.SpicePointingProvider;
+
+/**
+ * Precomputes the transforms of a set of bodies (see
+ * {@link BodyTransformEvaluator}) for timeline playback. Playback moves a
+ * playhead through frames spaced a fixed step apart, forwards or in reverse.
+ * Worker threads compute the frames in a window of the next frames ahead of
+ * the playhead, nearest first, into a ring buffer of primitive arrays, so
+ * that rendering a frame only copies precomputed transforms.
+ * <p>
+ * Moving the playhead to a frame inside the window slides the window, keeping
+ * the frames already computed. Moving it anywhere else (a jump), or reversing
+ * the direction, starts a new generation: work in progress for the previous
+ * generation is discarded rather than stored, and the workers start over from
+ * the frame after the new playhead, since the caller evaluates the frame at
+ * the playhead itself without waiting for the workers.
+ * <p>
+ * Instances are thread safe. Each worker evaluates with its own
+ * {@link BodyTransformEvaluator}; unless the provider is concurrent (see
+ * {@link SpicePointingProvider#isConcurrent()}), workers take turns with the
+ * provider, so more than one worker only helps with a concurrent provider.
+ */
+public final class BodyTransformPlayback implements AutoCloseable
+{
+    private static final long NO_FRAME = Long.MIN_VALUE;
+
+    private final ImmutableList<String> bodyNames;
+    private final ObjDoubleConsumer<double[]> source;
+    private final double step;
+    private final int capacity;
+    private final int stride;
+    private final int workerCount;
+    private final ExecutorService executor;
+
+    // The ring buffer: frame f is in slot floorMod(f, capacity), valid only if
+    // slotFrames of that slot is f. All guarded by this.
+    private final double[] values;
+    private final long[] slotFrames;
+    private double origin;
+    private long playhead;
+    private boolean reverse;
+    private long generation;
+    // Offset from the playhead of the next frame for a worker to consider.
+    private int nextOffset;
+    private int activeWorkers;
+    private boolean closed;
+
+    /**
+     * Create a playback of the transforms of the specified bodies relative to
+     * the center body. No frames are computed until the playhead is first set.
+     *
+     * @param provider the provider
+     * @param centerBodyName the center body
+     * @param bodyNames the bodies to place, in the order their transforms are
+     *            returned
+     * @param step the time between frames, in seconds, which must be positive
+     * @param capacity the number of frames to precompute, including the one at
+     *            the playhead
+     * @param workerCount the number of worker threads
+     */
+    public BodyTransformPlayback(SpicePointingProvider provider, String centerBodyName, List<String> bodyNames, double step, int capacity, int workerCount)
+    {
+        this(bodyNames, evaluatorSource(provider, centerBodyName, bodyNames), step, capacity, workerCount);
+    }
+
+    /**
+     * Create a playback whose frames are computed by the specified source,
+     * which writes {@link BodyTransformEvaluator#ELEMENTS_PER_BODY} doubles
+     * per body at the specified time. The source must be thread safe.
+     */
+    BodyTransformPlayback(List<String> bodyNames, ObjDoubleConsumer<double[]> source, double step, int capacity, int workerCount)
+    {
+        Preconditions.checkArgument(step > 0., "Time step must be positive");
+        Preconditions.checkArgument(capacity > 0, "Capacity must be positive, not " + capacity);
+        Preconditions.checkArgument(workerCount > 0, "Worker count must be positive, not " + workerCount);
+
+        this.bodyNames = ImmutableList.copyOf(bodyNames);
+        this.source = Preconditions.checkNotNull(source);
+        this.step = step;
+        this.capacity = capacity;
+        this.stride = BodyTransformEvaluator.ELEMENTS_PER_BODY * this.bodyNames.size();
+        this.workerCount = workerCount;
+        this.executor = Executors.newFixedThreadPool(workerCount, new DaemonThreadFactory("Body transform playback"));
+        this.values = new double[capacity * stride];
+        this.slotFrames = new long[capacity];
+        Arrays.fill(slotFrames, NO_FRAME);
+        this.origin = Double.NaN;
+        this.playhead = NO_FRAME;
+        this.reverse = false;
+        this.generation = 0;
+        this.nextOffset = capacity;
+        this.activeWorkers = 0;
+        this.closed = false;
+    }
+
+    /**
+     * @return the names of the bodies, in the order their transforms are
+     *         returned
+     */
+    public ImmutableList<String> getBodyNames()
+    {
+        return bodyNames;
+    }
+
+    /**
+     * @return the time between frames, in seconds
+     */
+    public double getStep()
+    {
+        return step;
+    }
+
+    /**
+     * @return true if the window of precomputed frames is behind the playhead
+     */
+    public synchronized boolean isReverse()
+    {
+        return reverse;
+    }
+
+    /**
+     * Set the direction of playback. Reversing the direction starts a new
+     * generation, since the window now lies on the other side of the
+     * playhead.
+     *
+     * @param reverse true to precompute the frames before the playhead, false
+     *            for the frames after it
+     */
+    public synchronized void setReverse(boolean reverse)
+    {
+        if (reverse == this.reverse)
+        {
+            return;
+        }
+
+        this.reverse = reverse;
+        if (playhead != NO_FRAME)
+        {
+            restart();
+        }
+    }
+
+    /**
+     * Move the playhead to the specified time. If the time is a frame inside
+     * the current window, the window slides and the frames already computed
+     * are kept. Otherwise this is a jump: if the time is not a frame, the
+     * frames are realigned to start at it, and the previous generation's work
+     * is abandoned.
+     *
+     * @param time the time
+     */
+    public synchronized void setPlayhead(double time)
+    {
+        Preconditions.checkState(!closed, "Playback is closed");
+
+        long frame = getFrame(time);
+        if (frame == NO_FRAME)
+        {
+            // Not on the current grid: realign the frames to this time.
+            origin = time;
+            frame = 0;
+            Arrays.fill(slotFrames, NO_FRAME);
+            playhead = frame;
+            restart();
+            return;
+        }
+
+        boolean slide = playhead != NO_FRAME && isInWindow(frame);
+        playhead = frame;
+        if (slide)
+        {
+            nextOffset = 0;
+            startWorkers();
+        }
+        else
+        {
+            restart();
+        }
+    }
+
+    /**
+     * Copy the precomputed transforms of all the bodies at the specified
+     * time, if they have been computed.
+     *
+     * @param time the time, which must be a frame to have been precomputed
+     * @param elements the array to receive the transforms, at least
+     *            {@link BodyTransformEvaluator#ELEMENTS_PER_BODY} times the
+     *            number of bodies long
+     * @return true if the transforms were copied, false if the time has not
+     *         been computed, in which case the elements are unchanged
+     */
+    public synchronized boolean get(double time, double[] elements)
+    {
+        Preconditions.checkArgument(elements.length >= stride, "Transform array is too short");
+
+        long frame = getFrame(time);
+        if (frame == NO_FRAME)
+        {
+            return false;
+        }
+
+        int slot = getSlot(frame);
+        if (slotFrames[slot] != frame)
+        {
+            return false;
+        }
+
+        System.arraycopy(values, slot * stride, elements, 0, stride);
+
+        return true;
+    }
+
+    /**
+     * @param time the time
+     * @return true if the transforms at the specified time have been computed
+     */
+    public synchronized boolean isComputed(double time)
+    {
+        long frame = getFrame(time);
+
+        return frame != NO_FRAME && slotFrames[getSlot(frame)] == frame;
+    }
+
+    /**
+     * Stop computing frames and shut down the worker threads. Work in
+     * progress is discarded.
+     */
+    @Override
+    public void close()
+    {
+        synchronized (this)
+        {
+            closed = true;
+            ++generation;
+        }
+        executor.shutdown();
+    }
+
+    /**
+     * Start a new generation from the frame after the playhead. The frame at
+     * the playhead itself is needed at once, so it is evaluated by the caller
+     * that moved the playhead rather than by a worker.
+     */
+    private void restart()
+    {
+        ++generation;
+        nextOffset = 1;
+        startWorkers();
+    }
+
+    private void startWorkers()
+    {
+        while (!closed && activeWorkers < workerCount)
+        {
+            ++activeWorkers;
+            executor.execute(this::work);
+        }
+    }
+
+    /**
+     * Compute frames until none in the window remain to be claimed, or the
+     * playback is closed.
+     */
+    private void work()
+    {
+        double[] result = new double[stride];
+        while (true)
+        {
+            long frame;
+            long claimedGeneration;
+            double time;
+            synchronized (this)
+            {
+                frame = closed ? NO_FRAME : claim();
+                if (frame == NO_FRAME)
+                {
+                    --activeWorkers;
+                    return;
+                }
+                claimedGeneration = generation;
+                time = getTime(frame);
+            }
+
+            try
+            {
+                source.accept(result, time);
+            }
+            catch (RuntimeException e)
+            {
+                // Leave the frame to be evaluated when it is rendered, which
+                // reports the error.
+                continue;
+            }
+
+            synchronized (this)
+            {
+                if (claimedGeneration == generation && isInWindow(frame))
+                {
+                    int slot = getSlot(frame);
+                    System.arraycopy(result, 0, values, slot * stride, stride);
+                    slotFrames[slot] = frame;
+                }
+            }
+        }
+    }
+
+    /**
+     * Return the next frame in the window, nearest the playhead first, that
+     * has not been computed, or NO_FRAME if there is none.
+     */
+    private long claim()
+    {
+        while (nextOffset < capacity)
+        {
+            long frame = reverse ? playhead - nextOffset : playhead + nextOffset;
+            ++nextOffset;
+            if (slotFrames[getSlot(frame)] != frame)
+            {
+                return frame;
+            }
+        }
+
+        return NO_FRAME;
+    }
+
+    private boolean isInWindow(long frame)
+    {
+        long offset = reverse ? playhead - frame : frame - playhead;
+
+        return offset >= 0 && offset < capacity;
+    }
+
+    private int getSlot(long frame)
+    {
+        return (int) Math.floorMod(frame, (long) capacity);
+    }
+
+    private double getTime(long frame)
+    {
+        return origin + frame * step;
+    }
+
+    /**
+     * Return the frame at the specified time, or NO_FRAME if the time is not
+     * (within rounding) a frame.
+     */
+    private long getFrame(double time)
+    {
+        if (Double.isNaN(origin))
+        {
+            return NO_FRAME;
+        }
+
+        double frame = Math.rint((time - origin) / step);
+        if (Math.abs(frame) >= Long.MAX_VALUE / 2 || Math.abs(time - getTime((long) frame)) > 1.e-6 * step)
+        {
+            return NO_FRAME;
+        }
+
+        return (long) frame;
+    }
+
+    private static ObjDoubleConsumer<double[]> evaluatorSource(SpicePointingProvider provider, String centerBodyName, List<String> bodyNames)
+    {
+        Preconditions.checkNotNull(provider);
+
+        ThreadLocal<BodyTransformEvaluator> evaluators = ThreadLocal.withInitial(() -> new BodyTransformEvaluator(centerBodyName, bodyNames));
+
+        return (elements, time) -> evaluators.get().evaluate(provider, time, elements);
+    }
+
+}
@@ -0,0 +1,38 @@
+package edu.jhuapl.sbmt.pointing;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * {@link ThreadFactory} for the background pools of the pointing classes. The
+ * threads are daemons, so an idle pool never keeps the application from
+ * exiting, and are numbered after a name that identifies the pool in thread
+ * dumps.
+ */
+public final class DaemonThreadFactory implements ThreadFactory
+{
+    private final String name;
+    private final AtomicInteger count;
+
+    /**
+     * @param name the name of the threads, to which each thread's number is
+     *            appended
+     */
+    public DaemonThreadFactory(String name)
+    {
+        this.name = Preconditions.checkNotNull(name);
+        this.count = new AtomicInteger();
+    }
+
+    @Override
+    public Thread newThread(Runnable runnable)
+    {
+        Thread thread = new Thread(runnable, name + " " + count.incrementAndGet());
+        thread.setDaemon(true);
+
+        return thread;
+    }
+
+}
@@ -1,5 +1,7 @@
 package edu.jhuapl.sbmt.pointing;
 
+import com.google.common.base.Preconditions;
+
 /**
  * Provider of instrument pointings.
  *
@@ -42,6 +44,39 @@ public interface IPointingProvider
         return provide(currentInstrument, time);
     }
 
+    /**
+     * Provide pointing information for the specified instrument at each of the
+     * specified times, writing the fields selected by the mask into the batch.
+     * The values for times[n] are written to the slots for epoch n (see
+     * {@link PointingBatch} for the layout).
+     * <p>
+     * This default implementation simply calls
+     * {@link #provide(String, double)} once per time. Implementations are
+     * encouraged to override it to avoid creating an
+     * {@link InstrumentPointing} for every epoch.
+     *
+     * @param instrumentName the instrument for which to provide the pointings
+     * @param times the times at which to compute the pointings
+     * @param fields bitwise OR of the field constants defined by
+     *            {@link PointingBatch}
+     * @param batch the batch into which to write the results
+     * @throws NullPointerException if any argument is null
+     * @throws IllegalArgumentException if the batch is too small or lacks any
+     *             of the fields, or if a pointing cannot be provided
+     */
+    default void provide(String instrumentName, double[] times, int fields, PointingBatch batch)
+    {
+        Preconditions.checkNotNull(instrumentName, "Instrument name must be defined");
+        Preconditions.checkNotNull(times);
+        Preconditions.checkNotNull(batch);
+        batch.checkCompatible(times.length, fields);
+
+        for (int index = 0; index < times.length; ++index)
+        {
+            batch.put(index, fields, provide(instrumentName, times[index]));
+        }
+    }
+
     /**
      * Return all instrument names for which complete frame information is
      * available in this provider. Implementations may return null or an empty
@@ -2,8 +2,10 @@ package edu.jhuapl.sbmt.pointing;
 
 import java.util.List;
 
+import picante.math.vectorspace.MatrixIJK;
 import picante.math.vectorspace.UnwritableMatrixIJK;
 import picante.math.vectorspace.UnwritableVectorIJK;
+import picante.math.vectorspace.VectorIJK;
 import picante.mechanics.EphemerisID;
 
 /**
@@ -15,6 +17,12 @@ import picante.mechanics.EphemerisID;
  * <p>
  * All vectors returned by a pointing are required to be defined in the same
  * target body fixed frame.
+ * <p>
+ * Each getter also has a variant that copies the quantity into a buffer
+ * supplied by the caller, for use in loops that must not generate garbage.
+ * The default implementations of these variants call the allocating getter and
+ * copy its result; implementations that can fill the buffer directly should
+ * override them.
  *
  * @author James Peachey
  *
@@ -86,4 +94,114 @@ public interface InstrumentPointing
      */
     List<UnwritableVectorIJK> getFrustum();
 
+    /**
+     * Return one of the corner unit vectors of the field of view (see
+     * {@link #getFrustum()}). Implementations that keep the corners should
+     * override this to avoid building the whole frustum.
+     *
+     * @param index the index of the corner, from 0 to 3
+     * @return the corner vector
+     */
+    default UnwritableVectorIJK getFrustumCorner(int index)
+    {
+        return getFrustum().get(index);
+    }
+
+    /**
+     * Copy the spacecraft position into the specified buffer (see
+     * {@link #getScPosition()}).
+     *
+     * @param into the buffer
+     * @return the buffer
+     */
+    default VectorIJK getScPosition(VectorIJK into)
+    {
+        return into.setTo(getScPosition());
+    }
+
+    /**
+     * Copy the spacecraft velocity into the specified buffer (see
+     * {@link #getScVelocity()}).
+     *
+     * @param into the buffer
+     * @return the buffer, or null (leaving the buffer unchanged) if this
+     *         pointing does not include this information
+     */
+    default VectorIJK getScVelocity(VectorIJK into)
+    {
+        UnwritableVectorIJK velocity = getScVelocity();
+
+        return velocity != null ? into.setTo(velocity) : null;
+    }
+
+    /**
+     * Copy the spacecraft rotation into the specified buffer (see
+     * {@link #getScRotation()}).
+     *
+     * @param into the buffer
+     * @return the buffer, or null (leaving the buffer unchanged) if this
+     *         pointing does not include this information
+     */
+    default MatrixIJK getScRotation(MatrixIJK into)
+    {
+        UnwritableMatrixIJK rotation = getScRotation();
+
+        return rotation != null ? into.setTo(rotation) : null;
+    }
+
+    /**
+     * Copy the boresight unit vector into the specified buffer (see
+     * {@link #getBoresight()}).
+     *
+     * @param into the buffer
+     * @return the buffer
+     */
+    default VectorIJK getBoresight(VectorIJK into)
+    {
+        return into.setTo(getBoresight());
+    }
+
+    /**
+     * Copy the "up" unit vector into the specified buffer (see
+     * {@link #getUpDirection()}).
+     *
+     * @param into the buffer
+     * @return the buffer
+     */
+    default VectorIJK getUpDirection(VectorIJK into)
+    {
+        return into.setTo(getUpDirection());
+    }
+
+    /**
+     * Copy the four corner unit vectors of the field of view (see
+     * {@link #getFrustum()}) into the specified array, packed as 12
+     * consecutive components: component c of corner k is copied to
+     * into[offset + 3 * k + c].
+     *
+     * @param into the array, which must have room for 12 values starting at
+     *            offset
+     * @param offset the index of the first value
+     * @return the array, or null (leaving the array unchanged) if the frustum
+     *         does not have four corners
+     */
+    default double[] getFrustum(double[] into, int offset)
+    {
+        List<UnwritableVectorIJK> frustum = getFrustum();
+        if (frustum == null || frustum.size() < 4)
+        {
+            return null;
+        }
+
+        for (int corner = 0; corner < 4; ++corner)
+        {
+            UnwritableVectorIJK vector = frustum.get(corner);
+            into[offset + 3 * corner] = vector.getI();
+            into[offset + 3 * corner + 1] = vector.getJ();
+            into[offset + 3 * corner + 2] = vector.getK();
+        }
+
+        return into;
+    }
+
 }
@@ -0,0 +1,316 @@
+package edu.jhuapl.sbmt.pointing;
+
+import java.util.Arrays;
+
+import com.google.common.base.Preconditions;
+
+import picante.math.vectorspace.MatrixIJK;
+import picante.math.vectorspace.UnwritableMatrixIJK;
+import picante.math.vectorspace.UnwritableVectorIJK;
+import picante.math.vectorspace.VectorIJK;
+
+/**
+ * Struct-of-arrays container for pointing information computed at many
+ * epochs, filled by {@link IPointingProvider#provide(String, double[], int, PointingBatch)}.
+ * A batch is allocated once by the caller, for a given capacity and set of
+ * fields, and may be reused for any number of calls.
+ * <p>
+ * Each field is stored in a single primitive array, with the values for the
+ * epoch at index n packed contiguously:
+ * <ul>
+ * <li>{@link #SC_POSITION}, {@link #SC_VELOCITY}, {@link #BORESIGHT},
+ * {@link #UP_DIRECTION}: 3 components (i, j, k) starting at 3 * n</li>
+ * <li>{@link #SC_ROTATION}: 9 elements starting at 9 * n, in row-major order,
+ * so element (row, column) is at 9 * n + 3 * row + column</li>
+ * <li>{@link #FRUSTUM}: 4 corners of 3 components each starting at 12 * n, so
+ * component c of corner k is at 12 * n + 3 * k + c</li>
+ * </ul>
+ * All quantities are expressed in the target body fixed frame, as described in
+ * {@link InstrumentPointing}. Quantities that a pointing does not include
+ * (those for which its getters return null) are filled with NaN.
+ */
+public final class PointingBatch
+{
+    public static final int SC_POSITION = 1;
+    public static final int SC_VELOCITY = 1 << 1;
+    public static final int SC_ROTATION = 1 << 2;
+    public static final int BORESIGHT = 1 << 3;
+    public static final int UP_DIRECTION = 1 << 4;
+    public static final int FRUSTUM = 1 << 5;
+    public static final int ALL = SC_POSITION | SC_VELOCITY | SC_ROTATION | BORESIGHT | UP_DIRECTION | FRUSTUM;
+
+    private final int capacity;
+    private final int fields;
+    private final double[] scPositions;
+    private final double[] scVelocities;
+    private final double[] scRotations;
+    private final double[] boresights;
+    private final double[] upDirections;
+    private final double[] frustums;
+    private final VectorIJK vector;
+    private final MatrixIJK matrix;
+
+    /**
+     * Create a batch that can hold up to capacity epochs of the fields
+     * selected by the specified mask. Arrays are only allocated for the
+     * selected fields.
+     *
+     * @param capacity the maximum number of epochs
+     * @param fields bitwise OR of the field constants defined by this class
+     */
+    public PointingBatch(int capacity, int fields)
+    {
+        Preconditions.checkArgument(capacity >= 0, "Batch capacity must not be negative");
+        Preconditions.checkArgument(fields != 0 && (fields & ~ALL) == 0, "Invalid pointing batch field mask " + fields);
+
+        this.capacity = capacity;
+        this.fields = fields;
+        this.scPositions = (fields & SC_POSITION) != 0 ? new double[3 * capacity] : null;
+        this.scVelocities = (fields & SC_VELOCITY) != 0 ? new double[3 * capacity] : null;
+        this.scRotations = (fields & SC_ROTATION) != 0 ? new double[9 * capacity] : null;
+        this.boresights = (fields & BORESIGHT) != 0 ? new double[3 * capacity] : null;
+        this.upDirections = (fields & UP_DIRECTION) != 0 ? new double[3 * capacity] : null;
+        this.frustums = (fields & FRUSTUM) != 0 ? new double[12 * capacity] : null;
+        this.vector = new VectorIJK();
+        this.matrix = new MatrixIJK();
+    }
+
+    /**
+     * @return the maximum number of epochs this batch can hold
+     */
+    public int getCapacity()
+    {
+        return capacity;
+    }
+
+    /**
+     * @return the mask of fields for which this batch has storage
+     */
+    public int getFields()
+    {
+        return fields;
+    }
+
+    /**
+     * Return whether this batch has storage for all the specified fields.
+     *
+     * @param fields bitwise OR of the field constants defined by this class
+     * @return true if all the fields are present
+     */
+    public boolean hasFields(int fields)
+    {
+        return (this.fields & fields) == fields;
+    }
+
+    /**
+     * @return the packed spacecraft positions, or null if not in this batch
+     */
+    public double[] getScPositions()
+    {
+        return scPositions;
+    }
+
+    /**
+     * @return the packed spacecraft velocities, or null if not in this batch
+     */
+    public double[] getScVelocities()
+    {
+        return scVelocities;
+    }
+
+    /**
+     * @return the packed spacecraft-to-target rotations, or null if not in
+     *         this batch
+     */
+    public double[] getScRotations()
+    {
+        return scRotations;
+    }
+
+    /**
+     * @return the packed boresight vectors, or null if not in this batch
+     */
+    public double[] getBoresights()
+    {
+        return boresights;
+    }
+
+    /**
+     * @return the packed up vectors, or null if not in this batch
+     */
+    public double[] getUpDirections()
+    {
+        return upDirections;
+    }
+
+    /**
+     * @return the packed frustum corners, or null if not in this batch
+     */
+    public double[] getFrustums()
+    {
+        return frustums;
+    }
+
+    /**
+     * Check that this batch can receive the specified fields for the
+     * specified number of epochs.
+     *
+     * @param count the number of epochs
+     * @param fields bitwise OR of the field constants defined by this class
+     * @throws IllegalArgumentException if the batch is too small or lacks any
+     *             of the fields
+     */
+    public void checkCompatible(int count, int fields)
+    {
+        Preconditions.checkArgument(count <= capacity, "Pointing batch capacity " + capacity + " is too small for " + count + " epochs");
+        Preconditions.checkArgument(hasFields(fields), "Pointing batch does not have storage for all requested fields");
+    }
+
+    /**
+     * Copy the selected fields of the specified pointing into the slots for
+     * the epoch at the specified index. The pointing's buffer-filling getters
+     * are used, with buffers belonging to this batch, so no objects are
+     * allocated if the pointing implements those getters without allocating.
+     * As a consequence, a batch must not be filled by multiple threads at
+     * once.
+     *
+     * @param index the epoch index
+     * @param fields bitwise OR of the field constants defined by this class
+     * @param pointing the pointing to copy
+     */
+    public void put(int index, int fields, InstrumentPointing pointing)
+    {
+        if ((fields & SC_POSITION) != 0)
+        {
+            put(pointing.getScPosition(vector), scPositions, 3 * index);
+        }
+        if ((fields & SC_VELOCITY) != 0)
+        {
+            put(pointing.getScVelocity(vector), scVelocities, 3 * index);
+        }
+        if ((fields & SC_ROTATION) != 0)
+        {
+            put(pointing.getScRotation(matrix), scRotations, 9 * index);
+        }
+        if ((fields & BORESIGHT) != 0)
+        {
+            put(pointing.getBoresight(vector), boresights, 3 * index);
+        }
+        if ((fields & UP_DIRECTION) != 0)
+        {
+            put(pointing.getUpDirection(vector), upDirections, 3 * index);
+        }
+        if ((fields & FRUSTUM) != 0)
+        {
+            if (pointing.getFrustum(frustums, 12 * index) == null)
+            {
+                Arrays.fill(frustums, 12 * index, 12 * index + 12, Double.NaN);
+            }
+        }
+    }
+
+    /**
+     * Copy the selected fields of the epoch at the specified index into the
+     * slots for an epoch of another batch (or of this batch).
+     *
+     * @param index the epoch index in this batch
+     * @param fields bitwise OR of the field constants defined by this class
+     * @param destination the batch to receive the values
+     * @param destinationIndex the epoch index in the destination batch
+     */
+    public void copy(int index, int fields, PointingBatch destination, int destinationIndex)
+    {
+        if ((fields & SC_POSITION) != 0)
+        {
+            System.arraycopy(scPositions, 3 * index, destination.scPositions, 3 * destinationIndex, 3);
+        }
+        if ((fields & SC_VELOCITY) != 0)
+        {
+            System.arraycopy(scVelocities, 3 * index, destination.scVelocities, 3 * destinationIndex, 3);
+        }
+        if ((fields & SC_ROTATION) != 0)
+        {
+            System.arraycopy(scRotations, 9 * index, destination.scRotations, 9 * destinationIndex, 9);
+        }
+        if ((fields & BORESIGHT) != 0)
+        {
+            System.arraycopy(boresights, 3 * index, destination.boresights, 3 * destinationIndex, 3);
+        }
+        if ((fields & UP_DIRECTION) != 0)
+        {
+            System.arraycopy(upDirections, 3 * index, destination.upDirections, 3 * destinationIndex, 3);
+        }
+        if ((fields & FRUSTUM) != 0)
+        {
+            System.arraycopy(frustums, 12 * index, destination.frustums, 12 * destinationIndex, 12);
+        }
+    }
+
+    /**
+     * Fill the selected fields of the epoch at the specified index with NaN,
+     * for example because the epoch is outside the coverage of the kernels.
+     *
+     * @param index the epoch index
+     * @param fields bitwise OR of the field constants defined by this class
+     */
+    public void clear(int index, int fields)
+    {
+        if ((fields & SC_POSITION) != 0)
+        {
+            Arrays.fill(scPositions, 3 * index, 3 * index + 3, Double.NaN);
+        }
+        if ((fields & SC_VELOCITY) != 0)
+        {
+            Arrays.fill(scVelocities, 3 * index, 3 * index + 3, Double.NaN);
+        }
+        if ((fields & SC_ROTATION) != 0)
+        {
+            Arrays.fill(scRotations, 9 * index, 9 * index + 9, Double.NaN);
+        }
+        if ((fields & BORESIGHT) != 0)
+        {
+            Arrays.fill(boresights, 3 * index, 3 * index + 3, Double.NaN);
+        }
+        if ((fields & UP_DIRECTION) != 0)
+        {
+            Arrays.fill(upDirections, 3 * index, 3 * index + 3, Double.NaN);
+        }
+        if ((fields & FRUSTUM) != 0)
+        {
+            Arrays.fill(frustums, 12 * index, 12 * index + 12, Double.NaN);
+        }
+    }
+
+    private static void put(UnwritableVectorIJK vector, double[] into, int offset)
+    {
+        if (vector != null)
+        {
+            into[offset] = vector.getI();
+            into[offset + 1] = vector.getJ();
+            into[offset + 2] = vector.getK();
+        }
+        else
+        {
+            Arrays.fill(into, offset, offset + 3, Double.NaN);
+        }
+    }
+
+    private static void put(UnwritableMatrixIJK matrix, double[] into, int offset)
+    {
+        if (matrix != null)
+        {
+            for (int row = 0; row < 3; ++row)
+            {
+                for (int column = 0; column < 3; ++column)
+                {
+                    into[offset + 3 * row + column] = matrix.get(row, column);
+                }
+            }
+        }
+        else
+        {
+            Arrays.fill(into, offset, offset + 9, Double.NaN);
+        }
+    }
+
+}
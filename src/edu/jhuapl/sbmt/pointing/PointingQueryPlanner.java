@@ -0,0 +1,269 @@
+package edu.jhuapl.sbmt.pointing;
+
+import java.util.Arrays;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Plan for evaluating pointings at an arbitrary list of times, such as the
+ * image times of a catalog, which may be in any order and may contain many
+ * duplicates. The times are sorted and duplicates are removed, and the
+ * distinct times are split into runs of nearby times. Each run is passed to
+ * {@link IPointingProvider#provide(String, double[], int, PointingBatch)} in
+ * time order, so that the provider evaluates each distinct time once and its
+ * ephemeris and attitude segment lookups (and light-time solutions) stay warm
+ * from one epoch to the next. The results are then scattered back to the
+ * original order.
+ * <p>
+ * A plan depends only on the times, so one plan may be used for any number
+ * of instruments and providers.
+ */
+public final class PointingQueryPlanner
+{
+    /**
+     * Largest time difference, in seconds, between consecutive distinct times
+     * in one run, unless otherwise specified.
+     */
+    public static final double DEFAULT_MAXIMUM_GAP = 3600.;
+
+    /**
+     * Largest number of distinct times in one run, unless otherwise specified.
+     * This also limits the size of the batch used to evaluate each run.
+     */
+    public static final int DEFAULT_MAXIMUM_RUN_LENGTH = 4096;
+
+    /**
+     * Plan the evaluation of the specified times with the default run limits.
+     *
+     * @param times the times, in any order
+     * @return the plan
+     */
+    public static PointingQueryPlanner of(double[] times)
+    {
+        return of(times, DEFAULT_MAXIMUM_GAP, DEFAULT_MAXIMUM_RUN_LENGTH);
+    }
+
+    /**
+     * Plan the evaluation of the specified times. A new run starts whenever the
+     * next distinct time is more than maximumGap after the previous one, or
+     * the current run has reached maximumRunLength times.
+     *
+     * @param times the times, in any order
+     * @param maximumGap the largest gap between times in one run, in seconds
+     * @param maximumRunLength the largest number of distinct times in one run
+     * @return the plan
+     */
+    public static PointingQueryPlanner of(double[] times, double maximumGap, int maximumRunLength)
+    {
+        Preconditions.checkNotNull(times);
+        Preconditions.checkArgument(maximumGap >= 0., "Maximum gap must not be negative");
+        Preconditions.checkArgument(maximumRunLength > 0, "Maximum run length must be positive, not " + maximumRunLength);
+
+        int count = times.length;
+        int[] order = sortIndices(times);
+
+        double[] distinctTimes = new double[count];
+        int[] firstOfDistinct = new int[count + 1];
+        int[] runStarts = new int[count + 1];
+        int distinctCount = 0;
+        int runCount = 0;
+
+        for (int sorted = 0; sorted < count; ++sorted)
+        {
+            double time = times[order[sorted]];
+            if (distinctCount > 0 && Double.compare(time, distinctTimes[distinctCount - 1]) == 0)
+            {
+                continue;
+            }
+
+            if (distinctCount == 0 || time - distinctTimes[distinctCount - 1] > maximumGap || distinctCount - runStarts[runCount - 1] == maximumRunLength)
+            {
+                runStarts[runCount++] = distinctCount;
+            }
+
+            distinctTimes[distinctCount] = time;
+            firstOfDistinct[distinctCount] = sorted;
+            ++distinctCount;
+        }
+        firstOfDistinct[distinctCount] = count;
+        runStarts[runCount] = distinctCount;
+
+        return new PointingQueryPlanner(count, order, Arrays.copyOf(distinctTimes, distinctCount), Arrays.copyOf(firstOfDistinct, distinctCount + 1), Arrays.copyOf(runStarts, runCount + 1));
+    }
+
+    private final int count;
+    // Indices of the original times, in time order.
+    private final int[] order;
+    private final double[] distinctTimes;
+    // Distinct time d is at original indices order[firstOfDistinct[d]] to
+    // order[firstOfDistinct[d + 1] - 1].
+    private final int[] firstOfDistinct;
+    // Run r is distinct times runStarts[r] to runStarts[r + 1] - 1.
+    private final int[] runStarts;
+
+    private PointingQueryPlanner(int count, int[] order, double[] distinctTimes, int[] firstOfDistinct, int[] runStarts)
+    {
+        this.count = count;
+        this.order = order;
+        this.distinctTimes = distinctTimes;
+        this.firstOfDistinct = firstOfDistinct;
+        this.runStarts = runStarts;
+    }
+
+    /**
+     * @return the number of times planned, including duplicates
+     */
+    public int getCount()
+    {
+        return count;
+    }
+
+    /**
+     * @return the number of distinct times, which is the number of epochs
+     *         that are evaluated
+     */
+    public int getDistinctCount()
+    {
+        return distinctTimes.length;
+    }
+
+    /**
+     * @return the number of runs
+     */
+    public int getRunCount()
+    {
+        return runStarts.length - 1;
+    }
+
+    /**
+     * Return the distinct times of the specified run, in time order.
+     *
+     * @param run the index of the run
+     * @return the times
+     */
+    public double[] getRunTimes(int run)
+    {
+        Preconditions.checkElementIndex(run, getRunCount());
+
+        return Arrays.copyOfRange(distinctTimes, runStarts[run], runStarts[run + 1]);
+    }
+
+    /**
+     * Evaluate the specified fields of the instrument's pointing at every
+     * planned time, writing the values for the nth of the original times into
+     * the slots for epoch n of the batch, as
+     * {@link IPointingProvider#provide(String, double[], int, PointingBatch)}
+     * would, but evaluating each distinct time only once, in time order.
+     *
+     * @param provider the provider
+     * @param instrumentName the instrument
+     * @param fields bitwise OR of the field constants defined by
+     *            {@link PointingBatch}
+     * @param batch the batch into which to write the results
+     */
+    public void provide(IPointingProvider provider, String instrumentName, int fields, PointingBatch batch)
+    {
+        Preconditions.checkNotNull(provider);
+        Preconditions.checkNotNull(instrumentName, "Instrument name must be defined");
+        Preconditions.checkNotNull(batch);
+        batch.checkCompatible(count, fields);
+
+        int runCount = getRunCount();
+        if (runCount == 0)
+        {
+            return;
+        }
+
+        int longestRun = 0;
+        for (int run = 0; run < runCount; ++run)
+        {
+            longestRun = Math.max(longestRun, runStarts[run + 1] - runStarts[run]);
+        }
+
+        PointingBatch runBatch = new PointingBatch(longestRun, fields);
+        for (int run = 0; run < runCount; ++run)
+        {
+            int runStart = runStarts[run];
+            int runEnd = runStarts[run + 1];
+
+            provider.provide(instrumentName, getRunTimes(run), fields, runBatch);
+
+            // Scatter each distinct time to all of its original indices.
+            for (int distinct = runStart; distinct < runEnd; ++distinct)
+            {
+                for (int sorted = firstOfDistinct[distinct]; sorted < firstOfDistinct[distinct + 1]; ++sorted)
+                {
+                    runBatch.copy(distinct - runStart, fields, batch, order[sorted]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Evaluate the specified fields of the instrument's pointing at the
+     * specified times, planned with the default run limits (see
+     * {@link #provide(IPointingProvider, String, int, PointingBatch)}).
+     *
+     * @param provider the provider
+     * @param instrumentName the instrument
+     * @param times the times, in any order
+     * @param fields bitwise OR of the field constants defined by
+     *            {@link PointingBatch}
+     * @param batch the batch into which to write the results
+     */
+    public static void provide(IPointingProvider provider, String instrumentName, double[] times, int fields, PointingBatch batch)
+    {
+        of(times).provide(provider, instrumentName, fields, batch);
+    }
+
+    /**
+     * Return the indices of the specified times in time order, using a stable
+     * merge sort of primitive indices, so that large catalogs are sorted
+     * without boxing.
+     */
+    private static int[] sortIndices(double[] times)
+    {
+        int count = times.length;
+        int[] indices = new int[count];
+        for (int index = 0; index < count; ++index)
+        {
+            indices[index] = index;
+        }
+
+        int[] buffer = new int[count];
+        for (int width = 1; width < count; width *= 2)
+        {
+            for (int low = 0; low < count - width; low += 2 * width)
+            {
+                int middle = low + width;
+                int high = Math.min(low + 2 * width, count);
+
+                // Already in order: nothing to merge.
+                if (Double.compare(times[indices[middle - 1]], times[indices[middle]]) <= 0)
+                {
+                    continue;
+                }
+
+                int left = low;
+                int right = middle;
+                int out = low;
+                while (left < middle && right < high)
+                {
+                    buffer[out++] = Double.compare(times[indices[right]], times[indices[left]]) < 0 ? indices[right++] : indices[left++];
+                }
+                while (left < middle)
+                {
+                    buffer[out++] = indices[left++];
+                }
+                while (right < high)
+                {
+                    buffer[out++] = indices[right++];
+                }
+                System.arraycopy(buffer, low, indices, low, high - low);
+            }
+        }
+
+        return indices;
+    }
+
+}
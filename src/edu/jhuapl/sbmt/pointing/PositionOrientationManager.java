@@ -2,10 +2,13 @@ package edu.jhuapl.sbmt.pointing;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
 
 import org.apache.commons.lang3.tuple.Pair;
 
 import com.beust.jcommander.internal.Lists;
+import com.google.common.base.Preconditions;
 
 import edu.jhuapl.saavtk.model.IPositionOrientationManager;
 import edu.jhuapl.sbmt.core.body.SmallBodyModel;
@@ -32,6 +35,7 @@ public class PositionOrientationManager implements IPositionOrientationManager<S
 	SpiceInfo spiceInfo;
 	String instName;
 	String centerBodyName;
+	BodyTransformPlayback playback;
 
 	public PositionOrientationManager(List<SmallBodyModel> models, String mkFilename, SpiceInfo spiceInfo, String instName, String centerBodyName, double startTime)
 	{
@@ -44,6 +48,14 @@ public class PositionOrientationManager implements IPositionOrientationManager<S
 		initialize(startTime);
 	}
 
+	/**
+	 * Load the kernels, build the pointing provider and the pipeline that
+	 * positions the bodies, and position them at the specified time. This is
+	 * expensive, so it is only done once; later time changes go through
+	 * {@link #run(double)}, which reuses the provider and pipeline. The
+	 * provider is shared, and so concurrent, and the bodies are evaluated in
+	 * parallel on the common fork/join pool.
+	 */
 	private void initialize(double time)
 	{
 		updatedBodies = Lists.newArrayList();
@@ -59,6 +71,10 @@ public class PositionOrientationManager implements IPositionOrientationManager<S
 		spiceBodyObjects = Publishers.formPair(Just.of(models), pointingProviders);
 //		List<String> frameNames = List.of(spiceInfo.getBodyFrameName(), spiceInfo.getInstrumentNamesToBind()[1]);
 		spiceBodyOperator = new SpiceBodyOperator(centerBodyName, time);
+		// The shared provider is concurrent, so the bodies may be evaluated in
+		// parallel.
+		if (pointingProviders != null && pointingProviders.getPointingProvider().isConcurrent())
+			spiceBodyOperator.setExecutor(ForkJoinPool.commonPool());
 		try
 		{
 			run(time, models);
@@ -81,9 +97,69 @@ public class PositionOrientationManager implements IPositionOrientationManager<S
 			.subscribe(Sink.of(updatedBodies));
 	}
 
+	/**
+	 * Position the bodies at the specified time. The kernels, pointing
+	 * provider and body operator are kept from one call to the next, so only
+	 * the body positions and orientations are evaluated for the new time. If
+	 * the provider could not be created earlier, creating it is tried again.
+	 */
 	public void run(double time) throws Exception
 	{
-		initialize(time);
+		if (pointingProviders == null || spiceBodyOperator == null)
+		{
+			initialize(time);
+			return;
+		}
+
+		if (playback != null) playback.setPlayhead(time);
+		run(time, models);
+	}
+
+	/**
+	 * Start precomputing the body positions and orientations on background
+	 * threads for the frames ahead of each time passed to {@link #run(double)}
+	 * (see {@link BodyTransformPlayback}). Frames that have been precomputed
+	 * are then rendered without evaluating SPICE. Any previous playback is
+	 * stopped.
+	 *
+	 * @param step the time between frames, in seconds
+	 * @param capacity the number of frames to precompute ahead of the current
+	 *            time
+	 * @param workerCount the number of worker threads
+	 */
+	public void startPlayback(double step, int capacity, int workerCount)
+	{
+		Preconditions.checkState(pointingProviders != null, "Pointing provider was not created");
+
+		stopPlayback();
+		List<String> bodyNames = models.stream()
+				.map(SpiceBodyOperator::getBodyName)
+				.filter(name -> !name.equals(centerBodyName))
+				.collect(Collectors.toList());
+		playback = new BodyTransformPlayback(pointingProviders.getPointingProvider(), centerBodyName, bodyNames, step, capacity, workerCount);
+		spiceBodyOperator.setPlayback(playback);
+	}
+
+	/**
+	 * Set whether playback runs backwards in time, so that the frames before
+	 * the current time are precomputed instead of those after it.
+	 */
+	public void setPlaybackReverse(boolean reverse)
+	{
+		if (playback != null) playback.setReverse(reverse);
+	}
+
+	/**
+	 * Stop precomputing body positions and orientations. Later calls to
+	 * {@link #run(double)} evaluate SPICE directly.
+	 */
+	public void stopPlayback()
+	{
+		if (playback == null) return;
+
+		spiceBodyOperator.setPlayback(null);
+		playback.close();
+		playback = null;
 	}
 
 
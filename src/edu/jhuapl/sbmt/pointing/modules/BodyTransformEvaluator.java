@@ -0,0 +1,209 @@
+package edu.jhuapl.sbmt.pointing.modules;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+
+import edu.jhuapl.sbmt.pointing.InstrumentPointing;
+import edu.jhuapl.sbmt.pointing.spice.SpiceIdRegistry;
+import edu.jhuapl.sbmt.pointing.spice.SpicePointingProvider;
+import picante.math.vectorspace.RotationMatrixIJK;
+import picante.math.vectorspace.UnwritableVectorIJK;
+import picante.mechanics.EphemerisID;
+import picante.mechanics.FrameID;
+
+/**
+ * Evaluates the transforms that place a list of bodies relative to a center
+ * body, without touching VTK, so that the transforms may be computed on any
+ * thread and applied later on the rendering thread.
+ * <p>
+ * The transform of each body is written as {@link #ELEMENTS_PER_BODY} doubles:
+ * the first three rows of the row-major 4x4 matrix, that is, the rotation from
+ * the center body's frame to the body's frame (transposed, as VTK expects) with
+ * the body's position relative to the center body in the last column. The
+ * fourth row is always 0, 0, 0, 1.
+ * <p>
+ * With a concurrent provider, the bodies may also be evaluated in parallel
+ * (see {@link #evaluate(SpicePointingProvider, double, double[], Executor)}).
+ * <p>
+ * Instances are not thread safe; use one per thread.
+ */
+public final class BodyTransformEvaluator
+{
+	/**
+	 * Number of doubles written for each body.
+	 */
+	public static final int ELEMENTS_PER_BODY = 12;
+
+	private final FrameID centerBodyFrame;
+	private final ImmutableList<String> bodyNames;
+	private final EphemerisID[] ephemerisIds;
+	private final FrameID[] frameIds;
+	private final RotationMatrixIJK rotation;
+
+	/**
+	 * @param centerBodyName the name of the center body, relative to which
+	 *            bodies are placed
+	 * @param bodyNames the names of the bodies to place, in the order their
+	 *            transforms are written
+	 */
+	public BodyTransformEvaluator(String centerBodyName, List<String> bodyNames)
+	{
+		Preconditions.checkNotNull(centerBodyName);
+
+		this.centerBodyFrame = SpiceIdRegistry.getFrameId("IAU_" + centerBodyName);
+		this.bodyNames = ImmutableList.copyOf(bodyNames);
+		this.ephemerisIds = new EphemerisID[this.bodyNames.size()];
+		this.frameIds = new FrameID[this.bodyNames.size()];
+		for (int index = 0; index < ephemerisIds.length; ++index)
+		{
+			ephemerisIds[index] = SpiceIdRegistry.getEphemerisId(this.bodyNames.get(index));
+			frameIds[index] = SpiceIdRegistry.getFrameId("IAU_" + this.bodyNames.get(index));
+		}
+		this.rotation = new RotationMatrixIJK();
+	}
+
+	/**
+	 * @return the names of the bodies, in the order their transforms are
+	 *         written
+	 */
+	public ImmutableList<String> getBodyNames()
+	{
+		return bodyNames;
+	}
+
+	/**
+	 * @return the number of doubles written by
+	 *         {@link #evaluate(SpicePointingProvider, double, double[])}
+	 */
+	public int getElementCount()
+	{
+		return ELEMENTS_PER_BODY * bodyNames.size();
+	}
+
+	/**
+	 * Write the transforms of all the bodies at the specified time, all from a
+	 * single pointing. Unless the provider is concurrent (see
+	 * {@link SpicePointingProvider#isConcurrent()}), the evaluation is
+	 * synchronized on the provider, so threads sharing a provider take turns.
+	 *
+	 * @param provider the provider
+	 * @param time the time
+	 * @param elements the array to receive the transforms, at least
+	 *            {@link #getElementCount()} long
+	 */
+	public void evaluate(SpicePointingProvider provider, double time, double[] elements)
+	{
+		Preconditions.checkNotNull(provider);
+		Preconditions.checkArgument(elements.length >= getElementCount(), "Transform array is too short");
+
+		if (provider.isConcurrent())
+		{
+			evaluateAll(provider, time, elements);
+			return;
+		}
+
+		synchronized (provider)
+		{
+			evaluateAll(provider, time, elements);
+		}
+	}
+
+	/**
+	 * Write the transforms of all the bodies at the specified time, as
+	 * {@link #evaluate(SpicePointingProvider, double, double[])} does, but
+	 * evaluating each body's position and orientation as a separate task on
+	 * the executor, so that the time taken is that of the slowest body rather
+	 * than the sum over all bodies. The pointing shared by the bodies is
+	 * computed first, on the calling thread, which also evaluates one of the
+	 * bodies and then waits for the rest.
+	 * <p>
+	 * Only a concurrent provider (see
+	 * {@link SpicePointingProvider#isConcurrent()}) may be evaluated from
+	 * several threads, so for any other provider, or a single body, this
+	 * evaluates the bodies one after another on the calling thread.
+	 *
+	 * @param provider the provider
+	 * @param time the time
+	 * @param elements the array to receive the transforms, at least
+	 *            {@link #getElementCount()} long
+	 * @param executor the executor on which to evaluate the bodies
+	 */
+	public void evaluate(SpicePointingProvider provider, double time, double[] elements, Executor executor)
+	{
+		Preconditions.checkNotNull(executor);
+
+		if (!provider.isConcurrent() || ephemerisIds.length < 2)
+		{
+			evaluate(provider, time, elements);
+			return;
+		}
+		Preconditions.checkArgument(elements.length >= getElementCount(), "Transform array is too short");
+
+		InstrumentPointing pointing = provider.provide(time);
+
+		// Each task writes only its own body's elements; joining the tasks
+		// makes their writes visible to the caller.
+		int last = ephemerisIds.length - 1;
+		CompletableFuture<?>[] tasks = new CompletableFuture<?>[last];
+		for (int index = 0; index < last; ++index)
+		{
+			int body = index;
+			tasks[index] = CompletableFuture.runAsync(() -> evaluateBody(provider, pointing, body, time, new RotationMatrixIJK(), elements), executor);
+		}
+		evaluateBody(provider, pointing, last, time, rotation, elements);
+
+		try
+		{
+			CompletableFuture.allOf(tasks).join();
+		}
+		catch (CompletionException e)
+		{
+			if (e.getCause() instanceof RuntimeException)
+			{
+				throw (RuntimeException) e.getCause();
+			}
+			throw e;
+		}
+	}
+
+	private void evaluateAll(SpicePointingProvider provider, double time, double[] elements)
+	{
+		if (ephemerisIds.length == 0)
+		{
+			return;
+		}
+
+		InstrumentPointing pointing = provider.provide(time);
+		for (int index = 0; index < ephemerisIds.length; ++index)
+		{
+			evaluateBody(provider, pointing, index, time, rotation, elements);
+		}
+	}
+
+	/**
+	 * Write the transform of one body, using the rotation as a buffer.
+	 */
+	private void evaluateBody(SpicePointingProvider provider, InstrumentPointing pointing, int index, double time, RotationMatrixIJK rotation, double[] elements)
+	{
+		UnwritableVectorIJK bodyPos = pointing.getPosition(ephemerisIds[index]);
+		provider.getFrameTransformFunction(centerBodyFrame, frameIds[index]).getTransform(time, rotation);
+
+		int offset = ELEMENTS_PER_BODY * index;
+		for (int row = 0; row < 3; ++row)
+		{
+			for (int column = 0; column < 3; ++column)
+			{
+				elements[offset + 4 * row + column] = rotation.get(column, row);
+			}
+		}
+		elements[offset + 3] = bodyPos.getI();
+		elements[offset + 7] = bodyPos.getJ();
+		elements[offset + 11] = bodyPos.getK();
+	}
+
+}
@@ -1,7 +1,11 @@
 package edu.jhuapl.sbmt.pointing.modules;
 
 import java.io.IOException;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.stream.Collectors;
 
 import org.apache.commons.lang3.tuple.Pair;
 
@@ -10,18 +14,27 @@ import com.google.common.base.Preconditions;
 
 import edu.jhuapl.sbmt.core.body.SmallBodyModel;
 import edu.jhuapl.sbmt.pipeline.operator.BasePipelineOperator;
-import edu.jhuapl.sbmt.pointing.InstrumentPointing;
+import edu.jhuapl.sbmt.pointing.BodyTransformPlayback;
 import edu.jhuapl.sbmt.pointing.spice.SpicePointingProvider;
-import picante.math.vectorspace.RotationMatrixIJK;
-import picante.mechanics.Coverage;
-import picante.mechanics.EphemerisID;
-import picante.mechanics.FrameID;
-import picante.mechanics.FrameTransformFunction;
-import picante.mechanics.utilities.SimpleEphemerisID;
-import picante.mechanics.utilities.SimpleFrameID;
 import vtk.vtkMatrix4x4;
 import vtk.vtkTransform;
 
+/**
+ * Operator that moves each body (other than the center body) to its position
+ * and orientation relative to the center body at the operator's time.
+ * <p>
+ * All bodies are positioned from a single pointing per epoch (see
+ * {@link BodyTransformEvaluator}). The VTK matrix and transform of each body
+ * are created the first time the body is seen and reused at every later epoch,
+ * and each body's 4x4 matrix is set in one call, so stepping through time
+ * creates no VTK objects. If a {@link BodyTransformPlayback} has already
+ * computed the transforms for the operator's time, they are used instead of
+ * evaluating SPICE.
+ * <p>
+ * If an executor is set (see {@link #setExecutor(Executor)}) and the provider
+ * is concurrent, the bodies are evaluated in parallel on the executor. The
+ * VTK transforms are always applied on the thread that runs the operator.
+ */
 public class SpiceBodyOperator extends BasePipelineOperator<Pair<SmallBodyModel, SpicePointingProvider>, SmallBodyModel>
 {
 	private String centerBodyName;
@@ -30,6 +43,12 @@ public class SpiceBodyOperator extends BasePipelineOperator<Pair<SmallBodyModel,
 	private List<SpicePointingProvider> pointingProviders;
 //	private List<String> frameNames;
 	private SpicePointingProvider pointingProvider;
+	private final Map<SmallBodyModel, BodyTransform> bodyTransforms;
+	private final List<BodyTransform> movingBodies;
+	private BodyTransformEvaluator evaluator;
+	private double[] elements;
+	private BodyTransformPlayback playback;
+	private Executor executor;
 
 	public SpiceBodyOperator(String centerBodyName, double time)
 	{
@@ -38,6 +57,12 @@ public class SpiceBodyOperator extends BasePipelineOperator<Pair<SmallBodyModel,
 		smallBodyModels = Lists.newArrayList();
 		pointingProviders = Lists.newArrayList();
 //		this.frameNames = frameNames;
+		this.bodyTransforms = new IdentityHashMap<>();
+		this.movingBodies = Lists.newArrayList();
+		this.evaluator = null;
+		this.elements = new double[0];
+		this.playback = null;
+		this.executor = null;
 	}
 
 	public void setTime(double time)
@@ -45,6 +70,35 @@ public class SpiceBodyOperator extends BasePipelineOperator<Pair<SmallBodyModel,
 		this.time = time;
 	}
 
+	/**
+	 * Use transforms precomputed by the specified playback when it has them
+	 * for the operator's time, or always evaluate SPICE if null.
+	 */
+	public void setPlayback(BodyTransformPlayback playback)
+	{
+		this.playback = playback;
+	}
+
+	/**
+	 * Evaluate the bodies in parallel on the specified executor, such as
+	 * {@link java.util.concurrent.ForkJoinPool#commonPool()}, when the
+	 * provider is concurrent (see {@link SpicePointingProvider#isConcurrent()}),
+	 * or one after another on the operator's thread if null.
+	 */
+	public void setExecutor(Executor executor)
+	{
+		this.executor = executor;
+	}
+
+	/**
+	 * Return the name of the body represented by the specified model, as used
+	 * by this operator and {@link BodyTransformEvaluator}.
+	 */
+	public static String getBodyName(SmallBodyModel smallBodyModel)
+	{
+		return smallBodyModel.getConfig().getAuthor().toString().split("-")[1].toUpperCase();
+	}
+
 	@Override
 	public void processData() throws IOException, Exception
 	{
@@ -56,85 +110,102 @@ public class SpiceBodyOperator extends BasePipelineOperator<Pair<SmallBodyModel,
 			smallBodyModels.add(inputs.get(i).getLeft());
 			pointingProviders.add(inputs.get(i).getRight());
 		}
+
+		movingBodies.clear();
 		for (SmallBodyModel smallBodyModel : smallBodyModels)
 		{
-			String bodyName = smallBodyModel.getConfig().getAuthor().toString().split("-")[1].toUpperCase();
-			vtkTransform transform = new vtkTransform();
-			if (bodyName.equals(centerBodyName))
-			{
-				outputs.add(smallBodyModel);
-				continue;
-			}
-			pointingProvider = pointingProviders.get(0);
-			//shift the body to the proper location at this time
-			double[] bodyPos = getBodyPosition(bodyName);
-			smallBodyModel.getSmallBodyActor().SetPosition(new double[] {0,0,0});
-			smallBodyModel.getSmallBodyActor().SetOrientation(new double[] {0,0,0});
-			RotationMatrixIJK rotationTransform = getBodyOrientation(bodyName);
-			vtkMatrix4x4 fullMatrix = getTransformationMatrix(rotationTransform, bodyPos);
-			transform.SetMatrix(fullMatrix);
-			transform.Update();
+			BodyTransform body = bodyTransforms.computeIfAbsent(smallBodyModel, this::createBodyTransform);
+			if (!body.center) movingBodies.add(body);
+		}
 
+		if (!movingBodies.isEmpty())
+		{
+			pointingProvider = pointingProviders.get(0);
+			computeElements();
+		}
 
-			smallBodyModel.transformBody(transform);
+		int offset = 0;
+		for (SmallBodyModel smallBodyModel : smallBodyModels)
+		{
+			BodyTransform body = bodyTransforms.get(smallBodyModel);
+			if (!body.center)
+			{
+				//shift the body to the proper location at this time
+				smallBodyModel.getSmallBodyActor().SetPosition(new double[] {0,0,0});
+				smallBodyModel.getSmallBodyActor().SetOrientation(new double[] {0,0,0});
+				body.update(elements, offset);
+				offset += BodyTransformEvaluator.ELEMENTS_PER_BODY;
+				smallBodyModel.transformBody(body.transform);
+			}
 			outputs.add(smallBodyModel);
 		}
 	}
 
-	private double[] getBodyPosition(String bodyName)
+	/**
+	 * Fill the elements with the transforms of the moving bodies, from the
+	 * playback if it has them, otherwise by evaluating SPICE.
+	 */
+	private void computeElements()
 	{
 		Preconditions.checkNotNull(time);
 		Preconditions.checkNotNull(pointingProvider);
-//		System.out.println("SpiceBodyOperator: getBodyPosition: time " + time);
-		InstrumentPointing pointing = pointingProvider.provide(time);
-		EphemerisID body = new SimpleEphemerisID(bodyName.toUpperCase());
-//		System.out.println("SpiceBodyOperator: getBodyPosition: " + new Vector3D(new double[] { pointing.getPosition(body).getI(),
-//				pointing.getPosition(body).getJ(),
-//				pointing.getPosition(body).getK()
-//
-//		}));
-
-		return new double[] { pointing.getPosition(body).getI(),
-				pointing.getPosition(body).getJ(),
-				pointing.getPosition(body).getK()
 
+		List<String> bodyNames = movingBodies.stream().map(body -> body.bodyName).collect(Collectors.toList());
+		if (evaluator == null || !evaluator.getBodyNames().equals(bodyNames))
+		{
+			evaluator = new BodyTransformEvaluator(centerBodyName, bodyNames);
+			elements = new double[evaluator.getElementCount()];
+		}
 
+		if (playback != null && playback.getBodyNames().equals(bodyNames) && playback.get(time, elements))
+		{
+			return;
+		}
 
-		};
+		if (executor != null) evaluator.evaluate(pointingProvider, time, elements, executor);
+		else evaluator.evaluate(pointingProvider, time, elements);
 	}
 
-	private RotationMatrixIJK getBodyOrientation(String bodyName)
+	private BodyTransform createBodyTransform(SmallBodyModel smallBodyModel)
 	{
-		Preconditions.checkNotNull(time);
-		Preconditions.checkNotNull(pointingProvider);
-		FrameID body = new SimpleFrameID("IAU_" + bodyName);
-		FrameID centerBody = new SimpleFrameID("IAU_" + centerBodyName);
-		FrameTransformFunction frameTransformFunction = pointingProvider.getEphemerisProvider().createFrameTransformFunction(centerBody, body, Coverage.ALL_TIME);
-		RotationMatrixIJK transform = frameTransformFunction.getTransform(time);
-//		System.out.println("SpiceBodyOperator: getBodyOrientation: transform " + transform);
-		return transform;
+		String bodyName = getBodyName(smallBodyModel);
+
+		return new BodyTransform(bodyName, bodyName.equals(centerBodyName));
 	}
 
-	private vtkMatrix4x4 getTransformationMatrix(RotationMatrixIJK rotationTransform, double[] bodyPos)
+	/**
+	 * VTK objects used to position one body, kept from one epoch to the next.
+	 */
+	private static final class BodyTransform
 	{
-		vtkMatrix4x4 fullMatrix = new vtkMatrix4x4();
-		fullMatrix.Identity();
-		fullMatrix.SetElement(0, 0, rotationTransform.get(0, 0));
-		fullMatrix.SetElement(1, 0, rotationTransform.get(0, 1));
-		fullMatrix.SetElement(2, 0, rotationTransform.get(0, 2));
-		fullMatrix.SetElement(3, 0, 0);
-		fullMatrix.SetElement(0, 1, rotationTransform.get(1, 0));
-		fullMatrix.SetElement(1, 1, rotationTransform.get(1, 1));
-		fullMatrix.SetElement(2, 1, rotationTransform.get(1, 2));
-		fullMatrix.SetElement(3, 1, 0);
-		fullMatrix.SetElement(0, 2, rotationTransform.get(2, 0));
-		fullMatrix.SetElement(1, 2, rotationTransform.get(2, 1));
-		fullMatrix.SetElement(2, 2, rotationTransform.get(2, 2));
-		fullMatrix.SetElement(3, 2, 0);
-		fullMatrix.SetElement(0, 3, bodyPos[0]);
-		fullMatrix.SetElement(1, 3, bodyPos[1]);
-		fullMatrix.SetElement(2, 3, bodyPos[2]);
-		fullMatrix.SetElement(3, 3, 1);
-		return fullMatrix;
+		private final String bodyName;
+		private final boolean center;
+		// Row-major 4x4 matrix, set in one call.
+		private final double[] matrixElements;
+		private final vtkMatrix4x4 matrix;
+		private final vtkTransform transform;
+
+		BodyTransform(String bodyName, boolean center)
+		{
+			this.bodyName = bodyName;
+			this.center = center;
+			this.matrixElements = new double[16];
+			this.matrix = center ? null : new vtkMatrix4x4();
+			this.transform = center ? null : new vtkTransform();
+			this.matrixElements[15] = 1;
+		}
+
+		/**
+		 * Set the transform from the first three rows of the matrix, written
+		 * by {@link BodyTransformEvaluator} at the specified offset.
+		 */
+		void update(double[] elements, int offset)
+		{
+			System.arraycopy(elements, offset, matrixElements, 0, BodyTransformEvaluator.ELEMENTS_PER_BODY);
+
+			matrix.DeepCopy(matrixElements);
+			transform.SetMatrix(matrix);
+			transform.Update();
+		}
 	}
-}
\ No newline at end of file
+}
@@ -2,6 +2,7 @@ package edu.jhuapl.sbmt.pointing.modules;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.lang.ref.Cleaner;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 
@@ -10,39 +11,127 @@ import com.google.common.collect.ImmutableList;
 import edu.jhuapl.sbmt.pipeline.publisher.BasePipelinePublisher;
 import edu.jhuapl.sbmt.pointing.spice.SpiceInfo;
 import edu.jhuapl.sbmt.pointing.spice.SpicePointingProvider;
+import edu.jhuapl.sbmt.pointing.spice.SpicePointingProviderHandle;
+import edu.jhuapl.sbmt.pointing.spice.SpicePointingProviderRegistry;
 import picante.spice.adapters.AdapterInstantiationException;
 import picante.spice.kernel.KernelInstantiationException;
 
 public class SpiceReaderPublisher extends BasePipelinePublisher<SpicePointingProvider>
 {
+	private static final SpicePointingProviderRegistry Providers = new SpicePointingProviderRegistry((mkFilename, spiceInfo) -> buildProvider(mkFilename, spiceInfo, true));
+	private static final Cleaner LeaseCleaner = Cleaner.create();
+
 	private SpicePointingProvider pointingProvider;
 	private SpiceInfo spiceInfo;
-	private String mkFilename;
-	private String instName;
+	private Cleaner.Cleanable leaseRelease;
 
 	public SpiceReaderPublisher(String mkFilename, SpiceInfo spiceInfo) throws KernelInstantiationException, IOException, AdapterInstantiationException, FileNotFoundException
 	{
 		this(mkFilename, spiceInfo, "");
 	}
 
+	/**
+	 * Publish a view of the shared provider for the metakernel and
+	 * {@link SpiceInfo} (see {@link #getProviderRegistry()}), so that
+	 * publishers of the same mission load its kernels only once, whatever
+	 * their instruments. The shared provider is concurrent, and the view has
+	 * its own current instrument (see {@link SpicePointingProvider#createView()}),
+	 * so selecting an instrument does not affect other publishers. The
+	 * publisher's lease on the provider is released by {@link #close()}, or
+	 * when the publisher is garbage collected.
+	 */
 	public SpiceReaderPublisher(String mkFilename, SpiceInfo spiceInfo, String instName) throws KernelInstantiationException, IOException, AdapterInstantiationException, FileNotFoundException
 	{
+		this(Providers.acquire(mkFilename, spiceInfo), spiceInfo, instName);
+	}
+
+	private SpiceReaderPublisher(SpicePointingProviderRegistry.Lease lease, SpiceInfo spiceInfo, String instName)
+	{
+		this(createView(lease, spiceInfo, instName), spiceInfo);
+		this.leaseRelease = LeaseCleaner.register(this, lease::close);
+	}
+
+	/**
+	 * Publish a provider that has already been created, for example by a
+	 * {@link SpicePointingProviderHandle} returned by
+	 * {@link #loadInBackground(String, SpiceInfo, String)}.
+	 */
+	public SpiceReaderPublisher(SpicePointingProvider pointingProvider, SpiceInfo spiceInfo)
+	{
+		this.pointingProvider = pointingProvider;
 		this.spiceInfo = spiceInfo;
-		this.mkFilename = mkFilename;
-		this.instName = instName;
-		loadPointing();
 		outputs.add(pointingProvider);
 		if (spiceInfo.getBodyNamesToBind().length == 0) return;
 		for (String name : spiceInfo.getBodyNamesToBind()) outputs.add(pointingProvider);
 
 	}
 
-	private void loadPointing() throws KernelInstantiationException, IOException, AdapterInstantiationException, FileNotFoundException
+	/**
+	 * @return the provider published by this publisher
+	 */
+	public SpicePointingProvider getPointingProvider()
+	{
+		return pointingProvider;
+	}
+
+	/**
+	 * Release this publisher's lease on a shared provider, if it has one. The
+	 * provider may still be used by other holders, and stays in memory until
+	 * the garbage collector needs the space.
+	 */
+	public void close()
+	{
+		if (leaseRelease != null) leaseRelease.clean();
+	}
+
+	/**
+	 * @return the process-wide registry of the providers shared by publishers
+	 */
+	public static SpicePointingProviderRegistry getProviderRegistry()
+	{
+		return Providers;
+	}
+
+	/**
+	 * Start loading the kernels and building the provider on a background
+	 * thread, so the caller (often the Swing thread) is not blocked. Pass the
+	 * provider to {@link #SpiceReaderPublisher(SpicePointingProvider, SpiceInfo)}
+	 * once the handle's future completes.
+	 */
+	public static SpicePointingProviderHandle loadInBackground(String mkFilename, SpiceInfo spiceInfo, String instName)
+	{
+		return SpicePointingProviderHandle.load(() -> createProvider(mkFilename, spiceInfo, instName));
+	}
+
+	public static SpicePointingProvider createProvider(String mkFilename, SpiceInfo spiceInfo, String instName) throws KernelInstantiationException, IOException, AdapterInstantiationException, FileNotFoundException
+	{
+		return selectInstrument(buildProvider(mkFilename, spiceInfo, false), spiceInfo, instName);
+	}
+
+	/**
+	 * Create the holder's view of a leased provider, with its instrument
+	 * selected, releasing the lease if the instrument cannot be selected.
+	 */
+	private static SpicePointingProvider createView(SpicePointingProviderRegistry.Lease lease, SpiceInfo spiceInfo, String instName)
+	{
+		try
+		{
+			return selectInstrument(lease.getProvider().createView(), spiceInfo, instName);
+		}
+		catch (RuntimeException e)
+		{
+			lease.close();
+			throw e;
+		}
+	}
+
+	private static SpicePointingProvider buildProvider(String mkFilename, SpiceInfo spiceInfo, boolean concurrent) throws KernelInstantiationException, IOException, AdapterInstantiationException, FileNotFoundException
 	{
 		Path mkPath = Paths.get(mkFilename);
 		SpicePointingProvider.Builder builder =
 				SpicePointingProvider.builder(ImmutableList.copyOf(new Path[] {mkPath}), spiceInfo.getBodyName(),
 						spiceInfo.getBodyFrameName(), spiceInfo.getScId(), spiceInfo.getScFrameName());
+		builder.concurrent(concurrent);
 
 		for (String bodyNameToBind : spiceInfo.getBodyNamesToBind()) builder.bindEphemeris(bodyNameToBind);
 		for (String bodyFrameToBind : spiceInfo.getBodyFramesToBind()) builder.bindFrame(bodyFrameToBind);
@@ -55,12 +144,18 @@ public class SpiceReaderPublisher extends BasePipelinePublisher<SpicePointingPro
 			builder.includeFirstInstrumentsWithFrame(instrumentFrameNameToBind);
 		}
 
-        pointingProvider = builder.build();
+		return builder.build();
+	}
+
+	private static SpicePointingProvider selectInstrument(SpicePointingProvider pointingProvider, SpiceInfo spiceInfo, String instName)
+	{
         if (instName.equals("")) instName = pointingProvider.getInstrumentNames()[0];
         pointingProvider.setCurrentInstrumentName(instName);
         if (spiceInfo.getInstrumentNamesToBind().length == 0)
         {
         	pointingProvider.setCurrentInstrumentName(pointingProvider.getInstrumentNames()[0]);
         }
+
+        return pointingProvider;
 	}
 }
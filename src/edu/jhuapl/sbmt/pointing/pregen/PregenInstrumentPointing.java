@@ -5,8 +5,10 @@ import java.util.List;
 import edu.jhuapl.sbmt.pointing.InstrumentPointing;
 import edu.jhuapl.sbmt.pointing.State;
 import edu.jhuapl.sbmt.pointing.scState.CsvState;
+import picante.math.vectorspace.MatrixIJK;
 import picante.math.vectorspace.UnwritableMatrixIJK;
 import picante.math.vectorspace.UnwritableVectorIJK;
+import picante.math.vectorspace.VectorIJK;
 import picante.mechanics.EphemerisID;
 
 public class PregenInstrumentPointing implements InstrumentPointing
@@ -75,4 +77,48 @@ public class PregenInstrumentPointing implements InstrumentPointing
 		return null;
 	}
 
+	@Override
+	public VectorIJK getScPosition(VectorIJK into)
+	{
+		double[] position = state.getSpacecraftPosition();
+		return into.setTo(position[0], position[1], position[2]);
+	}
+
+	@Override
+	public VectorIJK getScVelocity(VectorIJK into)
+	{
+		double[] velocity = state.getSpacecraftVelocity();
+		return into.setTo(velocity[0], velocity[1], velocity[2]);
+	}
+
+	@Override
+	public MatrixIJK getScRotation(MatrixIJK into)
+	{
+		// The axes are the columns of the rotation.
+		double[] xAxis = state.getSpacecraftXAxis();
+		double[] yAxis = state.getSpacecraftYAxis();
+		double[] zAxis = state.getSpacecraftZAxis();
+		return into.setTo(xAxis[0], xAxis[1], xAxis[2],
+							yAxis[0], yAxis[1], yAxis[2],
+							zAxis[0], zAxis[1], zAxis[2]);
+	}
+
+	@Override
+	public VectorIJK getBoresight(VectorIJK into)
+	{
+		return into.setTo(0, 0, 1);
+	}
+
+	@Override
+	public VectorIJK getUpDirection(VectorIJK into)
+	{
+		return into.setTo(0, 1, 0);
+	}
+
+	@Override
+	public double[] getFrustum(double[] into, int offset)
+	{
+		return null;
+	}
+
 }
@@ -5,6 +5,7 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.NavigableMap;
 import java.util.TreeMap;
 
@@ -15,12 +16,16 @@ import com.google.common.base.Preconditions;
 import edu.jhuapl.saavtk.util.FileCache;
 import edu.jhuapl.sbmt.pointing.IPointingProvider;
 import edu.jhuapl.sbmt.pointing.InstrumentPointing;
+import edu.jhuapl.sbmt.pointing.PointingBatch;
 import edu.jhuapl.sbmt.pointing.State;
 import edu.jhuapl.sbmt.pointing.StateHistoryUtil;
 import edu.jhuapl.sbmt.pointing.scState.CsvState;
 
 public abstract class PregenPointingProvider implements IPointingProvider
 {
+	// Fixed instrument vectors, matching those of PregenInstrumentPointing.
+	private static final double[] BORESIGHT = { 0, 0, 1 };
+	private static final double[] UP_DIRECTION = { 0, 1, 0 };
 
 	public PregenPointingProvider()
 	{
@@ -159,6 +164,52 @@ public abstract class PregenPointingProvider implements IPointingProvider
 		return new PregenInstrumentPointing(state);
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * This implementation copies the pregenerated state arrays directly into
+	 * the batch without creating a {@link PregenInstrumentPointing} per epoch.
+	 * Pregenerated states carry no frustum, so frustum corners are filled with
+	 * NaN.
+	 */
+	@Override
+	public void provide(String instrumentName, double[] times, int fields, PointingBatch batch)
+	{
+		Preconditions.checkNotNull(times);
+		Preconditions.checkNotNull(batch);
+		batch.checkCompatible(times.length, fields);
+
+		NavigableMap<Double, State> stateMap = getStateMap();
+		for (int index = 0; index < times.length; ++index)
+		{
+			State state = stateMap.floorEntry(times[index]).getValue();
+
+			if ((fields & PointingBatch.SC_POSITION) != 0)
+				System.arraycopy(state.getSpacecraftPosition(), 0, batch.getScPositions(), 3 * index, 3);
+			if ((fields & PointingBatch.SC_VELOCITY) != 0)
+				System.arraycopy(state.getSpacecraftVelocity(), 0, batch.getScVelocities(), 3 * index, 3);
+			if ((fields & PointingBatch.SC_ROTATION) != 0)
+			{
+				// The spacecraft axes are the columns of the rotation.
+				double[] rotations = batch.getScRotations();
+				double[][] axes = { state.getSpacecraftXAxis(), state.getSpacecraftYAxis(), state.getSpacecraftZAxis() };
+				for (int column = 0; column < 3; ++column)
+				{
+					for (int row = 0; row < 3; ++row)
+					{
+						rotations[9 * index + 3 * row + column] = axes[column][row];
+					}
+				}
+			}
+			if ((fields & PointingBatch.BORESIGHT) != 0)
+				System.arraycopy(BORESIGHT, 0, batch.getBoresights(), 3 * index, 3);
+			if ((fields & PointingBatch.UP_DIRECTION) != 0)
+				System.arraycopy(UP_DIRECTION, 0, batch.getUpDirections(), 3 * index, 3);
+			if ((fields & PointingBatch.FRUSTUM) != 0)
+				Arrays.fill(batch.getFrustums(), 12 * index, 12 * (index + 1), Double.NaN);
+		}
+	}
+
 	public String[] getInstrumentNames()
 	{
 		return new String[] {};
@@ -13,12 +13,12 @@ import com.google.common.base.Preconditions;
 import edu.jhuapl.sbmt.core.util.TimeUtil;
 import edu.jhuapl.sbmt.pointing.InstrumentPointing;
 import edu.jhuapl.sbmt.pointing.State;
+import edu.jhuapl.sbmt.pointing.spice.SpiceIdRegistry;
 import edu.jhuapl.sbmt.pointing.spice.SpicePointingProvider;
 import picante.math.vectorspace.UnwritableMatrixIJK;
 import picante.math.vectorspace.UnwritableVectorIJK;
 import picante.mechanics.EphemerisID;
 import picante.mechanics.providers.lockable.LockableFrameLinkEvaluationException;
-import picante.mechanics.utilities.SimpleEphemerisID;
 
 /**
  * @author steelrj1
@@ -40,6 +40,13 @@ public class SpiceState implements State
 
     private SpicePointingProvider pointingProvider;
 
+    /**
+     * Whether the spacecraft pointing is covered by the kernels at the state
+     * time; if not, the orientation getters return defaults without
+     * attempting (and failing) to compute the orientation
+     */
+    private boolean scCovered;
+
 	/**
 	 *
 	 */
@@ -63,6 +70,10 @@ public class SpiceState implements State
 	public double[] getInstrumentLookDirection(String instrumentName)
 	{
 		Preconditions.checkNotNull(ephemerisTime);
+		if (!pointingProvider.isCovered(instrumentName, ephemerisTime))
+		{
+			return new double[] {0.0, 0.0, 0.0};
+		}
 		InstrumentPointing pointing = pointingProvider.provide(instrumentName, ephemerisTime);
 		try {
 			UnwritableVectorIJK boresight = pointing.getBoresight().createNegated();
@@ -79,9 +90,13 @@ public class SpiceState implements State
 	public UnwritableVectorIJK getFrustum(String instrumentName, int index)
 	{
 		Preconditions.checkNotNull(ephemerisTime);
+		if (!pointingProvider.isCovered(instrumentName, ephemerisTime))
+		{
+			return new UnwritableVectorIJK(0, 0, 0);
+		}
 		InstrumentPointing pointing = pointingProvider.provide(instrumentName, ephemerisTime);
 		try {
-			return pointing.getFrustum().get(index);
+			return pointing.getFrustumCorner(index);
 		}
 		catch (LockableFrameLinkEvaluationException le) {
 			return new UnwritableVectorIJK(0, 0, 0);
@@ -116,7 +131,7 @@ public class SpiceState implements State
 	{
 		Preconditions.checkNotNull(ephemerisTime);
 		Preconditions.checkNotNull(pointing);
-		EphemerisID earth = new SimpleEphemerisID("EARTH");
+		EphemerisID earth = SpiceIdRegistry.getEphemerisId("EARTH");
 		return new double[] { pointing.getPosition(earth).getI(),
 	  			  pointing.getPosition(earth).getJ(),
 	  			  pointing.getPosition(earth).getK()
@@ -129,7 +144,7 @@ public class SpiceState implements State
 	{
 		Preconditions.checkNotNull(ephemerisTime);
 		Preconditions.checkNotNull(pointing);
-		EphemerisID sun = new SimpleEphemerisID("SUN");
+		EphemerisID sun = SpiceIdRegistry.getEphemerisId("SUN");
 		return new double[] { pointing.getPosition(sun).getI(),
 	  			  pointing.getPosition(sun).getJ(),
 	  			  pointing.getPosition(sun).getK()
@@ -142,6 +157,10 @@ public class SpiceState implements State
 	{
 		Preconditions.checkNotNull(ephemerisTime);
 		Preconditions.checkNotNull(pointing);
+		if (!scCovered)
+		{
+			return new double[][] {{1.0, 0.0, 0.0}, {0.0, 1.0, 0.0}, {0.0, 0.0, 1.0}};
+		}
 		double[][] scAxes = new double[3][3];
 		try {
 			UnwritableMatrixIJK scRotation = pointing.getScRotation();
@@ -162,6 +181,10 @@ public class SpiceState implements State
 	{
 		Preconditions.checkNotNull(ephemerisTime);
 		Preconditions.checkNotNull(pointing);
+		if (!scCovered)
+		{
+			return new double[] {1.0, 0.0, 0.0};
+		}
 		double[] xAxis = new double[3];
 		try {
 			xAxis[0] = pointing.getScRotation().getColumn(0).getI();
@@ -180,6 +203,10 @@ public class SpiceState implements State
 	{
 		Preconditions.checkNotNull(ephemerisTime);
 		Preconditions.checkNotNull(pointing);
+		if (!scCovered)
+		{
+			return new double[] {0.0, 1.0, 0.0};
+		}
 		double[] yAxis = new double[3];
 		try {
 			yAxis[0] = pointing.getScRotation().getColumn(1).getI();
@@ -198,6 +225,10 @@ public class SpiceState implements State
 	{
 		Preconditions.checkNotNull(ephemerisTime);
 		Preconditions.checkNotNull(pointing);
+		if (!scCovered)
+		{
+			return new double[] {0.0, 0.0, 1.0};
+		}
 		double[] zAxis = new double[3];
 		try {
 			zAxis[0] = pointing.getScRotation().getColumn(2).getI();
@@ -219,6 +250,7 @@ public class SpiceState implements State
 		this.ephemerisTime = ephemerisTime;
 		this.utc = TimeUtil.et2str(ephemerisTime);
 		this.pointing = pointingProvider.provide(ephemerisTime);
+		this.scCovered = pointingProvider.getScCoverage().isCovered(ephemerisTime);
 	}
 
 	/**
@@ -0,0 +1,413 @@
+package edu.jhuapl.sbmt.pointing.spice;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import com.google.common.base.Preconditions;
+
+import picante.math.intervals.Interval;
+import picante.mechanics.Coverage;
+import picante.mechanics.EphemerisID;
+import picante.mechanics.FrameID;
+import picante.mechanics.FrameTransformFunction;
+import picante.mechanics.PositionVectorFunction;
+
+/**
+ * Immutable set of time intervals over which SPICE data are available, stored
+ * as a sorted array of disjoint closed intervals, so that checking whether a
+ * time is covered is a binary search that neither throws nor allocates.
+ * <p>
+ * Indexes are built from the coverage of the individual SPK and CK segments
+ * (and other ephemeris and frame sources) in a SPICE environment. The coverage
+ * of a frame is the union, over all sources that transform from the frame, of
+ * the source's coverage intersected with the coverage of the frame it
+ * transforms to, recursively, with frames that are not transformed by any
+ * source (such as J2000) covered for all time. The coverage of a body is
+ * computed the same way from the ephemeris sources that give its position.
+ * This is the set of times for which some chain of sources links the frame (or
+ * body) to the root of the frame (or ephemeris) tree.
+ */
+public final class CoverageIndex
+{
+    /**
+     * Index that covers all times.
+     */
+    public static final CoverageIndex ALL_TIME = new CoverageIndex(new double[] { Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY });
+
+    /**
+     * Index that covers no times.
+     */
+    public static final CoverageIndex NONE = new CoverageIndex(new double[0]);
+
+    // Protects against pathological coverages that never run out of intervals.
+    private static final int MAXIMUM_INTERVALS = 1 << 20;
+
+    /**
+     * Create an index of the specified intervals, which need not be sorted or
+     * disjoint.
+     *
+     * @param bounds the begin and end of each interval, in pairs
+     * @return the index
+     */
+    static CoverageIndex of(double... bounds)
+    {
+        Preconditions.checkNotNull(bounds);
+        Preconditions.checkArgument(bounds.length % 2 == 0, "Coverage bounds must be in begin/end pairs");
+
+        return new CoverageIndex(normalize(bounds.clone(), bounds.length));
+    }
+
+    /**
+     * Create an index of the intervals of the specified coverage.
+     *
+     * @param coverage the coverage
+     * @return the index
+     */
+    static CoverageIndex of(Coverage coverage)
+    {
+        Preconditions.checkNotNull(coverage);
+
+        if (coverage == Coverage.ALL_TIME)
+        {
+            return ALL_TIME;
+        }
+
+        Interval interval = new Interval();
+        coverage.getBoundingInterval(interval);
+
+        double[] bounds = new double[16];
+        int length = 0;
+
+        double cursor = interval.getBegin();
+        double lastBegin = Double.NEGATIVE_INFINITY;
+        if (coverage.contains(cursor))
+        {
+            coverage.getBracketingInterval(cursor, interval);
+            bounds[length++] = interval.getBegin();
+            bounds[length++] = interval.getEnd();
+            lastBegin = interval.getBegin();
+            cursor = interval.getEnd();
+        }
+
+        while (length < 2 * MAXIMUM_INTERVALS)
+        {
+            // Probe just before the end of the last interval, so that an
+            // interval beginning exactly where the last one ends is found.
+            double probe = Math.nextDown(cursor);
+            if (!coverage.hasNextInterval(probe))
+            {
+                break;
+            }
+            coverage.getNextInterval(probe, interval);
+            if (interval.getBegin() <= lastBegin)
+            {
+                if (!coverage.hasNextInterval(cursor))
+                {
+                    break;
+                }
+                coverage.getNextInterval(cursor, interval);
+                if (interval.getBegin() <= lastBegin)
+                {
+                    break;
+                }
+            }
+
+            if (length == bounds.length)
+            {
+                bounds = Arrays.copyOf(bounds, 2 * length);
+            }
+            bounds[length++] = interval.getBegin();
+            bounds[length++] = interval.getEnd();
+            lastBegin = interval.getBegin();
+            cursor = Math.max(cursor, interval.getEnd());
+        }
+
+        return new CoverageIndex(normalize(bounds, length));
+    }
+
+    /**
+     * Compute the coverage of the specified frame from the frame sources of a
+     * SPICE environment (see the class description).
+     *
+     * @param frame the frame
+     * @param sources the frame sources
+     * @return the index
+     */
+    static CoverageIndex ofFrame(FrameID frame, List<? extends FrameTransformFunction> sources)
+    {
+        Preconditions.checkNotNull(frame);
+        Preconditions.checkNotNull(sources);
+
+        Map<FrameID, List<FrameTransformFunction>> sourcesByFrame = new HashMap<>();
+        for (FrameTransformFunction source : sources)
+        {
+            sourcesByFrame.computeIfAbsent(source.getFromID(), f -> new ArrayList<>()).add(source);
+        }
+
+        return ofNode(frame, sourcesByFrame, FrameTransformFunction::getToID, FrameTransformFunction::getCoverage, new HashMap<>());
+    }
+
+    /**
+     * Compute the coverage of the position of the specified body from the
+     * ephemeris sources of a SPICE environment (see the class description).
+     *
+     * @param body the body
+     * @param sources the ephemeris sources
+     * @return the index
+     */
+    static CoverageIndex ofBody(EphemerisID body, List<? extends PositionVectorFunction> sources)
+    {
+        Preconditions.checkNotNull(body);
+        Preconditions.checkNotNull(sources);
+
+        Map<EphemerisID, List<PositionVectorFunction>> sourcesByBody = new HashMap<>();
+        for (PositionVectorFunction source : sources)
+        {
+            sourcesByBody.computeIfAbsent(source.getTargetID(), b -> new ArrayList<>()).add(source);
+        }
+
+        return ofNode(body, sourcesByBody, PositionVectorFunction::getObserverID, PositionVectorFunction::getCoverage, new HashMap<>());
+    }
+
+    private static <N, S> CoverageIndex ofNode(N node, Map<N, List<S>> sourcesByNode, Function<S, N> parent, Function<S, Coverage> coverage, Map<N, CoverageIndex> visited)
+    {
+        CoverageIndex result = visited.get(node);
+        if (result != null)
+        {
+            return result;
+        }
+
+        List<S> sources = sourcesByNode.get(node);
+        if (sources == null)
+        {
+            // A root of the tree.
+            return ALL_TIME;
+        }
+
+        // Guard against cycles: a node reached again through its own chain
+        // contributes nothing.
+        visited.put(node, NONE);
+
+        result = NONE;
+        for (S source : sources)
+        {
+            CoverageIndex sourceCoverage = of(coverage.apply(source));
+            if (sourceCoverage.isEmpty())
+            {
+                continue;
+            }
+            result = result.union(sourceCoverage.intersect(ofNode(parent.apply(source), sourcesByNode, parent, coverage, visited)));
+        }
+
+        visited.put(node, result);
+
+        return result;
+    }
+
+    private final double[] bounds;
+
+    private CoverageIndex(double[] bounds)
+    {
+        this.bounds = bounds;
+    }
+
+    /**
+     * Return whether the specified time falls in one of the intervals.
+     *
+     * @param time the time, TDB
+     * @return true if the time is covered
+     */
+    public boolean isCovered(double time)
+    {
+        // Find the number of interval begins <= time.
+        int low = 0;
+        int high = bounds.length / 2;
+        while (low < high)
+        {
+            int middle = (low + high) >>> 1;
+            if (bounds[2 * middle] <= time)
+            {
+                low = middle + 1;
+            }
+            else
+            {
+                high = middle;
+            }
+        }
+
+        return low > 0 && time <= bounds[2 * low - 1];
+    }
+
+    /**
+     * Fill the mask with the coverage of each of the specified times.
+     *
+     * @param times the times, TDB, in any order
+     * @param mask the array to receive the coverage of each time, which must
+     *            be at least as long as the times
+     * @return the mask
+     */
+    public boolean[] getCoverageMask(double[] times, boolean[] mask)
+    {
+        Preconditions.checkArgument(mask.length >= times.length, "Coverage mask is too short");
+
+        for (int index = 0; index < times.length; ++index)
+        {
+            mask[index] = isCovered(times[index]);
+        }
+
+        return mask;
+    }
+
+    /**
+     * @return true if no time is covered
+     */
+    public boolean isEmpty()
+    {
+        return bounds.length == 0;
+    }
+
+    /**
+     * @return the number of disjoint intervals
+     */
+    public int getIntervalCount()
+    {
+        return bounds.length / 2;
+    }
+
+    /**
+     * @param index the index of the interval, in order of time
+     * @return the beginning of the interval
+     */
+    public double getBegin(int index)
+    {
+        Preconditions.checkElementIndex(index, getIntervalCount());
+
+        return bounds[2 * index];
+    }
+
+    /**
+     * @param index the index of the interval, in order of time
+     * @return the end of the interval
+     */
+    public double getEnd(int index)
+    {
+        Preconditions.checkElementIndex(index, getIntervalCount());
+
+        return bounds[2 * index + 1];
+    }
+
+    /**
+     * @param other another index
+     * @return the index of times covered by either index
+     */
+    CoverageIndex union(CoverageIndex other)
+    {
+        if (other.isEmpty() || this == ALL_TIME)
+        {
+            return this;
+        }
+        if (isEmpty() || other == ALL_TIME)
+        {
+            return other;
+        }
+
+        double[] combined = Arrays.copyOf(bounds, bounds.length + other.bounds.length);
+        System.arraycopy(other.bounds, 0, combined, bounds.length, other.bounds.length);
+
+        return new CoverageIndex(normalize(combined, combined.length));
+    }
+
+    /**
+     * @param other another index
+     * @return the index of times covered by both indexes
+     */
+    CoverageIndex intersect(CoverageIndex other)
+    {
+        if (other == ALL_TIME || isEmpty())
+        {
+            return this;
+        }
+        if (this == ALL_TIME || other.isEmpty())
+        {
+            return other;
+        }
+
+        double[] result = new double[bounds.length + other.bounds.length];
+        int length = 0;
+        int i = 0;
+        int j = 0;
+        while (i < bounds.length && j < other.bounds.length)
+        {
+            double begin = Math.max(bounds[i], other.bounds[j]);
+            double end = Math.min(bounds[i + 1], other.bounds[j + 1]);
+            if (begin <= end)
+            {
+                result[length++] = begin;
+                result[length++] = end;
+            }
+
+            // Advance whichever interval ends first.
+            if (bounds[i + 1] < other.bounds[j + 1])
+            {
+                i += 2;
+            }
+            else
+            {
+                j += 2;
+            }
+        }
+
+        return new CoverageIndex(Arrays.copyOf(result, length));
+    }
+
+    @Override
+    public String toString()
+    {
+        return "CoverageIndex[" + getIntervalCount() + " intervals]";
+    }
+
+    /**
+     * Sort the first length bounds by begin and merge overlapping or adjacent
+     * intervals, discarding invalid ones.
+     */
+    private static double[] normalize(double[] bounds, int length)
+    {
+        int count = length / 2;
+        Integer[] indices = new Integer[count];
+        for (int index = 0; index < count; ++index)
+        {
+            indices[index] = index;
+        }
+        Arrays.sort(indices, (a, b) -> Double.compare(bounds[2 * a], bounds[2 * b]));
+
+        double[] result = new double[length];
+        int resultLength = 0;
+        for (int sorted = 0; sorted < count; ++sorted)
+        {
+            int index = indices[sorted];
+            double begin = bounds[2 * index];
+            double end = bounds[2 * index + 1];
+            if (!(begin <= end))
+            {
+                continue;
+            }
+
+            if (resultLength > 0 && begin <= result[resultLength - 1])
+            {
+                result[resultLength - 1] = Math.max(result[resultLength - 1], end);
+            }
+            else
+            {
+                result[resultLength++] = begin;
+                result[resultLength++] = end;
+            }
+        }
+
+        return Arrays.copyOf(result, resultLength);
+    }
+
+}
@@ -0,0 +1,106 @@
+package edu.jhuapl.sbmt.pointing.spice;
+
+import java.util.List;
+
+import com.google.common.collect.ImmutableList;
+
+import edu.jhuapl.sbmt.pointing.AbstractInstrumentPointing;
+import picante.math.vectorspace.UnwritableRotationMatrixIJK;
+import picante.math.vectorspace.UnwritableVectorIJK;
+import picante.mechanics.FrameID;
+
+/**
+ * Immutable field-of-view geometry of one instrument, expressed in the
+ * instrument frame. None of these quantities depend on time, so
+ * {@link SpicePointingProvider} resolves them from the kernel pool once per
+ * instrument and shares them among all the pointings it creates for that
+ * instrument.
+ * <p>
+ * All vectors are unit vectors. The frustum corners are in the order expected
+ * by SBMT (see {@link SpicePointingProvider#createInstrumentFov(FrameID, int)}).
+ * <p>
+ * If the instrument frame is a fixed offset from the spacecraft frame, the
+ * constant rotation between them is also kept, so that the instrument
+ * rotation at any epoch can be computed from the spacecraft attitude alone.
+ */
+final class InstrumentFov
+{
+    private final int instCode;
+    private final FrameID instFrame;
+    private final UnwritableVectorIJK boresight;
+    private final UnwritableVectorIJK upDir;
+    private final ImmutableList<UnwritableVectorIJK> frustum;
+    private final UnwritableRotationMatrixIJK toScRotation;
+
+    InstrumentFov(int instCode, FrameID instFrame, UnwritableVectorIJK boresight, UnwritableVectorIJK upDir, List<UnwritableVectorIJK> frustum)
+    {
+        this(instCode, instFrame, boresight, upDir, frustum, null);
+    }
+
+    InstrumentFov(int instCode, FrameID instFrame, UnwritableVectorIJK boresight, UnwritableVectorIJK upDir, List<UnwritableVectorIJK> frustum, UnwritableRotationMatrixIJK toScRotation)
+    {
+        ImmutableList.Builder<UnwritableVectorIJK> builder = ImmutableList.builder();
+        for (UnwritableVectorIJK corner : frustum)
+        {
+            builder.add(AbstractInstrumentPointing.normalize(corner));
+        }
+
+        this.instCode = instCode;
+        this.instFrame = instFrame;
+        this.boresight = AbstractInstrumentPointing.normalize(boresight);
+        this.upDir = AbstractInstrumentPointing.normalize(upDir);
+        this.frustum = builder.build();
+        this.toScRotation = toScRotation != null ? UnwritableRotationMatrixIJK.copyOf(toScRotation) : null;
+    }
+
+    /**
+     * @return the NAIF integer code of the instrument
+     */
+    int getInstCode()
+    {
+        return instCode;
+    }
+
+    /**
+     * @return the frame in which the FOV vectors are defined
+     */
+    FrameID getInstFrame()
+    {
+        return instFrame;
+    }
+
+    /**
+     * @return the unit boresight vector in the instrument frame
+     */
+    UnwritableVectorIJK getBoresight()
+    {
+        return boresight;
+    }
+
+    /**
+     * @return the unit "up" vector in the instrument frame
+     */
+    UnwritableVectorIJK getUpDirection()
+    {
+        return upDir;
+    }
+
+    /**
+     * @return the unit frustum corner vectors in the instrument frame
+     */
+    ImmutableList<UnwritableVectorIJK> getFrustum()
+    {
+        return frustum;
+    }
+
+    /**
+     * @return the constant rotation from the instrument frame to the
+     *         spacecraft frame, or null if the instrument frame is not a fixed
+     *         offset from the spacecraft frame
+     */
+    UnwritableRotationMatrixIJK getToScRotation()
+    {
+        return toScRotation;
+    }
+
+}
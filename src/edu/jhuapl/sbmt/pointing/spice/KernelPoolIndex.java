@@ -0,0 +1,370 @@
+package edu.jhuapl.sbmt.pointing.spice;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.base.Preconditions;
+
+import picante.spice.kernelpool.UnwritableKernelPool;
+
+/**
+ * Index over the keywords of an {@link UnwritableKernelPool}, built in one
+ * pass. Every value is fetched from the pool once and stored in a primitive
+ * array, and the keywords that describe instruments, frames and bodies are
+ * grouped by their integer codes, so that repeated lookups neither scan the
+ * keywords nor convert values again:
+ * <ul>
+ * <li>instruments: the code, FOV frame name and (optional) name of each
+ * instrument with an INSnnn_FOV_FRAME keyword, in the pool's keyword
+ * order</li>
+ * <li>frames: the codes of the frames defined by FRAME_name keywords, and the
+ * names defined by FRAME_nnn_NAME keywords</li>
+ * <li>bodies: the BODYnnn_item constants, by body code and item</li>
+ * </ul>
+ * All the arrays returned by this class are shared and must not be modified.
+ */
+final class KernelPoolIndex
+{
+    private static final String INS_PREFIX = "INS";
+    private static final String FOV_FRAME_SUFFIX = "_FOV_FRAME";
+    private static final String NAME_SUFFIX = "_NAME";
+    private static final String FRAME_PREFIX = "FRAME_";
+    private static final String BODY_PREFIX = "BODY";
+    private static final String TKFRAME_PREFIX = "TKFRAME_";
+    private static final String CLASS_SUFFIX = "_CLASS";
+    private static final String RELATIVE_SUFFIX = "_RELATIVE";
+    // Frame class of text kernel (fixed offset) frames.
+    private static final int TK_FRAME_CLASS = 4;
+    // Protects against circular frame definitions.
+    private static final int MAXIMUM_FRAME_CHAIN = 64;
+
+    /**
+     * Build an index of all the keywords in the specified pool.
+     *
+     * @param pool the kernel pool
+     * @return the index
+     */
+    static KernelPoolIndex of(UnwritableKernelPool pool)
+    {
+        Preconditions.checkNotNull(pool);
+
+        return new KernelPoolIndex(pool);
+    }
+
+    private final Map<String, double[]> numericValues;
+    private final Map<String, String[]> stringValues;
+    private final int[] instrumentIds;
+    private final String[] instrumentFovFrames;
+    private final String[] instrumentNames;
+    private final Map<String, Integer> frameCodes;
+    private final Map<Integer, String> frameNames;
+    private final Map<Integer, Map<String, double[]>> bodyConstants;
+
+    private KernelPoolIndex(UnwritableKernelPool pool)
+    {
+        this.numericValues = new HashMap<>();
+        this.stringValues = new HashMap<>();
+        this.frameCodes = new HashMap<>();
+        this.frameNames = new HashMap<>();
+        this.bodyConstants = new HashMap<>();
+
+        int instrumentCount = 0;
+        int[] ids = new int[16];
+        String[] fovFrames = new String[ids.length];
+
+        for (String keyword : pool.getKeywords())
+        {
+            if (pool.isStringValued(keyword))
+            {
+                List<String> strings = pool.getStrings(keyword);
+                String[] values = strings.toArray(new String[strings.size()]);
+                stringValues.put(keyword, values);
+
+                if (keyword.startsWith(INS_PREFIX) && keyword.endsWith(FOV_FRAME_SUFFIX))
+                {
+                    Integer id = parseCode(keyword, INS_PREFIX.length(), keyword.length() - FOV_FRAME_SUFFIX.length());
+                    if (id != null)
+                    {
+                        if (instrumentCount == ids.length)
+                        {
+                            ids = Arrays.copyOf(ids, 2 * instrumentCount);
+                            fovFrames = Arrays.copyOf(fovFrames, 2 * instrumentCount);
+                        }
+                        ids[instrumentCount] = id;
+                        fovFrames[instrumentCount] = values.length > 0 ? values[0] : null;
+                        ++instrumentCount;
+                    }
+                }
+                else if (keyword.startsWith(FRAME_PREFIX) && keyword.endsWith(NAME_SUFFIX) && values.length > 0)
+                {
+                    Integer code = parseCode(keyword, FRAME_PREFIX.length(), keyword.length() - NAME_SUFFIX.length());
+                    if (code != null)
+                    {
+                        frameNames.put(code, values[0]);
+                    }
+                }
+            }
+            else if (pool.isDoubleValued(keyword))
+            {
+                List<Double> doubles = pool.getDoubles(keyword);
+                double[] values = new double[doubles.size()];
+                for (int index = 0; index < values.length; ++index)
+                {
+                    values[index] = doubles.get(index);
+                }
+                numericValues.put(keyword, values);
+
+                if (keyword.startsWith(BODY_PREFIX))
+                {
+                    int separator = keyword.indexOf('_', BODY_PREFIX.length());
+                    Integer code = separator > 0 ? parseCode(keyword, BODY_PREFIX.length(), separator) : null;
+                    if (code != null)
+                    {
+                        bodyConstants.computeIfAbsent(code, c -> new HashMap<>()).put(keyword.substring(separator + 1), values);
+                    }
+                }
+                else if (keyword.startsWith(FRAME_PREFIX) && values.length == 1 && !isFrameItem(keyword))
+                {
+                    // FRAME_<name> = <code>, as opposed to FRAME_<code>_<item>.
+                    frameCodes.put(keyword.substring(FRAME_PREFIX.length()), (int) Math.round(values[0]));
+                }
+            }
+        }
+
+        this.instrumentIds = Arrays.copyOf(ids, instrumentCount);
+        this.instrumentFovFrames = Arrays.copyOf(fovFrames, instrumentCount);
+        this.instrumentNames = new String[instrumentCount];
+        for (int index = 0; index < instrumentCount; ++index)
+        {
+            String[] names = stringValues.get(INS_PREFIX + instrumentIds[index] + NAME_SUFFIX);
+            instrumentNames[index] = names != null && names.length > 0 && !names[0].isBlank() ? names[0] : null;
+        }
+    }
+
+    /**
+     * @return the number of instruments that have an FOV frame
+     */
+    int getInstrumentCount()
+    {
+        return instrumentIds.length;
+    }
+
+    /**
+     * @param index index of the instrument, from 0 to
+     *            {@link #getInstrumentCount()} - 1
+     * @return the instrument's integer code
+     */
+    int getInstrumentId(int index)
+    {
+        return instrumentIds[index];
+    }
+
+    /**
+     * @param index index of the instrument, from 0 to
+     *            {@link #getInstrumentCount()} - 1
+     * @return the name of the instrument's FOV frame, or null if the
+     *         INSnnn_FOV_FRAME keyword has no values
+     */
+    String getInstrumentFovFrame(int index)
+    {
+        return instrumentFovFrames[index];
+    }
+
+    /**
+     * @param index index of the instrument, from 0 to
+     *            {@link #getInstrumentCount()} - 1
+     * @return the instrument's name, from its INSnnn_NAME keyword, or null if
+     *         that is missing or blank
+     */
+    String getInstrumentName(int index)
+    {
+        return instrumentNames[index];
+    }
+
+    /**
+     * @param keyword the keyword
+     * @return true if the pool has values of any type for the keyword
+     */
+    boolean hasKeyword(String keyword)
+    {
+        return numericValues.containsKey(keyword) || stringValues.containsKey(keyword);
+    }
+
+    /**
+     * @param keyword the keyword
+     * @return the numeric values, or null if the keyword has none
+     */
+    double[] getDoubles(String keyword)
+    {
+        return numericValues.get(keyword);
+    }
+
+    /**
+     * Return the numeric values of the specified keyword, rounded to the
+     * nearest integers, as is done by the SPICE kernel pool.
+     *
+     * @param keyword the keyword
+     * @return the values (a new array), or null if the keyword has none
+     */
+    int[] getIntegers(String keyword)
+    {
+        double[] values = numericValues.get(keyword);
+        if (values == null)
+        {
+            return null;
+        }
+
+        int[] result = new int[values.length];
+        for (int index = 0; index < values.length; ++index)
+        {
+            result[index] = (int) Math.round(values[index]);
+        }
+
+        return result;
+    }
+
+    /**
+     * @param keyword the keyword
+     * @return the string values, or null if the keyword has none
+     */
+    String[] getStrings(String keyword)
+    {
+        return stringValues.get(keyword);
+    }
+
+    /**
+     * @param frameName the frame name
+     * @return the frame code from the FRAME_name keyword, or null if absent
+     */
+    Integer getFrameCode(String frameName)
+    {
+        return frameCodes.get(frameName);
+    }
+
+    /**
+     * @param frameCode the frame code
+     * @return the frame name from the FRAME_nnn_NAME keyword, or null if
+     *         absent
+     */
+    String getFrameName(int frameCode)
+    {
+        return frameNames.get(frameCode);
+    }
+
+    /**
+     * Return whether the orientation of one frame relative to another is
+     * constant, because the first frame is a text kernel (class 4) frame
+     * defined relative to the second, either directly or through a chain of
+     * other text kernel frames, as given by their TKFRAME_id_RELATIVE (or
+     * TKFRAME_name_RELATIVE) keywords. A frame is also fixed relative to
+     * itself.
+     *
+     * @param fromFrame the name of the first frame
+     * @param toFrame the name of the second frame
+     * @return true if the offset between the frames is fixed
+     */
+    boolean isFixedOffset(String fromFrame, String toFrame)
+    {
+        String frame = fromFrame;
+        for (int depth = 0; depth < MAXIMUM_FRAME_CHAIN; ++depth)
+        {
+            if (frame.equalsIgnoreCase(toFrame))
+            {
+                return true;
+            }
+
+            Integer code = getFrameCode(frame);
+            if (code == null)
+            {
+                return false;
+            }
+
+            double[] frameClass = getDoubles(FRAME_PREFIX + code + CLASS_SUFFIX);
+            if (frameClass == null || frameClass.length != 1 || Math.round(frameClass[0]) != TK_FRAME_CLASS)
+            {
+                return false;
+            }
+
+            String[] relative = getStrings(TKFRAME_PREFIX + code + RELATIVE_SUFFIX);
+            if (relative == null)
+            {
+                relative = getStrings(TKFRAME_PREFIX + frame + RELATIVE_SUFFIX);
+            }
+            if (relative == null || relative.length == 0)
+            {
+                return false;
+            }
+
+            frame = relative[0].trim();
+        }
+
+        return false;
+    }
+
+    /**
+     * Return a constant of the specified body, for example item "RADII" for
+     * keyword BODY499_RADII.
+     *
+     * @param bodyCode the body's integer code
+     * @param item the item
+     * @return the values, or null if absent
+     */
+    double[] getBodyConstant(int bodyCode, String item)
+    {
+        Map<String, double[]> constants = bodyConstants.get(bodyCode);
+
+        return constants != null ? constants.get(item) : null;
+    }
+
+    /**
+     * Return whether a FRAME_ keyword is one of the per-frame items
+     * (FRAME_nnn_CLASS, etc.) rather than a name-to-code assignment. Frame
+     * names may themselves contain underscores, so the code between the
+     * prefix and the item must be checked.
+     */
+    private static boolean isFrameItem(String keyword)
+    {
+        int separator = keyword.indexOf('_', FRAME_PREFIX.length());
+
+        return separator > 0 && parseCode(keyword, FRAME_PREFIX.length(), separator) != null;
+    }
+
+    /**
+     * Parse the (possibly negative) integer code between the specified
+     * indices, returning null if the characters there are not an integer.
+     */
+    private static Integer parseCode(String keyword, int begin, int end)
+    {
+        if (end <= begin)
+        {
+            return null;
+        }
+
+        int index = begin;
+        boolean negative = keyword.charAt(index) == '-';
+        if (negative && ++index == end)
+        {
+            return null;
+        }
+
+        long value = 0;
+        for (; index < end; ++index)
+        {
+            char c = keyword.charAt(index);
+            if (c < '0' || c > '9')
+            {
+                return null;
+            }
+            value = 10 * value + (c - '0');
+            if (value > Integer.MAX_VALUE)
+            {
+                return null;
+            }
+        }
+
+        return (int) (negative ? -value : value);
+    }
+
+}
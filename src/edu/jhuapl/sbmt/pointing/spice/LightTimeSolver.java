@@ -0,0 +1,188 @@
+package edu.jhuapl.sbmt.pointing.spice;
+
+import com.google.common.base.Preconditions;
+
+import picante.math.vectorspace.UnwritableVectorIJK;
+import picante.math.vectorspace.VectorIJK;
+import picante.mechanics.StateVector;
+import picante.mechanics.StateVectorFunction;
+import picante.mechanics.providers.aberrated.AberrationCorrection;
+
+/**
+ * Light-time corrected position of a target relative to an observer, solved
+ * from the geometric states of both relative to the solar system barycenter in
+ * an inertial frame. Each solution is warm-started from the solution at the
+ * previous epoch: the light time is extrapolated from the previous epoch's
+ * light time and its rate of change (from the relative velocity along the line
+ * of sight), and the target is evaluated once, at the extrapolated time. The
+ * first epoch, and any epoch more than {@link #MAXIMUM_WARM_START_GAP} seconds
+ * from the previous one, is solved from the geometric light time with one
+ * iteration, as for SPICE's LT correction.
+ * <p>
+ * For time-ordered queries this saves an evaluation of the target ephemeris
+ * per epoch, and the light time is closer to the converged solution than a
+ * single iteration from the geometric light time.
+ * <p>
+ * Instances are not thread safe; each belongs to the {@link SpiceFunctions} of
+ * one thread.
+ */
+final class LightTimeSolver
+{
+    /**
+     * Speed of light, in km/s.
+     */
+    static final double SPEED_OF_LIGHT = 299792.458;
+
+    /**
+     * Maximum time in seconds between consecutive epochs for the light time to
+     * be extrapolated from the previous epoch.
+     */
+    static final double MAXIMUM_WARM_START_GAP = 3600.;
+
+    private final StateVectorFunction targetFromSsb;
+    private final StateVectorFunction observerFromSsb;
+    private final boolean stellarAberration;
+    private final StateVector observerState;
+    private final StateVector targetState;
+    private final VectorIJK targetPosition;
+    private boolean warm;
+    private double previousTime;
+    private double previousLightTime;
+    private double lightTimeRate;
+
+    /**
+     * @param targetFromSsb the geometric state of the target relative to the
+     *            solar system barycenter, in an inertial frame
+     * @param observerFromSsb the geometric state of the observer relative to
+     *            the solar system barycenter, in the same frame
+     * @param correction the correction, either {@link AberrationCorrection#LT}
+     *            or {@link AberrationCorrection#LT_S}
+     */
+    LightTimeSolver(StateVectorFunction targetFromSsb, StateVectorFunction observerFromSsb, AberrationCorrection correction)
+    {
+        Preconditions.checkArgument(correction == AberrationCorrection.LT || correction == AberrationCorrection.LT_S, "Cannot solve light time for correction " + correction);
+
+        this.targetFromSsb = Preconditions.checkNotNull(targetFromSsb);
+        this.observerFromSsb = Preconditions.checkNotNull(observerFromSsb);
+        this.stellarAberration = correction == AberrationCorrection.LT_S;
+        this.observerState = new StateVector();
+        this.targetState = new StateVector();
+        this.targetPosition = new VectorIJK();
+        this.warm = false;
+    }
+
+    /**
+     * Compute the corrected position of the target relative to the observer
+     * at the specified time.
+     *
+     * @param time the time at the observer, TDB
+     * @param position buffer to receive the position, in the frame of the
+     *            functions
+     * @return the light time in seconds, that is, the target position is that
+     *         at time - light time
+     */
+    double solve(double time, VectorIJK position)
+    {
+        observerFromSsb.getState(time, observerState);
+        UnwritableVectorIJK observerPosition = observerState.getPosition();
+
+        double gap = time - previousTime;
+        boolean warmStart = warm && Math.abs(gap) <= MAXIMUM_WARM_START_GAP;
+
+        double lightTime;
+        if (warmStart)
+        {
+            lightTime = previousLightTime + lightTimeRate * gap;
+        }
+        else
+        {
+            targetFromSsb.getPosition(time, targetPosition);
+            lightTime = VectorIJK.subtract(targetPosition, observerPosition, position).getLength() / SPEED_OF_LIGHT;
+        }
+
+        targetFromSsb.getState(time - lightTime, targetState);
+        VectorIJK.subtract(targetState.getPosition(), observerPosition, position);
+
+        // The distance at the corrected time refines the light time, and the
+        // relative velocity along the line of sight gives its rate of change;
+        // these seed the next epoch, but the position returned is the one at
+        // the time actually evaluated.
+        double distance = position.getLength();
+        UnwritableVectorIJK targetVelocity = targetState.getVelocity();
+        UnwritableVectorIJK observerVelocity = observerState.getVelocity();
+        double rangeRate = distance > 0. ? ((targetVelocity.getI() - observerVelocity.getI()) * position.getI() + (targetVelocity.getJ() - observerVelocity.getJ()) * position.getJ() + (targetVelocity.getK() - observerVelocity.getK()) * position.getK()) / distance : 0.;
+
+        previousTime = time;
+        previousLightTime = distance / SPEED_OF_LIGHT;
+        lightTimeRate = rangeRate / SPEED_OF_LIGHT;
+        warm = true;
+
+        if (stellarAberration)
+        {
+            correctStellarAberration(position, observerVelocity);
+        }
+
+        return lightTime;
+    }
+
+    /**
+     * Forget the previous epoch, so that the next solution starts from the
+     * geometric light time.
+     */
+    void reset()
+    {
+        warm = false;
+    }
+
+    /**
+     * Rotate the position towards the observer's velocity by the stellar
+     * aberration angle, as SPICE's STELAB does.
+     *
+     * @param position the position to correct
+     * @param observerVelocity the velocity of the observer relative to the
+     *            solar system barycenter
+     */
+    static void correctStellarAberration(VectorIJK position, UnwritableVectorIJK observerVelocity)
+    {
+        double length = position.getLength();
+        if (length == 0.)
+        {
+            return;
+        }
+
+        double pi = position.getI();
+        double pj = position.getJ();
+        double pk = position.getK();
+        double vi = observerVelocity.getI();
+        double vj = observerVelocity.getJ();
+        double vk = observerVelocity.getK();
+
+        // h = (position / |position|) x (velocity / c)
+        double scale = 1. / (length * SPEED_OF_LIGHT);
+        double hi = (pj * vk - pk * vj) * scale;
+        double hj = (pk * vi - pi * vk) * scale;
+        double hk = (pi * vj - pj * vi) * scale;
+
+        double sinPhi = Math.sqrt(hi * hi + hj * hj + hk * hk);
+        if (sinPhi == 0.)
+        {
+            return;
+        }
+        double phi = Math.asin(sinPhi);
+
+        // Rotate about the unit axis h / |h|, which is perpendicular to the
+        // position, so the rotation is position * cos(phi) + (axis x position)
+        // * sin(phi).
+        double ai = hi / sinPhi;
+        double aj = hj / sinPhi;
+        double ak = hk / sinPhi;
+        double cosPhi = Math.cos(phi);
+
+        position.setTo( //
+                pi * cosPhi + (aj * pk - ak * pj) * sinPhi, //
+                pj * cosPhi + (ak * pi - ai * pk) * sinPhi, //
+                pk * cosPhi + (ai * pj - aj * pi) * sinPhi //
+        );
+    }
+
+}
@@ -0,0 +1,310 @@
+package edu.jhuapl.sbmt.pointing.spice;
+
+import picante.math.vectorspace.UnwritableMatrixIJK;
+import picante.math.vectorspace.UnwritableVectorIJK;
+
+/**
+ * Static helpers that operate on 3x3 rotation matrices, unit quaternions and
+ * 3-vectors packed into primitive arrays. Matrices are packed in row-major
+ * order, so element (row, column) of a matrix starting at offset is at offset
+ * + 3 * row + column. Quaternions are packed as (w, x, y, z), scalar first.
+ * These allow pointing quantities to be computed directly into caller-supplied
+ * arrays without creating intermediate objects.
+ */
+final class PackedRotations
+{
+    private PackedRotations()
+    {
+        throw new AssertionError();
+    }
+
+    /**
+     * Compute the matrix product a * b and pack it into the specified array.
+     *
+     * @param a the left matrix
+     * @param b the right matrix
+     * @param into the array to receive the product
+     * @param offset index of the first element of the product in the array
+     */
+    static void multiply(UnwritableMatrixIJK a, UnwritableMatrixIJK b, double[] into, int offset)
+    {
+        for (int row = 0; row < 3; ++row)
+        {
+            double a0 = a.get(row, 0);
+            double a1 = a.get(row, 1);
+            double a2 = a.get(row, 2);
+            for (int column = 0; column < 3; ++column)
+            {
+                into[offset + 3 * row + column] = a0 * b.get(0, column) + a1 * b.get(1, column) + a2 * b.get(2, column);
+            }
+        }
+    }
+
+    /**
+     * Compute the matrix product a * b, where a is packed, and pack it into
+     * the specified array, which must not overlap a.
+     *
+     * @param a the packed left matrix
+     * @param aOffset index of the first element of the left matrix
+     * @param b the right matrix
+     * @param into the array to receive the product
+     * @param offset index of the first element of the product in the array
+     */
+    static void multiply(double[] a, int aOffset, UnwritableMatrixIJK b, double[] into, int offset)
+    {
+        for (int row = 0; row < 3; ++row)
+        {
+            double a0 = a[aOffset + 3 * row];
+            double a1 = a[aOffset + 3 * row + 1];
+            double a2 = a[aOffset + 3 * row + 2];
+            for (int column = 0; column < 3; ++column)
+            {
+                into[offset + 3 * row + column] = a0 * b.get(0, column) + a1 * b.get(1, column) + a2 * b.get(2, column);
+            }
+        }
+    }
+
+    /**
+     * Rotate the specified vector using the packed matrix, normalize the
+     * result (unless it has zero length) and pack it into the specified array.
+     *
+     * @param matrix the packed rotation matrix
+     * @param matrixOffset index of the first element of the matrix
+     * @param vector the vector to rotate
+     * @param into the array to receive the rotated vector
+     * @param offset index of the first component of the result in the array
+     */
+    static void rotateUnit(double[] matrix, int matrixOffset, UnwritableVectorIJK vector, double[] into, int offset)
+    {
+        double i = vector.getI();
+        double j = vector.getJ();
+        double k = vector.getK();
+
+        double x = matrix[matrixOffset] * i + matrix[matrixOffset + 1] * j + matrix[matrixOffset + 2] * k;
+        double y = matrix[matrixOffset + 3] * i + matrix[matrixOffset + 4] * j + matrix[matrixOffset + 5] * k;
+        double z = matrix[matrixOffset + 6] * i + matrix[matrixOffset + 7] * j + matrix[matrixOffset + 8] * k;
+
+        double norm = Math.sqrt(x * x + y * y + z * z);
+        if (norm != 0. && norm != 1.)
+        {
+            x /= norm;
+            y /= norm;
+            z /= norm;
+        }
+
+        into[offset] = x;
+        into[offset + 1] = y;
+        into[offset + 2] = z;
+    }
+
+    /**
+     * Rotate the specified vector using the matrix, normalize the result
+     * (unless it has zero length) and pack it into the specified array.
+     *
+     * @param matrix the rotation matrix
+     * @param vector the vector to rotate
+     * @param into the array to receive the rotated vector
+     * @param offset index of the first component of the result in the array
+     */
+    static void rotateUnit(UnwritableMatrixIJK matrix, UnwritableVectorIJK vector, double[] into, int offset)
+    {
+        double i = vector.getI();
+        double j = vector.getJ();
+        double k = vector.getK();
+
+        double x = matrix.get(0, 0) * i + matrix.get(0, 1) * j + matrix.get(0, 2) * k;
+        double y = matrix.get(1, 0) * i + matrix.get(1, 1) * j + matrix.get(1, 2) * k;
+        double z = matrix.get(2, 0) * i + matrix.get(2, 1) * j + matrix.get(2, 2) * k;
+
+        double norm = Math.sqrt(x * x + y * y + z * z);
+        if (norm != 0. && norm != 1.)
+        {
+            x /= norm;
+            y /= norm;
+            z /= norm;
+        }
+
+        into[offset] = x;
+        into[offset + 1] = y;
+        into[offset + 2] = z;
+    }
+
+    /**
+     * Convert the specified rotation matrix to a unit quaternion and pack it
+     * into the specified array.
+     *
+     * @param matrix the rotation matrix
+     * @param into the array to receive the quaternion
+     * @param offset index of the scalar component of the quaternion
+     */
+    static void toQuaternion(UnwritableMatrixIJK matrix, double[] into, int offset)
+    {
+        double m00 = matrix.get(0, 0), m01 = matrix.get(0, 1), m02 = matrix.get(0, 2);
+        double m10 = matrix.get(1, 0), m11 = matrix.get(1, 1), m12 = matrix.get(1, 2);
+        double m20 = matrix.get(2, 0), m21 = matrix.get(2, 1), m22 = matrix.get(2, 2);
+
+        // Pivot on the largest of the diagonal terms and the trace to avoid
+        // dividing by a small number.
+        double w, x, y, z;
+        double trace = m00 + m11 + m22;
+        if (trace > 0.)
+        {
+            double s = 2. * Math.sqrt(trace + 1.);
+            w = 0.25 * s;
+            x = (m21 - m12) / s;
+            y = (m02 - m20) / s;
+            z = (m10 - m01) / s;
+        }
+        else if (m00 > m11 && m00 > m22)
+        {
+            double s = 2. * Math.sqrt(1. + m00 - m11 - m22);
+            w = (m21 - m12) / s;
+            x = 0.25 * s;
+            y = (m01 + m10) / s;
+            z = (m02 + m20) / s;
+        }
+        else if (m11 > m22)
+        {
+            double s = 2. * Math.sqrt(1. + m11 - m00 - m22);
+            w = (m02 - m20) / s;
+            x = (m01 + m10) / s;
+            y = 0.25 * s;
+            z = (m12 + m21) / s;
+        }
+        else
+        {
+            double s = 2. * Math.sqrt(1. + m22 - m00 - m11);
+            w = (m10 - m01) / s;
+            x = (m02 + m20) / s;
+            y = (m12 + m21) / s;
+            z = 0.25 * s;
+        }
+
+        double norm = Math.sqrt(w * w + x * x + y * y + z * z);
+        into[offset] = w / norm;
+        into[offset + 1] = x / norm;
+        into[offset + 2] = y / norm;
+        into[offset + 3] = z / norm;
+    }
+
+    /**
+     * Convert the specified unit quaternion to a rotation matrix and pack it
+     * into the specified array.
+     *
+     * @param quaternion the packed quaternion
+     * @param quaternionOffset index of the scalar component of the quaternion
+     * @param into the array to receive the matrix
+     * @param offset index of the first element of the matrix in the array
+     */
+    static void toMatrix(double[] quaternion, int quaternionOffset, double[] into, int offset)
+    {
+        double w = quaternion[quaternionOffset];
+        double x = quaternion[quaternionOffset + 1];
+        double y = quaternion[quaternionOffset + 2];
+        double z = quaternion[quaternionOffset + 3];
+
+        into[offset] = 1. - 2. * (y * y + z * z);
+        into[offset + 1] = 2. * (x * y - w * z);
+        into[offset + 2] = 2. * (x * z + w * y);
+        into[offset + 3] = 2. * (x * y + w * z);
+        into[offset + 4] = 1. - 2. * (x * x + z * z);
+        into[offset + 5] = 2. * (y * z - w * x);
+        into[offset + 6] = 2. * (x * z - w * y);
+        into[offset + 7] = 2. * (y * z + w * x);
+        into[offset + 8] = 1. - 2. * (x * x + y * y);
+    }
+
+    /**
+     * Interpolate between two unit quaternions along the shortest great arc
+     * (spherical linear interpolation) and pack the result into the specified
+     * array.
+     *
+     * @param q0 the array holding the first quaternion
+     * @param offset0 index of the scalar component of the first quaternion
+     * @param q1 the array holding the second quaternion
+     * @param offset1 index of the scalar component of the second quaternion
+     * @param fraction the interpolation parameter, 0 at the first quaternion
+     *            and 1 at the second
+     * @param into the array to receive the interpolated quaternion
+     * @param offset index of the scalar component of the result
+     */
+    static void slerp(double[] q0, int offset0, double[] q1, int offset1, double fraction, double[] into, int offset)
+    {
+        double dot = 0.;
+        for (int index = 0; index < 4; ++index)
+        {
+            dot += q0[offset0 + index] * q1[offset1 + index];
+        }
+
+        // q and -q are the same rotation; take the shorter way around.
+        double sign = dot < 0. ? -1. : 1.;
+        dot *= sign;
+
+        double weight0;
+        double weight1;
+        if (dot > 0.9995)
+        {
+            // Nearly parallel: linear interpolation is accurate and avoids
+            // dividing by a vanishing sine.
+            weight0 = 1. - fraction;
+            weight1 = fraction;
+        }
+        else
+        {
+            double angle = Math.acos(dot);
+            double sin = Math.sin(angle);
+            weight0 = Math.sin((1. - fraction) * angle) / sin;
+            weight1 = Math.sin(fraction * angle) / sin;
+        }
+        weight1 *= sign;
+
+        double norm = 0.;
+        for (int index = 0; index < 4; ++index)
+        {
+            double value = weight0 * q0[offset0 + index] + weight1 * q1[offset1 + index];
+            into[offset + index] = value;
+            norm += value * value;
+        }
+
+        norm = Math.sqrt(norm);
+        for (int index = 0; index < 4; ++index)
+        {
+            into[offset + index] /= norm;
+        }
+    }
+
+    /**
+     * Return the angle of the rotation that takes one unit quaternion to
+     * another, i.e., the angular difference between the rotations they
+     * represent.
+     *
+     * @param q0 the array holding the first quaternion
+     * @param offset0 index of the scalar component of the first quaternion
+     * @param q1 the array holding the second quaternion
+     * @param offset1 index of the scalar component of the second quaternion
+     * @return the angle in radians, in the range [0, pi]
+     */
+    static double angle(double[] q0, int offset0, double[] q1, int offset1)
+    {
+        double dot = 0.;
+        for (int index = 0; index < 4; ++index)
+        {
+            dot += q0[offset0 + index] * q1[offset1 + index];
+        }
+        double sign = dot < 0. ? -1. : 1.;
+
+        // Unlike acos of the dot product, this is accurate for small angles.
+        double difference = 0.;
+        double sum = 0.;
+        for (int index = 0; index < 4; ++index)
+        {
+            double a = q0[offset0 + index];
+            double b = sign * q1[offset1 + index];
+            difference += (a - b) * (a - b);
+            sum += (a + b) * (a + b);
+        }
+
+        return 4. * Math.atan2(Math.sqrt(difference), Math.sqrt(sum));
+    }
+
+}
@@ -0,0 +1,65 @@
+package edu.jhuapl.sbmt.pointing.spice;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Value with a separate instance for each thread that uses it, like a
+ * {@link ThreadLocal}, but held by its owner rather than by the threads.
+ * <p>
+ * A {@link ThreadLocal}'s values are referenced from each thread that used
+ * it, and outlive their owner for as long as those threads (often pooled)
+ * run. A provider's per-thread ephemeris providers and functions reference
+ * its {@link picante.spice.SpiceEnvironment}, so thread-local values would
+ * keep the kernels in memory after the provider itself was released. The
+ * instances held here become unreachable along with the owner. Instances
+ * belonging to threads that have terminated are dropped the next time a
+ * thread creates its instance.
+ *
+ * @param <T> the type of the value
+ */
+final class PerThreadValue<T>
+{
+    private final Supplier<? extends T> factory;
+    private final Map<Thread, T> values;
+
+    /**
+     * @param factory function that creates the instance for a thread, called
+     *            on that thread the first time it requests the value
+     */
+    PerThreadValue(Supplier<? extends T> factory)
+    {
+        this.factory = Preconditions.checkNotNull(factory);
+        this.values = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * @return the calling thread's instance, created if necessary
+     */
+    T get()
+    {
+        Thread thread = Thread.currentThread();
+        T value = values.get(thread);
+        if (value == null)
+        {
+            values.keySet().removeIf(other -> !other.isAlive());
+
+            value = factory.get();
+            values.put(thread, value);
+        }
+
+        return value;
+    }
+
+    /**
+     * @return the number of threads with an instance
+     */
+    int size()
+    {
+        return values.size();
+    }
+
+}
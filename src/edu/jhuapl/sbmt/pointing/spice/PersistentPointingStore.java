@@ -0,0 +1,753 @@
+package edu.jhuapl.sbmt.pointing.spice;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32C;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+
+import edu.jhuapl.sbmt.pointing.AbstractInstrumentPointing;
+import edu.jhuapl.sbmt.pointing.InstrumentPointing;
+import picante.math.vectorspace.UnwritableMatrixIJK;
+import picante.math.vectorspace.UnwritableVectorIJK;
+import picante.mechanics.EphemerisID;
+
+/**
+ * On-disk store of computed pointings, shared by every provider (in any JVM
+ * on the host) that uses the same kernels and configuration. The store is a
+ * memory-mapped file holding a fixed number of fixed-size records, organized
+ * as an open-addressing hash table keyed by instrument frame name and time.
+ * Each record holds the spacecraft state and rotation and the instrument
+ * boresight, up direction and frustum, all in the target frame.
+ * <p>
+ * The file is named for a digest of the kernel files (their paths, lengths
+ * and checksums of their contents) and of the provider configuration, see
+ * {@link #digest(List, String...)}. Changing the kernel list in a metakernel,
+ * or any of the kernel files, therefore selects a different file, and records
+ * computed from the old kernels are never returned. The name also includes
+ * the capacity and record size, so stores of different sizes or layouts are
+ * different files and opening one never disturbs another that may be mapped
+ * elsewhere. The digest, capacity and record size are also written in the
+ * file's header and checked when the file is opened.
+ * <p>
+ * Readers neither lock nor copy: a lookup probes a few records of the mapped
+ * file directly. Writers hold an exclusive {@link FileLock} on the file while
+ * they update a record, and each record carries a checksum of its contents,
+ * so a reader that sees a partially written record (from this or another
+ * process) treats it as a miss. When all the records probed for a key are
+ * taken, the first is overwritten, so the store behaves as a cache with a
+ * fixed footprint.
+ * <p>
+ * File locks are held by the JVM, not by a thread or a channel, and a JVM may
+ * not hold overlapping locks on a file through two channels, so a JVM opens
+ * each file only once: every {@link #open(Path, byte[], int)} of the same
+ * file returns the same store. The file is closed once the store has been
+ * {@link #close() closed} as often as it was opened.
+ */
+final class PersistentPointingStore
+{
+    /**
+     * Number of records in a store if no other capacity is specified. Each
+     * record is {@link #RECORD_SIZE} bytes, so the default store occupies
+     * about 18 MB.
+     */
+    static final int DEFAULT_CAPACITY = 1 << 16;
+
+    // Record layout: the values of a pointing, in the order written by
+    // toRecord.
+    static final int SC_POSITION = 0;
+    static final int SC_VELOCITY = 3;
+    static final int SC_ROTATION = 6; // row-major
+    static final int BORESIGHT = 15;
+    static final int UP_DIRECTION = 18;
+    static final int FRUSTUM = 21; // 4 corners
+    static final int RECORD_VALUES = 33;
+
+    private static final String CHECKSUMS_FILE = "kernels.checksums";
+    private static final String FILE_SUFFIX = ".pointings";
+    // Change FILE_SUFFIX along with MAGIC, so that stores of different
+    // versions are different files.
+    private static final long MAGIC = 0x5342_4d54_5054_4731L; // "SBMTPTG1"
+    private static final int DIGEST_LENGTH = 32;
+    private static final int HEADER_SIZE = 64;
+    private static final int KEY_OFFSET = 0;
+    private static final int TIME_OFFSET = 8;
+    private static final int CHECKSUM_OFFSET = 16;
+    private static final int VALUES_OFFSET = 24;
+    static final int RECORD_SIZE = VALUES_OFFSET + 8 * RECORD_VALUES;
+    private static final int MAXIMUM_PROBES = 8;
+
+    // The stores open in this JVM, by real path. Guarded by itself.
+    private static final Map<Path, PersistentPointingStore> Stores = new HashMap<>();
+
+    /**
+     * Compute the digest that identifies a set of kernels and a provider
+     * configuration. The contents of every kernel are read, so this takes
+     * about as long as loading the kernels.
+     *
+     * @param kernels the kernel files, in the order they are loaded
+     * @param configuration other strings that affect the pointings, such as
+     *            the target and spacecraft names and frames
+     * @return the digest
+     * @throws IOException if any kernel cannot be read
+     */
+    static byte[] digest(List<File> kernels, String... configuration) throws IOException
+    {
+        return digest(null, kernels, configuration);
+    }
+
+    /**
+     * Compute the digest that identifies a set of kernels and a provider
+     * configuration, as {@link #digest(List, String...)} does, but recording
+     * the checksum of each kernel in the specified directory along with the
+     * kernel's length and modification time. A kernel whose length and
+     * modification time match those recorded is not read again, so only the
+     * kernels that changed since the last digest (in any session) are read.
+     *
+     * @param directory the directory in which to record the checksums, or
+     *            null to read every kernel
+     * @param kernels the kernel files, in the order they are loaded
+     * @param configuration other strings that affect the pointings
+     * @return the digest
+     * @throws IOException if a kernel that must be read cannot be read
+     */
+    static byte[] digest(Path directory, List<File> kernels, String... configuration) throws IOException
+    {
+        Preconditions.checkNotNull(kernels);
+        Preconditions.checkNotNull(configuration);
+
+        Path checksumsFile = null;
+        Map<String, KernelChecksum> checksums = new HashMap<>();
+        if (directory != null)
+        {
+            Files.createDirectories(directory);
+            checksumsFile = directory.resolve(CHECKSUMS_FILE);
+            readChecksums(checksumsFile, checksums);
+        }
+        boolean checksumsChanged = false;
+
+        MessageDigest digest = createDigest();
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+
+        for (String item : configuration)
+        {
+            update(digest, buffer, String.valueOf(item));
+        }
+
+        for (File kernel : kernels)
+        {
+            String path = kernel.getAbsolutePath();
+            long length = kernel.length();
+            long modified = kernel.lastModified();
+
+            KernelChecksum checksum = checksums.get(path);
+            if (checksum == null || checksum.length != length || checksum.modified != modified)
+            {
+                checksum = new KernelChecksum(length, modified, checksum(kernel, buffer));
+                checksums.put(path, checksum);
+                checksumsChanged = true;
+            }
+
+            update(digest, buffer, path);
+            buffer.clear();
+            buffer.putLong(length).putLong(checksum.value).flip();
+            digest.update(buffer);
+        }
+
+        if (checksumsChanged && checksumsFile != null)
+        {
+            writeChecksums(checksumsFile, checksums);
+        }
+
+        return digest.digest();
+    }
+
+    /**
+     * Open (creating if necessary) the store for the specified digest in the
+     * specified directory, or return the store already open in this JVM for
+     * the same file.
+     *
+     * @param directory the directory in which stores are kept
+     * @param digest the digest of the kernels and configuration, from
+     *            {@link #digest(List, String...)}
+     * @param capacity the number of records in the store; stores of different
+     *            capacities for the same digest are kept in separate files
+     * @return the store
+     * @throws IOException if the file cannot be created or mapped
+     */
+    static PersistentPointingStore open(Path directory, byte[] digest, int capacity) throws IOException
+    {
+        Preconditions.checkNotNull(directory);
+        Preconditions.checkNotNull(digest);
+        Preconditions.checkArgument(digest.length == DIGEST_LENGTH, "Pointing store digest must have " + DIGEST_LENGTH + " bytes");
+        Preconditions.checkArgument(capacity > 0 && capacity <= (Integer.MAX_VALUE - HEADER_SIZE) / RECORD_SIZE, "Invalid pointing store capacity " + capacity);
+
+        Files.createDirectories(directory);
+
+        String fileName = toHex(digest) + "-" + capacity + "x" + RECORD_SIZE + FILE_SUFFIX;
+        Path file = directory.toRealPath().resolve(fileName);
+
+        synchronized (Stores)
+        {
+            PersistentPointingStore store = Stores.get(file);
+            if (store == null)
+            {
+                store = new PersistentPointingStore(file, digest, capacity);
+                Stores.put(file, store);
+            }
+            ++store.openCount;
+
+            return store;
+        }
+    }
+
+    private final Path file;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    // The number of opens not yet closed. Guarded by Stores.
+    private int openCount;
+
+    private PersistentPointingStore(Path file, byte[] digest, int capacity) throws IOException
+    {
+        this.file = file;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.capacity = capacity;
+
+        long size = HEADER_SIZE + (long) capacity * RECORD_SIZE;
+        try (FileLock lock = channel.lock())
+        {
+            boolean valid = channel.size() == size;
+            if (valid)
+            {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                channel.read(header, 0);
+                header.flip();
+                valid = header.getLong() == MAGIC && header.getInt() == RECORD_SIZE && header.getInt() == capacity;
+                for (int index = 0; valid && index < DIGEST_LENGTH; ++index)
+                {
+                    valid = header.get() == digest[index];
+                }
+            }
+
+            if (!valid)
+            {
+                // New, or left incomplete or corrupted: the name fixes the
+                // digest, capacity and layout, so no valid store can have
+                // this file mapped, and it may be safely reinitialized.
+                channel.truncate(0);
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                header.putLong(MAGIC).putInt(RECORD_SIZE).putInt(capacity).put(digest).clear();
+                channel.write(header, 0);
+                channel.write(ByteBuffer.allocate(1), size - 1);
+            }
+
+            this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+
+    /**
+     * @return the file in which the records are stored
+     */
+    Path getFile()
+    {
+        return file;
+    }
+
+    /**
+     * @return the number of records in the store
+     */
+    int getCapacity()
+    {
+        return capacity;
+    }
+
+    /**
+     * Look up the record for the specified instrument frame and time.
+     *
+     * @param frameName the name of the instrument frame
+     * @param time the time, TDB
+     * @param values array into which to copy the {@link #RECORD_VALUES}
+     *            values of the record, if found
+     * @return true if the record was found and copied
+     */
+    boolean get(String frameName, double time, double[] values)
+    {
+        long key = hash(frameName);
+        long timeBits = Double.doubleToLongBits(time);
+
+        int slot = homeSlot(key, timeBits);
+        for (int probe = 0; probe < MAXIMUM_PROBES; ++probe)
+        {
+            int offset = offsetOf(slot);
+            long storedKey = buffer.getLong(offset + KEY_OFFSET);
+            if (storedKey == 0)
+            {
+                return false;
+            }
+            if (storedKey == key && buffer.getLong(offset + TIME_OFFSET) == timeBits)
+            {
+                for (int index = 0; index < RECORD_VALUES; ++index)
+                {
+                    values[index] = buffer.getDouble(offset + VALUES_OFFSET + 8 * index);
+                }
+
+                // A mismatch means the record is being written, or was
+                // overwritten while it was being read.
+                return buffer.getLong(offset + CHECKSUM_OFFSET) == checksum(key, timeBits, values);
+            }
+            slot = slot + 1 < capacity ? slot + 1 : 0;
+        }
+
+        return false;
+    }
+
+    /**
+     * Store the record for the specified instrument frame and time, replacing
+     * any existing record for the same key.
+     *
+     * @param frameName the name of the instrument frame
+     * @param time the time, TDB
+     * @param values the {@link #RECORD_VALUES} values of the record
+     */
+    synchronized void put(String frameName, double time, double[] values)
+    {
+        Preconditions.checkArgument(values.length >= RECORD_VALUES);
+
+        long key = hash(frameName);
+        long timeBits = Double.doubleToLongBits(time);
+
+        // The file lock excludes other processes; this JVM has only this
+        // store on the file, and the method is synchronized to exclude other
+        // threads, which the file lock does not.
+        try (FileLock lock = channel.lock())
+        {
+            int home = homeSlot(key, timeBits);
+            int target = home;
+            int slot = home;
+            for (int probe = 0; probe < MAXIMUM_PROBES; ++probe)
+            {
+                int offset = offsetOf(slot);
+                long storedKey = buffer.getLong(offset + KEY_OFFSET);
+                if (storedKey == 0 || (storedKey == key && buffer.getLong(offset + TIME_OFFSET) == timeBits))
+                {
+                    target = slot;
+                    break;
+                }
+                slot = slot + 1 < capacity ? slot + 1 : 0;
+            }
+
+            int offset = offsetOf(target);
+
+            // Invalidate the record before changing it.
+            buffer.putLong(offset + CHECKSUM_OFFSET, 0);
+            buffer.putLong(offset + KEY_OFFSET, key);
+            buffer.putLong(offset + TIME_OFFSET, timeBits);
+            for (int index = 0; index < RECORD_VALUES; ++index)
+            {
+                buffer.putDouble(offset + VALUES_OFFSET + 8 * index, values[index]);
+            }
+            buffer.putLong(offset + CHECKSUM_OFFSET, checksum(key, timeBits, values));
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException("Cannot lock pointing store " + file, e);
+        }
+    }
+
+    /**
+     * Close one open of this store. Once every open has been closed, the file
+     * is closed and the store must no longer be used; opening the file again
+     * creates a new store. Closing a store more often than it was opened has
+     * no effect.
+     */
+    void close()
+    {
+        synchronized (Stores)
+        {
+            if (openCount == 0 || --openCount > 0)
+            {
+                return;
+            }
+            Stores.remove(file);
+        }
+
+        try
+        {
+            channel.close();
+        }
+        catch (IOException e)
+        {
+            // Nothing more is written through the channel, and the mapping is
+            // released when it is garbage collected.
+        }
+    }
+
+    /**
+     * @return true if the store has been opened more often than closed
+     */
+    boolean isOpen()
+    {
+        synchronized (Stores)
+        {
+            return openCount > 0;
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return "PersistentPointingStore[" + file + ", capacity=" + capacity + "]";
+    }
+
+    /**
+     * Copy the quantities of the specified pointing into a record.
+     *
+     * @param pointing the pointing
+     * @param values array of at least {@link #RECORD_VALUES} into which to
+     *            copy the values
+     */
+    static void toRecord(InstrumentPointing pointing, double[] values)
+    {
+        copy(pointing.getScPosition(), values, SC_POSITION);
+        copy(pointing.getScVelocity(), values, SC_VELOCITY);
+
+        UnwritableMatrixIJK rotation = pointing.getScRotation();
+        for (int row = 0; row < 3; ++row)
+        {
+            for (int column = 0; column < 3; ++column)
+            {
+                values[SC_ROTATION + 3 * row + column] = rotation.get(row, column);
+            }
+        }
+
+        copy(pointing.getBoresight(), values, BORESIGHT);
+        copy(pointing.getUpDirection(), values, UP_DIRECTION);
+
+        List<UnwritableVectorIJK> frustum = pointing.getFrustum();
+        for (int corner = 0; corner < 4; ++corner)
+        {
+            copy(frustum.get(corner), values, FRUSTUM + 3 * corner);
+        }
+    }
+
+    /**
+     * Create a pointing from a record. Body positions are not stored, so
+     * those are computed by the provider when first requested.
+     *
+     * @param provider the provider that stored the record
+     * @param time the time of the pointing, TDB
+     * @param values the values of the record
+     * @return the pointing
+     */
+    static InstrumentPointing fromRecord(SpicePointingProvider provider, double time, double[] values)
+    {
+        return new StoredInstrumentPointing(provider, time, values);
+    }
+
+    private int offsetOf(int slot)
+    {
+        return HEADER_SIZE + slot * RECORD_SIZE;
+    }
+
+    private int homeSlot(long key, long timeBits)
+    {
+        long hash = mix(key ^ mix(timeBits));
+
+        return (int) Long.remainderUnsigned(hash, capacity);
+    }
+
+    /**
+     * 64-bit FNV-1a hash of the frame name. Never 0, which marks empty
+     * records.
+     */
+    private static long hash(String frameName)
+    {
+        long hash = 0xcbf29ce484222325L;
+        for (int index = 0; index < frameName.length(); ++index)
+        {
+            hash ^= frameName.charAt(index);
+            hash *= 0x100000001b3L;
+        }
+
+        return hash != 0 ? hash : 1;
+    }
+
+    /**
+     * Checksum of a complete record. Never 0, which marks records being
+     * written.
+     */
+    private static long checksum(long key, long timeBits, double[] values)
+    {
+        long result = mix(key) ^ timeBits;
+        for (int index = 0; index < RECORD_VALUES; ++index)
+        {
+            result = mix(result ^ Double.doubleToRawLongBits(values[index]));
+        }
+
+        return result != 0 ? result : 1;
+    }
+
+    /**
+     * Finalizer of the SplitMix64 generator.
+     */
+    private static long mix(long value)
+    {
+        value = (value ^ (value >>> 30)) * 0xbf58476d1ce4e5b9L;
+        value = (value ^ (value >>> 27)) * 0x94d049bb133111ebL;
+
+        return value ^ (value >>> 31);
+    }
+
+    private static void copy(UnwritableVectorIJK vector, double[] values, int offset)
+    {
+        values[offset] = vector.getI();
+        values[offset + 1] = vector.getJ();
+        values[offset + 2] = vector.getK();
+    }
+
+    /**
+     * Checksum of the contents of a kernel.
+     */
+    private static long checksum(File kernel, ByteBuffer buffer) throws IOException
+    {
+        CRC32C checksum = new CRC32C();
+        try (FileChannel channel = FileChannel.open(kernel.toPath(), StandardOpenOption.READ))
+        {
+            buffer.clear();
+            while (channel.read(buffer) >= 0)
+            {
+                buffer.flip();
+                checksum.update(buffer);
+                buffer.clear();
+            }
+        }
+
+        return checksum.getValue();
+    }
+
+    /**
+     * Read the recorded kernel checksums, one kernel per line: the checksum,
+     * length, modification time and path, separated by tabs. The record only
+     * saves reading the kernels, so if it is missing or unreadable, or a line
+     * is malformed, the kernels concerned are simply read.
+     */
+    private static void readChecksums(Path file, Map<String, KernelChecksum> checksums)
+    {
+        List<String> lines;
+        try
+        {
+            lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        }
+        catch (IOException e)
+        {
+            return;
+        }
+
+        for (String line : lines)
+        {
+            String[] fields = line.split("\t", 4);
+            if (fields.length == 4)
+            {
+                try
+                {
+                    checksums.put(fields[3], new KernelChecksum(Long.parseLong(fields[1]), Long.parseLong(fields[2]), Long.parseLong(fields[0])));
+                }
+                catch (NumberFormatException e)
+                {
+                    // Skip the line.
+                }
+            }
+        }
+    }
+
+    /**
+     * Replace the recorded kernel checksums. The record is written to a
+     * temporary file that is then moved into place, so that concurrent
+     * readers, in any process, see either the old or the new record. If it
+     * cannot be written, the kernels are read again next time.
+     */
+    private static void writeChecksums(Path file, Map<String, KernelChecksum> checksums)
+    {
+        List<String> lines = new ArrayList<>();
+        for (Map.Entry<String, KernelChecksum> entry : checksums.entrySet())
+        {
+            KernelChecksum checksum = entry.getValue();
+            lines.add(checksum.value + "\t" + checksum.length + "\t" + checksum.modified + "\t" + entry.getKey());
+        }
+
+        Path temporary = null;
+        try
+        {
+            temporary = Files.createTempFile(file.getParent(), CHECKSUMS_FILE, ".tmp");
+            Files.write(temporary, lines, StandardCharsets.UTF_8);
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch (IOException e)
+        {
+            try
+            {
+                if (temporary != null)
+                {
+                    Files.deleteIfExists(temporary);
+                }
+            }
+            catch (IOException e2)
+            {
+                // Leave it; it is never read.
+            }
+        }
+    }
+
+    private static void update(MessageDigest digest, ByteBuffer buffer, String string)
+    {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        buffer.clear();
+        buffer.putInt(bytes.length).flip();
+        digest.update(buffer);
+        digest.update(bytes);
+    }
+
+    private static MessageDigest createDigest()
+    {
+        try
+        {
+            return MessageDigest.getInstance("SHA-256");
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            // Every Java implementation is required to support SHA-256.
+            throw new AssertionError(e);
+        }
+    }
+
+    private static String toHex(byte[] bytes)
+    {
+        StringBuilder builder = new StringBuilder(2 * bytes.length);
+        for (byte b : bytes)
+        {
+            builder.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * Checksum of the contents of a kernel, with the length and modification
+     * time of the kernel when it was computed.
+     */
+    private static final class KernelChecksum
+    {
+        private final long length;
+        private final long modified;
+        private final long value;
+
+        KernelChecksum(long length, long modified, long value)
+        {
+            this.length = length;
+            this.modified = modified;
+            this.value = value;
+        }
+    }
+
+    private static final class StoredInstrumentPointing extends AbstractInstrumentPointing
+    {
+        private final SpicePointingProvider provider;
+        private final double time;
+        private final UnwritableVectorIJK scPos;
+        private final UnwritableVectorIJK scVel;
+        private final UnwritableMatrixIJK scRotation;
+        private final UnwritableVectorIJK boresight;
+        private final UnwritableVectorIJK upDir;
+        private final ImmutableList<UnwritableVectorIJK> frustum;
+
+        StoredInstrumentPointing(SpicePointingProvider provider, double time, double[] values)
+        {
+            this.provider = provider;
+            this.time = time;
+            this.scPos = toVector(values, SC_POSITION);
+            this.scVel = toVector(values, SC_VELOCITY);
+
+            // The constructor takes the elements in column-major order.
+            this.scRotation = new UnwritableMatrixIJK( //
+                    values[SC_ROTATION], values[SC_ROTATION + 3], values[SC_ROTATION + 6], //
+                    values[SC_ROTATION + 1], values[SC_ROTATION + 4], values[SC_ROTATION + 7], //
+                    values[SC_ROTATION + 2], values[SC_ROTATION + 5], values[SC_ROTATION + 8]);
+
+            this.boresight = toVector(values, BORESIGHT);
+            this.upDir = toVector(values, UP_DIRECTION);
+
+            ImmutableList.Builder<UnwritableVectorIJK> builder = ImmutableList.builder();
+            for (int corner = 0; corner < 4; ++corner)
+            {
+                builder.add(toVector(values, FRUSTUM + 3 * corner));
+            }
+            this.frustum = builder.build();
+        }
+
+        @Override
+        public UnwritableVectorIJK getScPosition()
+        {
+            return scPos;
+        }
+
+        @Override
+        public UnwritableVectorIJK getScVelocity()
+        {
+            return scVel;
+        }
+
+        @Override
+        public UnwritableMatrixIJK getScRotation()
+        {
+            return scRotation;
+        }
+
+        @Override
+        public UnwritableVectorIJK getPosition(EphemerisID bodyId)
+        {
+            return provider.getEpochContext(time).getPosition(bodyId);
+        }
+
+        @Override
+        public UnwritableVectorIJK getBoresight()
+        {
+            return boresight;
+        }
+
+        @Override
+        public UnwritableVectorIJK getUpDirection()
+        {
+            return upDir;
+        }
+
+        @Override
+        public List<UnwritableVectorIJK> getFrustum()
+        {
+            return frustum;
+        }
+
+        private static UnwritableVectorIJK toVector(double[] values, int offset)
+        {
+            return new UnwritableVectorIJK(values[offset], values[offset + 1], values[offset + 2]);
+        }
+    }
+
+}
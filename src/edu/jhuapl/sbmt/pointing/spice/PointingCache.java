@@ -0,0 +1,514 @@
+package edu.jhuapl.sbmt.pointing.spice;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.google.common.base.Preconditions;
+
+import picante.mechanics.FrameID;
+
+/**
+ * Bounded, thread-safe cache of values keyed by a {@link FrameID} and a moment
+ * in time. Each {@link SpicePointingProvider} owns one of these, so pointings
+ * computed from one set of kernels are never returned by a provider that uses
+ * a different set.
+ * <p>
+ * Entries are spread across a small number of independently locked segments so
+ * that concurrent readers rarely contend. Each segment keeps its keys in
+ * primitive arrays (the time is stored as a long, either the bits of the
+ * double or the index of its quantum, so no boxing occurs on lookup) and
+ * evicts its least recently used entry when full. The total number of entries
+ * never exceeds the maximum size given at construction.
+ * <p>
+ * By default times must match exactly. Epochs that come from time string
+ * round trips, slider positions or interpolation often differ from cached
+ * epochs by nanoseconds, so a cache may instead be given a time quantum, in
+ * which case all times that round to the same multiple of the quantum share
+ * one entry (the value cached first for any time in that quantum). A cache may
+ * also be given a tolerance, in which case a lookup returns the value cached
+ * for the nearest time within the tolerance, if any.
+ * <p>
+ * Hit, miss and eviction counts are maintained for diagnostic purposes.
+ *
+ * @param <V> the type of the cached values
+ */
+public final class PointingCache<V>
+{
+    /**
+     * Maximum number of entries held by a cache if no other size is
+     * specified.
+     */
+    public static final int DEFAULT_MAXIMUM_SIZE = 10000;
+
+    private static final int MAXIMUM_SEGMENTS = 16;
+
+    private final int maximumSize;
+    private final double timeQuantum;
+    private final double tolerance;
+    private final int neighborQuanta;
+    private final Segment<V>[] segments;
+    private final int segmentMask;
+    private final LongAdder hitCount;
+    private final LongAdder missCount;
+    private final LongAdder evictionCount;
+
+    /**
+     * Create a cache that holds at most the specified number of entries.
+     *
+     * @param maximumSize the maximum number of entries, must be positive
+     */
+    PointingCache(int maximumSize)
+    {
+        this(maximumSize, 0., 0.);
+    }
+
+    /**
+     * Create a cache that holds at most the specified number of entries, with
+     * the specified time quantum and tolerance.
+     *
+     * @param maximumSize the maximum number of entries, must be positive
+     * @param timeQuantum the width in seconds of the time intervals that share
+     *            an entry, or 0 for exact time matches
+     * @param tolerance the maximum difference in seconds between a requested
+     *            time and the time of the nearest cached entry that may be
+     *            returned, or 0 to return only entries in the requested
+     *            time's quantum. If positive and the quantum is 0, the
+     *            tolerance is used as the quantum
+     */
+    PointingCache(int maximumSize, double timeQuantum, double tolerance)
+    {
+        Preconditions.checkArgument(maximumSize > 0, "Pointing cache size must be positive, not " + maximumSize);
+        Preconditions.checkArgument(timeQuantum >= 0. && Double.isFinite(timeQuantum), "Pointing cache time quantum must not be negative, not " + timeQuantum);
+        Preconditions.checkArgument(tolerance >= 0. && Double.isFinite(tolerance), "Pointing cache tolerance must not be negative, not " + tolerance);
+
+        this.maximumSize = maximumSize;
+        this.timeQuantum = timeQuantum == 0. ? tolerance : timeQuantum;
+        this.tolerance = tolerance;
+        this.neighborQuanta = tolerance > 0. ? (int) Math.ceil(tolerance / this.timeQuantum) : 0;
+
+        int segmentCount = Integer.highestOneBit(Math.min(MAXIMUM_SEGMENTS, maximumSize));
+
+        @SuppressWarnings("unchecked")
+        Segment<V>[] segments = new Segment[segmentCount];
+        for (int index = 0; index < segmentCount; ++index)
+        {
+            // Distribute the remainder so the segment capacities add up to
+            // exactly maximumSize.
+            int capacity = maximumSize / segmentCount + (index < maximumSize % segmentCount ? 1 : 0);
+            segments[index] = new Segment<>(capacity);
+        }
+
+        this.segments = segments;
+        this.segmentMask = segmentCount - 1;
+        this.hitCount = new LongAdder();
+        this.missCount = new LongAdder();
+        this.evictionCount = new LongAdder();
+    }
+
+    /**
+     * Return the value cached for the specified frame and time, or null if no
+     * such value is present.
+     *
+     * @param frame the frame part of the key
+     * @param time the time part of the key
+     * @return the cached value, or null
+     */
+    V get(FrameID frame, double time)
+    {
+        long timeKey = timeKey(time);
+        if (neighborQuanta > 0)
+        {
+            timeKey = nearestTimeKey(frame, time, timeKey);
+        }
+        int hash = hash(frame, timeKey);
+
+        V result = segmentFor(hash).get(frame, timeKey, hash);
+        if (result != null)
+        {
+            hitCount.increment();
+        }
+        else
+        {
+            missCount.increment();
+        }
+
+        return result;
+    }
+
+    /**
+     * Cache the specified value for the specified frame and time, replacing
+     * any value previously cached for the same key. If the cache is full, the
+     * least recently used entry of the affected segment is evicted.
+     *
+     * @param frame the frame part of the key
+     * @param time the time part of the key
+     * @param value the value to cache, must not be null
+     */
+    void put(FrameID frame, double time, V value)
+    {
+        Preconditions.checkNotNull(frame);
+        Preconditions.checkNotNull(value);
+
+        long timeKey = timeKey(time);
+        int hash = hash(frame, timeKey);
+
+        if (segmentFor(hash).put(frame, timeKey, hash, time, value))
+        {
+            evictionCount.increment();
+        }
+    }
+
+    /**
+     * Remove all entries from the cache. The hit, miss and eviction counts are
+     * not affected.
+     */
+    public void clear()
+    {
+        for (Segment<V> segment : segments)
+        {
+            segment.clear();
+        }
+    }
+
+    /**
+     * Return the number of entries currently in the cache.
+     *
+     * @return the number of entries
+     */
+    public int size()
+    {
+        int size = 0;
+        for (Segment<V> segment : segments)
+        {
+            size += segment.size();
+        }
+
+        return size;
+    }
+
+    /**
+     * Return the maximum number of entries this cache will hold.
+     *
+     * @return the maximum size
+     */
+    public int getMaximumSize()
+    {
+        return maximumSize;
+    }
+
+    /**
+     * Return the width of the time intervals that share an entry.
+     *
+     * @return the time quantum in seconds, or 0 if times must match exactly
+     */
+    public double getTimeQuantum()
+    {
+        return timeQuantum;
+    }
+
+    /**
+     * Return the maximum difference between a requested time and the time of
+     * a cached entry that may be returned for it in nearest-entry mode.
+     *
+     * @return the tolerance in seconds, or 0 if nearest-entry mode is off
+     */
+    public double getTolerance()
+    {
+        return tolerance;
+    }
+
+    /**
+     * Return the number of lookups that found a cached value.
+     *
+     * @return the hit count
+     */
+    public long getHitCount()
+    {
+        return hitCount.sum();
+    }
+
+    /**
+     * Return the number of lookups that did not find a cached value.
+     *
+     * @return the miss count
+     */
+    public long getMissCount()
+    {
+        return missCount.sum();
+    }
+
+    /**
+     * Return the number of entries that have been evicted to keep the cache
+     * within its maximum size.
+     *
+     * @return the eviction count
+     */
+    public long getEvictionCount()
+    {
+        return evictionCount.sum();
+    }
+
+    @Override
+    public String toString()
+    {
+        return "PointingCache [size=" + size() + ", maximumSize=" + maximumSize + ", timeQuantum=" + timeQuantum + ", tolerance=" + tolerance + ", hits=" + getHitCount() + ", misses=" + getMissCount() + ", evictions=" + getEvictionCount() + "]";
+    }
+
+    /**
+     * Return the time part of the key: the index of the quantum if there is
+     * one, otherwise the bits of the time itself, so no boxing occurs.
+     */
+    private long timeKey(double time)
+    {
+        return timeQuantum > 0. ? Math.round(time / timeQuantum) : Double.doubleToLongBits(time);
+    }
+
+    /**
+     * Return the key of the quantum, among those within the tolerance of the
+     * specified time, whose cached entry has the nearest time, or the
+     * requested time's own key if no entry is within the tolerance.
+     */
+    private long nearestTimeKey(FrameID frame, double time, long timeKey)
+    {
+        long result = timeKey;
+        double nearest = Double.POSITIVE_INFINITY;
+        for (long key = timeKey - neighborQuanta; key <= timeKey + neighborQuanta; ++key)
+        {
+            int hash = hash(frame, key);
+            double difference = Math.abs(segmentFor(hash).timeOf(frame, key, hash) - time);
+            if (difference <= tolerance && difference < nearest)
+            {
+                nearest = difference;
+                result = key;
+            }
+        }
+
+        return result;
+    }
+
+    private Segment<V> segmentFor(int hash)
+    {
+        return segments[(hash >>> 16) & segmentMask];
+    }
+
+    private static int hash(FrameID frame, long timeKey)
+    {
+        int hash = 31 * frame.hashCode() + Long.hashCode(timeKey);
+
+        // Spread the bits so both the segment and bucket indices are well
+        // distributed.
+        hash ^= hash >>> 16;
+        hash *= 0x45d9f3b;
+        hash ^= hash >>> 16;
+
+        return hash;
+    }
+
+    /**
+     * A fixed-capacity hash table with chained buckets and an LRU list, all
+     * stored in parallel arrays indexed by entry slot. Slots are filled in
+     * order until the segment is full, after which the least recently used
+     * slot is recycled.
+     */
+    private static final class Segment<V>
+    {
+        private static final int NONE = -1;
+
+        private final int capacity;
+        private final int bucketMask;
+        private final int[] buckets;
+        private final int[] hashes;
+        private final long[] times;
+        private final double[] exactTimes;
+        private final FrameID[] frames;
+        private final Object[] values;
+        private final int[] chain;
+        private final int[] older;
+        private final int[] newer;
+        private int newest;
+        private int oldest;
+        private int size;
+
+        Segment(int capacity)
+        {
+            int bucketCount = Integer.highestOneBit(Math.max(1, 2 * capacity - 1)) << 1;
+
+            this.capacity = capacity;
+            this.bucketMask = bucketCount - 1;
+            this.buckets = new int[bucketCount];
+            this.hashes = new int[capacity];
+            this.times = new long[capacity];
+            this.exactTimes = new double[capacity];
+            this.frames = new FrameID[capacity];
+            this.values = new Object[capacity];
+            this.chain = new int[capacity];
+            this.older = new int[capacity];
+            this.newer = new int[capacity];
+
+            clear();
+        }
+
+        synchronized V get(FrameID frame, long timeKey, int hash)
+        {
+            int slot = find(frame, timeKey, hash);
+            if (slot == NONE)
+            {
+                return null;
+            }
+
+            if (slot != newest)
+            {
+                unlink(slot);
+                linkNewest(slot);
+            }
+
+            @SuppressWarnings("unchecked")
+            V result = (V) values[slot];
+
+            return result;
+        }
+
+        /**
+         * @return the exact time of the entry with the specified key, or NaN
+         *         if there is none. Does not count as a use of the entry
+         */
+        synchronized double timeOf(FrameID frame, long timeKey, int hash)
+        {
+            int slot = find(frame, timeKey, hash);
+
+            return slot != NONE ? exactTimes[slot] : Double.NaN;
+        }
+
+        /**
+         * @return true if an entry was evicted to make room
+         */
+        synchronized boolean put(FrameID frame, long timeKey, int hash, double time, V value)
+        {
+            int slot = find(frame, timeKey, hash);
+            if (slot != NONE)
+            {
+                exactTimes[slot] = time;
+                values[slot] = value;
+                if (slot != newest)
+                {
+                    unlink(slot);
+                    linkNewest(slot);
+                }
+                return false;
+            }
+
+            boolean evicted = false;
+            if (size < capacity)
+            {
+                slot = size++;
+            }
+            else
+            {
+                slot = oldest;
+                removeFromBucket(slot);
+                unlink(slot);
+                evicted = true;
+            }
+
+            hashes[slot] = hash;
+            times[slot] = timeKey;
+            exactTimes[slot] = time;
+            frames[slot] = frame;
+            values[slot] = value;
+
+            int bucket = hash & bucketMask;
+            chain[slot] = buckets[bucket];
+            buckets[bucket] = slot;
+
+            linkNewest(slot);
+
+            return evicted;
+        }
+
+        synchronized void clear()
+        {
+            Arrays.fill(buckets, NONE);
+            Arrays.fill(frames, null);
+            Arrays.fill(values, null);
+            newest = NONE;
+            oldest = NONE;
+            size = 0;
+        }
+
+        synchronized int size()
+        {
+            return size;
+        }
+
+        private int find(FrameID frame, long timeKey, int hash)
+        {
+            for (int slot = buckets[hash & bucketMask]; slot != NONE; slot = chain[slot])
+            {
+                if (hashes[slot] == hash && times[slot] == timeKey && frame.equals(frames[slot]))
+                {
+                    return slot;
+                }
+            }
+
+            return NONE;
+        }
+
+        private void removeFromBucket(int slot)
+        {
+            int bucket = hashes[slot] & bucketMask;
+            if (buckets[bucket] == slot)
+            {
+                buckets[bucket] = chain[slot];
+                return;
+            }
+
+            for (int previous = buckets[bucket]; previous != NONE; previous = chain[previous])
+            {
+                if (chain[previous] == slot)
+                {
+                    chain[previous] = chain[slot];
+                    return;
+                }
+            }
+        }
+
+        private void unlink(int slot)
+        {
+            int olderSlot = older[slot];
+            int newerSlot = newer[slot];
+
+            if (olderSlot != NONE)
+            {
+                newer[olderSlot] = newerSlot;
+            }
+            else
+            {
+                oldest = newerSlot;
+            }
+
+            if (newerSlot != NONE)
+            {
+                older[newerSlot] = olderSlot;
+            }
+            else
+            {
+                newest = olderSlot;
+            }
+        }
+
+        private void linkNewest(int slot)
+        {
+            older[slot] = newest;
+            newer[slot] = NONE;
+            if (newest != NONE)
+            {
+                newer[newest] = slot;
+            }
+            newest = slot;
+            if (oldest == NONE)
+            {
+                oldest = slot;
+            }
+        }
+    }
+}
@@ -0,0 +1,324 @@
+package edu.jhuapl.sbmt.pointing.spice;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import picante.math.vectorspace.RotationMatrixIJK;
+import picante.math.vectorspace.UnwritableMatrixIJK;
+import picante.math.vectorspace.UnwritableRotationMatrixIJK;
+import picante.math.vectorspace.UnwritableVectorIJK;
+import picante.math.vectorspace.VectorIJK;
+import picante.mechanics.CelestialFrames;
+import picante.mechanics.EphemerisID;
+import picante.mechanics.FrameID;
+import picante.mechanics.StateVector;
+import picante.mechanics.StateVectorFunction;
+import picante.mechanics.StateVectorFunctions;
+import picante.mechanics.UnwritableStateVector;
+import picante.mechanics.providers.aberrated.AberratedStateVectorFunction;
+import picante.mechanics.providers.aberrated.AberrationCorrection;
+
+/**
+ * Quantities shared by every pointing and body position that a
+ * {@link SpicePointingProvider} computes for one epoch: the spacecraft state
+ * relative to the target, the light time between them, the time at the target
+ * and the rotation from J2000 to the target frame at that time. These are
+ * computed once, on demand, no matter how many instruments or bodies are
+ * queried, so that each additional instrument costs only its own frame
+ * rotation.
+ * <p>
+ * All quantities are computed with the same aberration correction, one of
+ * {@link AberrationCorrection#NONE}, {@link AberrationCorrection#LT} or
+ * {@link AberrationCorrection#LT_S}. With no correction, the time at the target
+ * is the time at the spacecraft. If the light time is warm-started (see
+ * {@link LightTimeSolver}), the spacecraft position and light time come from
+ * the calling thread's solver, and the spacecraft velocity, which is seldom
+ * needed, is only evaluated if requested.
+ * <p>
+ * Instances are thread safe. As in {@link SpiceInstrumentPointing}, the
+ * functions used to evaluate the quantities are those of the calling thread.
+ * Body positions are evaluated outside the instance's lock, so with a
+ * concurrent provider the positions of different bodies may be evaluated on
+ * different threads at once.
+ */
+final class SpiceEpochContext
+{
+    private final Supplier<SpiceFunctions> functions;
+    private final EphemerisID targetId;
+    private final FrameID targetFrame;
+    private final EphemerisID scId;
+    private final FrameID scFrame;
+    private final double time; // TDB
+    private final AberrationCorrection correction;
+    private final boolean warmStart;
+    // Cached map of other body states (Sun/Earth/etc.) in the target frame.
+    private final Map<EphemerisID, UnwritableStateVector> bodyStates;
+    private UnwritableVectorIJK scPos;
+    private UnwritableVectorIJK scVel;
+    // Time when light left the target, used for computations with an
+    // intermediate inertial frame.
+    private double timeAtTarget;
+    private RotationMatrixIJK j2000ToTargetRotation;
+    private RotationMatrixIJK scToTargetRotation;
+
+    SpiceEpochContext( //
+            Supplier<SpiceFunctions> functions, //
+            EphemerisID targetId, //
+            FrameID targetFrame, //
+            EphemerisID scId, //
+            FrameID scFrame, //
+            double time, //
+            AberrationCorrection correction, //
+            boolean warmStart //
+    )
+    {
+        this.functions = functions;
+        this.targetId = targetId;
+        this.targetFrame = targetFrame;
+        this.scId = scId;
+        this.scFrame = scFrame;
+        this.time = time;
+        this.correction = correction;
+        this.warmStart = warmStart && correction != AberrationCorrection.NONE;
+        this.bodyStates = new HashMap<>(); // Not populated yet.
+        this.scPos = null; // Not computed yet.
+        this.scVel = null; // Not computed yet.
+        this.timeAtTarget = -1.; // Not computed yet.
+        this.j2000ToTargetRotation = null; // Not computed yet.
+        this.scToTargetRotation = null; // Not computed yet.
+    }
+
+    /**
+     * @return the time (at the spacecraft), TDB
+     */
+    double getTime()
+    {
+        return time;
+    }
+
+    /**
+     * @return the aberration correction applied to all quantities
+     */
+    AberrationCorrection getCorrection()
+    {
+        return correction;
+    }
+
+    /**
+     * @return the time at which the light received at the spacecraft left the
+     *         target, TDB
+     */
+    synchronized double getTimeAtTarget()
+    {
+        computeScPosition();
+
+        return timeAtTarget;
+    }
+
+    /**
+     * @return the position of the spacecraft relative to the target, in the
+     *         target frame
+     */
+    synchronized UnwritableVectorIJK getScPosition()
+    {
+        computeScPosition();
+
+        return scPos;
+    }
+
+    /**
+     * @return the velocity of the spacecraft relative to the target, in the
+     *         target frame
+     */
+    synchronized UnwritableVectorIJK getScVelocity()
+    {
+        if (scVel == null)
+        {
+            if (warmStart)
+            {
+                computeScPosition();
+
+                scVel = UnwritableVectorIJK.copyOf(getTargetFromSc().getState(time).getVelocity().negate());
+            }
+            else
+            {
+                computeScState();
+            }
+        }
+
+        return scVel;
+    }
+
+    /**
+     * @return the rotation from the spacecraft frame to the target frame
+     */
+    synchronized UnwritableMatrixIJK getScRotation()
+    {
+        return getScToTargetRotation();
+    }
+
+    /**
+     * Compute the rotation from a frame that is a fixed offset from the
+     * spacecraft frame to the target frame, from the constant rotation between
+     * the frame and the spacecraft frame and the spacecraft attitude, which is
+     * evaluated once per epoch and shared with {@link #getScRotation()}.
+     *
+     * @param toScRotation the constant rotation from the frame to the
+     *            spacecraft frame
+     * @return the rotation
+     */
+    synchronized RotationMatrixIJK computeRotationToTargetFrame(UnwritableRotationMatrixIJK toScRotation)
+    {
+        return RotationMatrixIJK.mxm(getScToTargetRotation(), toScRotation);
+    }
+
+    private RotationMatrixIJK getScToTargetRotation()
+    {
+        if (scToTargetRotation == null)
+        {
+            SpiceFunctions functions = this.functions.get();
+
+            scToTargetRotation = RotationMatrixIJK.mxm(getJ2000ToTargetRotation(), functions.getFrameTransformFunction(scFrame, CelestialFrames.J2000).getTransform(time));
+        }
+
+        return scToTargetRotation;
+    }
+
+    /**
+     * Return the position of the specified body relative to the target, in
+     * the target frame, evaluated at the time at the target.
+     *
+     * @param bodyId the body
+     * @return the position
+     */
+    UnwritableVectorIJK getPosition(EphemerisID bodyId)
+    {
+        UnwritableStateVector bodyState;
+        double timeAtTarget;
+        synchronized (this)
+        {
+            bodyState = bodyStates.get(bodyId);
+            if (bodyState != null)
+            {
+                return bodyState.getPosition();
+            }
+
+            computeScPosition(); // for timeAtTarget
+            timeAtTarget = this.timeAtTarget;
+        }
+
+        // Evaluated without the lock, so that several threads may evaluate
+        // the positions of different bodies at once.
+        AberratedStateVectorFunction bodyFromTarget = functions.get().getStateVectorFunction(bodyId, targetId, targetFrame, correction);
+        bodyState = UnwritableStateVector.copyOf(bodyFromTarget.getState(timeAtTarget));
+
+        synchronized (this)
+        {
+            UnwritableStateVector previous = bodyStates.putIfAbsent(bodyId, bodyState);
+
+            return (previous != null ? previous : bodyState).getPosition();
+        }
+    }
+
+    /**
+     * Compute rotation from a non-inertial frame to the target body frame,
+     * using J2000 as intermediary in order to factor in light-time corrected
+     * time-at-target accurately.
+     * <p>
+     * Note that there are two input times involved in this computation: the
+     * time (at spacecraft) and the timeAtTarget (at target body). Only the
+     * first step depends on the frame being rotated; the second is shared by
+     * all frames.
+     *
+     * @param fromFrame identifier of frame to be rotated to the target body
+     *            frame
+     * @return the rotation
+     */
+    synchronized RotationMatrixIJK computeRotationToTargetFrame(FrameID fromFrame)
+    {
+        if (scFrame.equals(fromFrame))
+        {
+            return new RotationMatrixIJK(getScToTargetRotation());
+        }
+
+        SpiceFunctions functions = this.functions.get();
+
+        return RotationMatrixIJK.mxm(getJ2000ToTargetRotation(), functions.getFrameTransformFunction(fromFrame, CelestialFrames.J2000).getTransform(time));
+    }
+
+    private RotationMatrixIJK getJ2000ToTargetRotation()
+    {
+        if (j2000ToTargetRotation == null)
+        {
+            computeScPosition(); // for timeAtTarget.
+
+            j2000ToTargetRotation = functions.get().getFrameTransformFunction(CelestialFrames.J2000, targetFrame).getTransform(timeAtTarget);
+        }
+
+        return j2000ToTargetRotation;
+    }
+
+    private AberratedStateVectorFunction getTargetFromSc()
+    {
+        return functions.get().getStateVectorFunction(targetId, scId, targetFrame, correction);
+    }
+
+    /**
+     * Compute and cache timeAtTarget and scPos, using the light-time solver if
+     * warm-starting, otherwise along with scVel.
+     */
+    private void computeScPosition()
+    {
+        if (scPos == null)
+        {
+            if (warmStart)
+            {
+                SpiceFunctions functions = this.functions.get();
+
+                // Position of the target relative to the spacecraft, in J2000.
+                VectorIJK position = new VectorIJK();
+                timeAtTarget = time - functions.getLightTimeSolver(targetId, scId, correction).solve(time, position);
+
+                // Not getJ2000ToTargetRotation(), which would come back here
+                // because scPos is not yet set.
+                if (j2000ToTargetRotation == null)
+                {
+                    j2000ToTargetRotation = functions.getFrameTransformFunction(CelestialFrames.J2000, targetFrame).getTransform(timeAtTarget);
+                }
+
+                scPos = UnwritableVectorIJK.copyOf(j2000ToTargetRotation.mxv(position).negate());
+            }
+            else
+            {
+                computeScState();
+            }
+        }
+    }
+
+    /**
+     * Compute and cache timeAtTarget, scPos, scVel
+     */
+    private void computeScState()
+    {
+        if (scPos == null || scVel == null)
+        {
+            AberratedStateVectorFunction targetFromSc = getTargetFromSc();
+
+            // Need spacecraft-from-target as well as the target-from-spacecraft
+            // frame calculations.
+            StateVectorFunction scFromTarget = StateVectorFunctions.negate(targetFromSc);
+
+            // Get state of spacecraft relative to target body.
+            StateVector scState = scFromTarget.getState(time);
+
+            // Without correction, everything is evaluated at the same time.
+            timeAtTarget = correction != AberrationCorrection.NONE ? time - targetFromSc.getLightTime(time) : time;
+
+            scVel = UnwritableVectorIJK.copyOf(scState.getVelocity());
+
+            scPos = UnwritableVectorIJK.copyOf(scState.getPosition());
+        }
+    }
+
+}
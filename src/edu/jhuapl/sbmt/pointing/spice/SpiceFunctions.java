@@ -0,0 +1,204 @@
+package edu.jhuapl.sbmt.pointing.spice;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import com.google.common.base.Preconditions;
+
+import picante.mechanics.CelestialBodies;
+import picante.mechanics.CelestialFrames;
+import picante.mechanics.Coverage;
+import picante.mechanics.EphemerisID;
+import picante.mechanics.FrameID;
+import picante.mechanics.FrameTransformFunction;
+import picante.mechanics.providers.aberrated.AberratedEphemerisProvider;
+import picante.mechanics.providers.aberrated.AberratedStateVectorFunction;
+import picante.mechanics.providers.aberrated.AberrationCorrection;
+
+/**
+ * Cache of the state vector and frame transform functions created from one
+ * {@link AberratedEphemerisProvider}. Creating one of these functions resolves
+ * the chain of ephemeris/frame sources linking its two end points, which does
+ * not depend on time, so each combination of end points is only resolved once
+ * and the function is then reused for every evaluation.
+ * <p>
+ * Like the functions it holds, this class is not thread safe; each instance
+ * must be confined to the thread that uses its ephemeris provider (see
+ * {@link SpicePointingProvider#getFunctions()}).
+ */
+final class SpiceFunctions
+{
+    /**
+     * Source of the functions held by a {@link SpiceFunctions}, called once
+     * for each combination of end points. The source of a provider's functions
+     * is its {@link AberratedEphemerisProvider}.
+     */
+    interface Source
+    {
+        AberratedStateVectorFunction createStateVectorFunction(EphemerisID targetId, EphemerisID observerId, FrameID frameId, AberrationCorrection correction);
+
+        FrameTransformFunction createFrameTransformFunction(FrameID fromId, FrameID toId);
+    }
+
+    private final Source source;
+    private final Map<Key, AberratedStateVectorFunction> stateFunctions;
+    private final Map<Key, FrameTransformFunction> frameFunctions;
+    private final Map<Key, LightTimeSolver> lightTimeSolvers;
+
+    /**
+     * Create a cache of the functions of the specified ephemeris provider,
+     * which are valid for all time.
+     *
+     * @param ephProvider the ephemeris provider
+     */
+    SpiceFunctions(AberratedEphemerisProvider ephProvider)
+    {
+        this(sourceOf(ephProvider));
+    }
+
+    /**
+     * Create a cache of the functions created by the specified source.
+     *
+     * @param source the source
+     */
+    SpiceFunctions(Source source)
+    {
+        this.source = Preconditions.checkNotNull(source);
+        this.stateFunctions = new HashMap<>();
+        this.frameFunctions = new HashMap<>();
+        this.lightTimeSolvers = new HashMap<>();
+    }
+
+    /**
+     * Return the function giving the state of the target relative to the
+     * observer in the specified frame, with the specified aberration
+     * correction, creating it the first time it is requested.
+     *
+     * @param targetId the target
+     * @param observerId the observer
+     * @param frameId the frame in which to express the state
+     * @param correction the aberration correction
+     * @return the function
+     */
+    AberratedStateVectorFunction getStateVectorFunction(EphemerisID targetId, EphemerisID observerId, FrameID frameId, AberrationCorrection correction)
+    {
+        Key key = new Key(targetId, observerId, frameId, correction);
+        AberratedStateVectorFunction result = stateFunctions.get(key);
+        if (result == null)
+        {
+            result = source.createStateVectorFunction(targetId, observerId, frameId, correction);
+            stateFunctions.put(key, result);
+        }
+
+        return result;
+    }
+
+    /**
+     * Return the function transforming vectors from one frame to another,
+     * creating it the first time it is requested.
+     *
+     * @param fromId the frame from which to transform
+     * @param toId the frame to which to transform
+     * @return the function
+     */
+    FrameTransformFunction getFrameTransformFunction(FrameID fromId, FrameID toId)
+    {
+        Key key = new Key(fromId, toId, null, null);
+        FrameTransformFunction result = frameFunctions.get(key);
+        if (result == null)
+        {
+            result = source.createFrameTransformFunction(fromId, toId);
+            frameFunctions.put(key, result);
+        }
+
+        return result;
+    }
+
+    /**
+     * Return the solver for the light-time corrected position of the target
+     * relative to the observer, creating it the first time it is requested.
+     * The solver is warm-started from the last epoch it solved, so successive
+     * requests from this thread share its state.
+     *
+     * @param targetId the target
+     * @param observerId the observer
+     * @param correction the aberration correction, {@link AberrationCorrection#LT}
+     *            or {@link AberrationCorrection#LT_S}
+     * @return the solver, which gives positions in the J2000 frame
+     */
+    LightTimeSolver getLightTimeSolver(EphemerisID targetId, EphemerisID observerId, AberrationCorrection correction)
+    {
+        Key key = new Key(targetId, observerId, CelestialFrames.J2000, correction);
+        LightTimeSolver result = lightTimeSolvers.get(key);
+        if (result == null)
+        {
+            AberratedStateVectorFunction targetFromSsb = getStateVectorFunction(targetId, CelestialBodies.SOLAR_SYSTEM_BARYCENTER, CelestialFrames.J2000, AberrationCorrection.NONE);
+            AberratedStateVectorFunction observerFromSsb = getStateVectorFunction(observerId, CelestialBodies.SOLAR_SYSTEM_BARYCENTER, CelestialFrames.J2000, AberrationCorrection.NONE);
+            result = new LightTimeSolver(targetFromSsb, observerFromSsb, correction);
+            lightTimeSolvers.put(key, result);
+        }
+
+        return result;
+    }
+
+    private static Source sourceOf(AberratedEphemerisProvider ephProvider)
+    {
+        Preconditions.checkNotNull(ephProvider);
+
+        return new Source() {
+
+            @Override
+            public AberratedStateVectorFunction createStateVectorFunction(EphemerisID targetId, EphemerisID observerId, FrameID frameId, AberrationCorrection correction)
+            {
+                return ephProvider.createAberratedStateVectorFunction(targetId, observerId, frameId, Coverage.ALL_TIME, correction);
+            }
+
+            @Override
+            public FrameTransformFunction createFrameTransformFunction(FrameID fromId, FrameID toId)
+            {
+                return ephProvider.createFrameTransformFunction(fromId, toId, Coverage.ALL_TIME);
+            }
+        };
+    }
+
+    private static final class Key
+    {
+        private final Object from;
+        private final Object to;
+        private final FrameID frame;
+        private final AberrationCorrection correction;
+        private final int hashCode;
+
+        Key(Object from, Object to, FrameID frame, AberrationCorrection correction)
+        {
+            this.from = from;
+            this.to = to;
+            this.frame = frame;
+            this.correction = correction;
+            this.hashCode = Objects.hash(from, to, frame, correction);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (this == obj)
+            {
+                return true;
+            }
+            if (!(obj instanceof Key))
+            {
+                return false;
+            }
+            Key other = (Key) obj;
+            return hashCode == other.hashCode && from.equals(other.from) && to.equals(other.to) && Objects.equals(frame, other.frame) && correction == other.correction;
+        }
+    }
+
+}
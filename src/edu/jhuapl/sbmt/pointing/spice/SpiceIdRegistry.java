@@ -0,0 +1,81 @@
+package edu.jhuapl.sbmt.pointing.spice;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.google.common.base.Preconditions;
+
+import picante.mechanics.EphemerisID;
+import picante.mechanics.FrameID;
+import picante.mechanics.utilities.SimpleEphemerisID;
+import picante.mechanics.utilities.SimpleFrameID;
+
+/**
+ * Interned {@link EphemerisID}s and {@link FrameID}s, one instance per name.
+ * The simple identifier implementations are compared by identity, so every
+ * lookup of a body or frame must use the same instance that was bound in the
+ * SPICE environment; this registry is where that instance comes from (see
+ * {@link SpicePointingProvider#getEphemerisId(String)} and
+ * {@link SpicePointingProvider#getFrameId(String)}).
+ * <p>
+ * Lookups of names that have already been registered neither lock nor
+ * allocate, so callers may look identifiers up by name as often as they need
+ * to, from any thread.
+ */
+public final class SpiceIdRegistry
+{
+    private static final ConcurrentMap<String, EphemerisID> EphemerisIds = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, FrameID> FrameIds = new ConcurrentHashMap<>();
+
+    private SpiceIdRegistry()
+    {
+        throw new AssertionError();
+    }
+
+    /**
+     * Return the unique {@link EphemerisID} for the specified name, creating
+     * it the first time the name is used.
+     *
+     * @param name the body name
+     * @return the identifier
+     */
+    public static EphemerisID getEphemerisId(String name)
+    {
+        // Fast path: a plain get never locks.
+        EphemerisID result = EphemerisIds.get(name);
+        if (result == null)
+        {
+            Preconditions.checkNotNull(name);
+            Preconditions.checkArgument(!name.isBlank());
+
+            // TODO see if the name can retrieve a CelestialBodies ephemeris id
+            result = EphemerisIds.computeIfAbsent(name, SimpleEphemerisID::new);
+        }
+
+        return result;
+    }
+
+    /**
+     * Return the unique {@link FrameID} for the specified name, creating it the
+     * first time the name is used.
+     *
+     * @param name the frame name
+     * @return the identifier
+     */
+    public static FrameID getFrameId(String name)
+    {
+        // Fast path: a plain get never locks.
+        FrameID result = FrameIds.get(name);
+        if (result == null)
+        {
+            Preconditions.checkNotNull(name);
+            Preconditions.checkArgument(!name.isBlank());
+
+            // TODO see if the name can retrieve a CelestialFrames frame id
+            result = FrameIds.computeIfAbsent(name, SimpleFrameID::new);
+        }
+
+        return result;
+    }
+
+}
@@ -2,6 +2,7 @@ package edu.jhuapl.sbmt.pointing.spice;
 
 import java.io.File;
 import java.util.Arrays;
+import java.util.Objects;
 
 import edu.jhuapl.ses.jsqrl.api.Key;
 import edu.jhuapl.ses.jsqrl.api.Metadata;
@@ -161,6 +162,28 @@ public class SpiceInfo
 		return instrumentFrameNamesToBind;
 	}
 
+	@Override
+	public int hashCode()
+	{
+		return Objects.hash(scId, bodyFrameName, scFrameName, bodyName, Arrays.hashCode(bodyNamesToBind), Arrays.hashCode(bodyFramesToBind),
+				Arrays.hashCode(instrumentNamesToBind), Arrays.hashCode(instrumentFrameNamesToBind));
+	}
+
+	@Override
+	public boolean equals(Object obj)
+	{
+		if (this == obj)
+			return true;
+		if (!(obj instanceof SpiceInfo))
+			return false;
+		SpiceInfo other = (SpiceInfo) obj;
+		return Objects.equals(scId, other.scId) && Objects.equals(bodyFrameName, other.bodyFrameName)
+				&& Objects.equals(scFrameName, other.scFrameName) && Objects.equals(bodyName, other.bodyName)
+				&& Arrays.equals(bodyNamesToBind, other.bodyNamesToBind) && Arrays.equals(bodyFramesToBind, other.bodyFramesToBind)
+				&& Arrays.equals(instrumentNamesToBind, other.instrumentNamesToBind)
+				&& Arrays.equals(instrumentFrameNamesToBind, other.instrumentFrameNamesToBind);
+	}
+
 	@Override
 	public String toString()
 	{
@@ -1,222 +1,227 @@
 package edu.jhuapl.sbmt.pointing.spice;
 
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 import com.google.common.collect.ImmutableList;
 
 import edu.jhuapl.sbmt.pointing.AbstractInstrumentPointing;
 import edu.jhuapl.sbmt.pointing.InstrumentPointing;
+import picante.math.vectorspace.MatrixIJK;
 import picante.math.vectorspace.RotationMatrixIJK;
 import picante.math.vectorspace.UnwritableMatrixIJK;
+import picante.math.vectorspace.UnwritableRotationMatrixIJK;
 import picante.math.vectorspace.UnwritableVectorIJK;
-import picante.mechanics.CelestialFrames;
-import picante.mechanics.Coverage;
+import picante.math.vectorspace.VectorIJK;
 import picante.mechanics.EphemerisID;
 import picante.mechanics.FrameID;
 import picante.mechanics.FrameTransformFunction;
 import picante.mechanics.StateTransformFunction;
-import picante.mechanics.StateVector;
-import picante.mechanics.StateVectorFunction;
-import picante.mechanics.StateVectorFunctions;
-import picante.mechanics.UnwritableStateVector;
-import picante.mechanics.providers.aberrated.AberratedEphemerisProvider;
-import picante.mechanics.providers.aberrated.AberratedStateVectorFunction;
-import picante.mechanics.providers.aberrated.AberrationCorrection;
 
 /**
  * SPICE-based implementation of {@link InstrumentPointing}. Mostly immutable,
  * with a few quantities computed on-demand and cached. The FOV in the
- * instrument frame is stored in fields, along with an
- * {@link AberratedEphemerisProvider}, which is used to provide the
- * {@link StateTransformFunction}s and {@link FrameTransformFunction}s necessary
- * for computing quantities for the frame/time of interest.
+ * instrument frame is taken from an {@link InstrumentFov} shared by all
+ * pointings of the same instrument. Quantities that do not depend on the
+ * instrument (spacecraft state, light time, body positions and the rotation
+ * from J2000 to the target frame) are taken from a {@link SpiceEpochContext}
+ * shared by all pointings the provider computes for the same epoch, so only
+ * the instrument frame rotation is computed here. If the instrument frame is a
+ * fixed offset from the spacecraft frame, even that is just the product of the
+ * constant offset and the context's spacecraft rotation.
+ * <p>
+ * The boresight, up direction and frustum corners are rotated into the target
+ * frame and normalized once, the first time any of them is requested, and
+ * kept in packed form (see {@link TargetVectors}). After that, all the getters
+ * (including {@link #getFrustumCorner(int)} and the buffer-filling getters)
+ * are constant-time reads that neither lock nor allocate.
+ * <p>
+ * Instances may be shared between threads: the lazily computed quantities are
+ * computed under the instance's lock and then published through a volatile
+ * field, and the epoch context evaluates the
+ * {@link StateTransformFunction}s and {@link FrameTransformFunction}s it needs
+ * using the functions of the calling thread.
  *
  * @author James Peachey
  *
  */
 final class SpiceInstrumentPointing extends AbstractInstrumentPointing
 {
-    private final AberratedEphemerisProvider ephProvider;
-    private final EphemerisID targetId;
-    private final FrameID targetFrame;
-    private final EphemerisID scId;
-    private final FrameID scFrame;
+    private final SpiceEpochContext context;
     private final FrameID instFrame;
     private final UnwritableVectorIJK boresight; // in instFrame
     private final UnwritableVectorIJK upDir; // in instFrame
     private final List<UnwritableVectorIJK> frustum; // in instFrame
-    private final double time; // TDB
-    // Cached map of other body states (Sun/Earth/etc.) in the target frame.
-    private final Map<EphemerisID, UnwritableStateVector> bodyStates;
-    private UnwritableVectorIJK scPos;
-    private UnwritableVectorIJK scVel;
-    // Time when light left the target, used for computations with an
-    // intermediate inertial frame.
-    private double timeAtTarget;
-    private RotationMatrixIJK scToTargetRotation;
-    private RotationMatrixIJK instToTargetRotation;
+    private final UnwritableRotationMatrixIJK toScRotation; // null unless fixed
+    private volatile TargetVectors targetVectors;
 
     public SpiceInstrumentPointing( //
-            AberratedEphemerisProvider ephProvider, //
-            EphemerisID targetId, //
-            FrameID targetFrame, //
-            EphemerisID scId, //
-            FrameID scFrame, //
+            SpiceEpochContext context, //
             FrameID instFrame, //
-            UnwritableVectorIJK boresight, //
-            UnwritableVectorIJK upDir, //
-            List<UnwritableVectorIJK> frustum, //
-            double time //
+            InstrumentFov fov //
     )
     {
-        this.ephProvider = ephProvider;
-        this.targetId = targetId;
-        this.targetFrame = targetFrame;
-        this.scId = scId;
-        this.scFrame = scFrame;
+        this.context = context;
         this.instFrame = instFrame;
-        this.boresight = normalize(boresight);
-        this.upDir = normalize(upDir);
-        this.frustum = frustum;
-        this.time = time;
-        this.bodyStates = new HashMap<>(); // Not populated yet.
-        this.scPos = null; // Not computed yet.
-        this.timeAtTarget = -1.; // Not computed yet.
-        this.scToTargetRotation = null; // Not computed yet.
-        this.instToTargetRotation = null; // Not computed yet.
+        // The FOV vectors are already unit vectors.
+        this.boresight = fov.getBoresight();
+        this.upDir = fov.getUpDirection();
+        this.frustum = fov.getFrustum();
+        this.toScRotation = fov.getToScRotation();
+        this.targetVectors = null; // Not computed yet.
     }
 
     @Override
     public UnwritableVectorIJK getScPosition()
     {
-        computeScPointing();
-
-        return scPos;
+        return context.getScPosition();
     }
 
     @Override
     public UnwritableVectorIJK getScVelocity()
     {
-        computeScPointing();
-
-        return scVel;
+        return context.getScVelocity();
     }
 
     @Override
     public UnwritableMatrixIJK getScRotation()
     {
-        if (scToTargetRotation == null)
-        {
-            scToTargetRotation = computeRotationToTargetFrame(scFrame);
-        }
-
-        return scToTargetRotation;
+        return context.getScRotation();
     }
 
     @Override
     public UnwritableVectorIJK getPosition(EphemerisID bodyId)
     {
-        UnwritableStateVector bodyState = bodyStates.get(bodyId);
-        if (bodyState == null)
-        {
-            computeScPointing(); // for timeAtTarget
-
-            AberratedStateVectorFunction bodyFromTarget = ephProvider.createAberratedStateVectorFunction(bodyId, targetId, targetFrame, Coverage.ALL_TIME, AberrationCorrection.LT_S);
-            bodyState = UnwritableStateVector.copyOf(bodyFromTarget.getState(timeAtTarget));
-
-            bodyStates.put(bodyId, bodyState);
-        }
-
-        return bodyState.getPosition();
+        return context.getPosition(bodyId);
     }
 
     @Override
     public UnwritableVectorIJK getBoresight()
     {
-        computeRotationToTargetFromInst();
-
-        return normalize(instToTargetRotation.mxv(boresight));
+        return getTargetVectors().boresight;
     }
 
     @Override
     public UnwritableVectorIJK getUpDirection()
     {
-        computeRotationToTargetFromInst();
-
-        return normalize(instToTargetRotation.mxv(upDir));
+        return getTargetVectors().upDir;
     }
 
     @Override
     public List<UnwritableVectorIJK> getFrustum()
     {
-        computeRotationToTargetFromInst();
+        return getTargetVectors().frustum;
+    }
 
-        ImmutableList.Builder<UnwritableVectorIJK> builder = ImmutableList.builder();
-        for (UnwritableVectorIJK vector : frustum)
-        {
-            builder.add(normalize(instToTargetRotation.mxv(vector)));
-        }
+    @Override
+    public UnwritableVectorIJK getFrustumCorner(int index)
+    {
+        return getTargetVectors().frustum.get(index);
+    }
 
-        return builder.build();
+    @Override
+    public VectorIJK getScPosition(VectorIJK into)
+    {
+        return into.setTo(context.getScPosition());
     }
 
-    /**
-     * Compute and cache timeAtTarget, scPos, scVel
-     */
-    private void computeScPointing()
+    @Override
+    public VectorIJK getScVelocity(VectorIJK into)
     {
-        if (scPos == null)
-        {
-            AberratedStateVectorFunction targetFromSc = ephProvider.createAberratedStateVectorFunction(targetId, scId, targetFrame, Coverage.ALL_TIME, AberrationCorrection.LT_S);
+        return into.setTo(context.getScVelocity());
+    }
 
-            // Need spacecraft-from-target as well as the target-from-spacecraft
-            // frame calculations.
-            StateVectorFunction scFromTarget = StateVectorFunctions.negate(targetFromSc);
+    @Override
+    public MatrixIJK getScRotation(MatrixIJK into)
+    {
+        return into.setTo(context.getScRotation());
+    }
+
+    @Override
+    public VectorIJK getBoresight(VectorIJK into)
+    {
+        double[] values = getTargetVectors().values;
+
+        return into.setTo(values[TargetVectors.BORESIGHT], values[TargetVectors.BORESIGHT + 1], values[TargetVectors.BORESIGHT + 2]);
+    }
 
-            // Get state of spacecraft relative to target body.
-            StateVector scState = scFromTarget.getState(time);
+    @Override
+    public VectorIJK getUpDirection(VectorIJK into)
+    {
+        double[] values = getTargetVectors().values;
 
-            timeAtTarget = time - targetFromSc.getLightTime(time);
+        return into.setTo(values[TargetVectors.UP_DIRECTION], values[TargetVectors.UP_DIRECTION + 1], values[TargetVectors.UP_DIRECTION + 2]);
+    }
 
-            scVel = UnwritableVectorIJK.copyOf(scState.getVelocity());
+    @Override
+    public double[] getFrustum(double[] into, int offset)
+    {
+        System.arraycopy(getTargetVectors().values, TargetVectors.FRUSTUM, into, offset, 12);
 
-            scPos = UnwritableVectorIJK.copyOf(scState.getPosition());
-        }
+        return into;
     }
 
-    private void computeRotationToTargetFromInst()
+    private TargetVectors getTargetVectors()
     {
-        if (instToTargetRotation == null)
+        TargetVectors result = targetVectors;
+        if (result == null)
         {
-            instToTargetRotation = computeRotationToTargetFrame(instFrame);
+            synchronized (this)
+            {
+                result = targetVectors;
+                if (result == null)
+                {
+                    RotationMatrixIJK rotation = toScRotation != null ? context.computeRotationToTargetFrame(toScRotation) : context.computeRotationToTargetFrame(instFrame);
+                    result = new TargetVectors(rotation, boresight, upDir, frustum);
+                    targetVectors = result;
+                }
+            }
         }
+
+        return result;
     }
 
     /**
-     * Compute rotation from a non-inertial frame to the target body frame,
-     * using J2000 as intermediary in order to factor in light-time corrected
-     * time-at-target accurately.
-     * <p>
-     * Note that there are two input times involved in this computation: the
-     * time (at spacecraft) and the timeAtTarget (at target body)
-     *
-     * @param fromFrame identifier of frame to be rotated to the target body
-     *            frame
+     * The boresight, up direction and frustum corners rotated into the target
+     * frame and normalized, packed in one array, together with the immutable
+     * vectors returned by the getters, which are views of the same values.
      */
-    private RotationMatrixIJK computeRotationToTargetFrame(FrameID fromFrame)
+    private static final class TargetVectors
     {
-        computeScPointing(); // for timeAtTarget.
+        static final int BORESIGHT = 0;
+        static final int UP_DIRECTION = 3;
+        static final int FRUSTUM = 6;
 
-        // Need to do two-step transformation here. Convert first to an
-        // inertial frame at time = time:
-        FrameTransformFunction toJ2000 = ephProvider.createFrameTransformFunction(fromFrame, CelestialFrames.J2000, Coverage.ALL_TIME);
+        private final double[] values;
+        private final UnwritableVectorIJK boresight;
+        private final UnwritableVectorIJK upDir;
+        private final ImmutableList<UnwritableVectorIJK> frustum;
 
-        // Then from J2000 to target body frame at time = timeAtTarget.
-        FrameTransformFunction j2000ToTarget = ephProvider.createFrameTransformFunction(CelestialFrames.J2000, targetFrame, Coverage.ALL_TIME);
+        TargetVectors(RotationMatrixIJK instToTarget, UnwritableVectorIJK boresight, UnwritableVectorIJK upDir, List<UnwritableVectorIJK> frustum)
+        {
+            this.values = new double[FRUSTUM + 3 * frustum.size()];
+
+            PackedRotations.rotateUnit(instToTarget, boresight, values, BORESIGHT);
+            PackedRotations.rotateUnit(instToTarget, upDir, values, UP_DIRECTION);
+            for (int corner = 0; corner < frustum.size(); ++corner)
+            {
+                PackedRotations.rotateUnit(instToTarget, frustum.get(corner), values, FRUSTUM + 3 * corner);
+            }
+
+            this.boresight = toVector(BORESIGHT);
+            this.upDir = toVector(UP_DIRECTION);
+
+            ImmutableList.Builder<UnwritableVectorIJK> builder = ImmutableList.builder();
+            for (int corner = 0; corner < frustum.size(); ++corner)
+            {
+                builder.add(toVector(FRUSTUM + 3 * corner));
+            }
+            this.frustum = builder.build();
+        }
 
-        return RotationMatrixIJK.mxm(j2000ToTarget.getTransform(timeAtTarget), toJ2000.getTransform(time));
+        private UnwritableVectorIJK toVector(int offset)
+        {
+            return new UnwritableVectorIJK(values[offset], values[offset + 1], values[offset + 2]);
+        }
     }
 
 }
@@ -2,41 +2,51 @@ package edu.jhuapl.sbmt.pointing.spice;
 
 import java.io.File;
 import java.io.IOException;
+import java.lang.ref.Cleaner;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
-
-import org.apache.commons.lang3.tuple.Triple;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.beust.jcommander.internal.Lists;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
+import com.google.common.primitives.Doubles;
+import com.google.common.primitives.Ints;
 
 import edu.jhuapl.sbmt.pointing.IPointingProvider;
 import edu.jhuapl.sbmt.pointing.InstrumentPointing;
+import edu.jhuapl.sbmt.pointing.PointingBatch;
 import picante.designpatterns.BuildFailedException;
 import picante.math.PicanteMath;
 import picante.math.cones.Cones;
 import picante.math.cones.PolygonalCone;
+import picante.math.vectorspace.RotationMatrixIJK;
+import picante.math.vectorspace.UnwritableRotationMatrixIJK;
 import picante.math.vectorspace.UnwritableVectorIJK;
 import picante.math.vectorspace.VectorIJK;
+import picante.mechanics.CelestialFrames;
 import picante.mechanics.EphemerisID;
 import picante.mechanics.FrameID;
+import picante.mechanics.FrameTransformFunction;
+import picante.mechanics.PositionVectorFunction;
+import picante.mechanics.StateVector;
 import picante.mechanics.providers.aberrated.AberratedEphemerisProvider;
-import picante.mechanics.utilities.SimpleEphemerisID;
-import picante.mechanics.utilities.SimpleFrameID;
+import picante.mechanics.providers.aberrated.AberratedStateVectorFunction;
+import picante.mechanics.providers.aberrated.AberrationCorrection;
 import picante.spice.SpiceEnvironment;
 import picante.spice.SpiceEnvironmentBuilder;
 import picante.spice.adapters.AdapterInstantiationException;
 import picante.spice.kernel.KernelInstantiationException;
 import picante.spice.kernelpool.UnwritableKernelPool;
+import picante.spice.kernelpool.parser.ParseException;
 
 /**
  * Provider of {@link InstrumentPointing} vectors from SPICE kernels. Each
@@ -55,35 +65,48 @@ import picante.spice.kernelpool.UnwritableKernelPool;
  */
 public abstract class SpicePointingProvider implements IPointingProvider
 {
-    private static final Map<String, EphemerisID> EphemerisIds = new HashMap<>();
-    private static final Map<String, FrameID> FrameIds = new HashMap<>();
-    private static final Map<Triple<Double, FrameID, FrameID>, SpiceInstrumentPointing> previousPointings = new HashMap<Triple<Double, FrameID, FrameID>, SpiceInstrumentPointing>();
-    private String currentInstName;
+    /**
+     * Number of recent epochs whose {@link SpiceEpochContext}s are retained so
+     * that pointings for different instruments at the same time can share
+     * them. Pointings keep their own context, so this only needs to cover the
+     * epochs likely to be queried together.
+     */
+    private static final int EPOCH_CONTEXT_CACHE_SIZE = 1000;
+
+    /**
+     * The aberration correction used unless another is selected with
+     * {@link Builder#aberrationCorrection(AberrationCorrection)}.
+     */
+    public static final AberrationCorrection DEFAULT_ABERRATION_CORRECTION = AberrationCorrection.LT_S;
+    // Closes the persistent stores of unreachable providers.
+    private static final Cleaner StoreCleaner = Cleaner.create();
+    private final PointingCache<InstrumentPointing> pointingCache;
+    private final Map<String, InstrumentFov> instrumentFovs;
+    private final PerThreadValue<SpiceFunctions> functions;
+    private final PointingCache<SpiceEpochContext> epochContexts;
+    private volatile KernelPoolIndex kernelPoolIndex;
+    private PersistentPointingStore persistentStore;
+    private List<? extends FrameTransformFunction> frameSources;
+    private List<? extends PositionVectorFunction> ephemerisSources;
+    private volatile CoverageIndex scCoverage;
+    private final Map<String, CoverageIndex> instrumentCoverages;
+    private AberrationCorrection aberrationCorrection;
+    private boolean warmStartLightTime;
+    private volatile String currentInstName;
 
     /**
      * Utility method for obtaining an {@link EphemerisID} for the specified
      * spacecraft/body. Presumably the name will be
      * NAIF-assigned/NAIF-compliant, but the only real requirement is that the
      * loaded kernels be aware of and have the necessary data associated with
-     * this name.
+     * this name. The identifier is interned in the {@link SpiceIdRegistry}.
      *
      * @param name spacecraft/body ID string
      * @return the {@link EphemerisID}
      */
     public static EphemerisID getEphemerisId(String name)
     {
-        Preconditions.checkNotNull(name);
-        Preconditions.checkArgument(!name.isBlank());
-
-        EphemerisID result = EphemerisIds.get(name);
-        if (result == null)
-        {
-            // TODO see if the name can retrieve a CelestialBodies ephemeris id
-            result = new SimpleEphemerisID(name);
-            EphemerisIds.put(name, result);
-        }
-
-        return result;
+        return SpiceIdRegistry.getEphemerisId(name);
     }
 
     /**
@@ -91,25 +114,14 @@ public abstract class SpicePointingProvider implements IPointingProvider
      * spacecraft/body frame. Presumably the frame name will be
      * NAIF-assigned/NAIF-compliant, but the only real requirement is that the
      * loaded kernels be aware of this frame and have the neceessary data
-     * loaded.
+     * loaded. The identifier is interned in the {@link SpiceIdRegistry}.
      *
      * @param name spacecraft/body frame ID string
      * @return the {@link FrameID}
      */
     public static FrameID getFrameId(String name)
     {
-        Preconditions.checkNotNull(name);
-        Preconditions.checkArgument(!name.isBlank());
-
-        FrameID result = FrameIds.get(name);
-        if (result == null)
-        {
-            // TODO see if the name can retrieve a CelestialFrames frame id
-            result = new SimpleFrameID(name);
-            FrameIds.put(name, result);
-        }
-
-        return result;
+        return SpiceIdRegistry.getFrameId(name);
     }
 
     /**
@@ -133,16 +145,45 @@ public abstract class SpicePointingProvider implements IPointingProvider
         private final FrameID targetFrame;
         private final EphemerisID scId;
         private final FrameID scFrame;
+        private final List<File> kernels;
         private final Map<String, Integer> instNameToIdMap;
         private final Map<String, FrameID> instNameToFrameIdMap;
         private boolean instMapsInitialized;
         private final Set<String> includedInstruments;
+        private int pointingCacheSize;
+        private double pointingCacheTimeQuantum;
+        private double pointingCacheTolerance;
+        private Path persistentStoreDirectory;
+        private int persistentStoreCapacity;
+        private AberrationCorrection aberrationCorrection;
+        private boolean warmStartLightTime;
+        private boolean concurrent;
 
         protected Builder(SpiceEnvironmentBuilder builder, EphemerisID targetId, FrameID targetFrame, EphemerisID scId, FrameID scFrame)
+        {
+            this(builder, null, targetId, targetFrame, scId, scFrame);
+        }
+
+        /**
+         * Create a builder that knows the list of kernel files loaded into the
+         * {@link SpiceEnvironmentBuilder}, so that the instruments can be
+         * discovered by reading only the text kernels in the list.
+         *
+         * @param builder the {@link SpiceEnvironmentBuilder}
+         * @param kernels the kernels loaded into the builder, or null if not
+         *            known, in which case instrument discovery requires building
+         *            a complete {@link SpiceEnvironment}
+         * @param targetId the target body
+         * @param targetFrame the target frame
+         * @param scId the spacecraft
+         * @param scFrame the spacecraft frame
+         */
+        protected Builder(SpiceEnvironmentBuilder builder, List<File> kernels, EphemerisID targetId, FrameID targetFrame, EphemerisID scId, FrameID scFrame)
         {
             super();
 
             this.builder = builder;
+            this.kernels = kernels != null ? ImmutableList.copyOf(kernels) : null;
             this.targetId = targetId;
             this.targetFrame = targetFrame;
             this.scId = scId;
@@ -151,6 +192,14 @@ public abstract class SpicePointingProvider implements IPointingProvider
             this.instNameToFrameIdMap = new LinkedHashMap<>();
             this.instMapsInitialized = false;
             this.includedInstruments = new LinkedHashSet<>();
+            this.pointingCacheSize = PointingCache.DEFAULT_MAXIMUM_SIZE;
+            this.pointingCacheTimeQuantum = 0.;
+            this.pointingCacheTolerance = 0.;
+            this.persistentStoreDirectory = null;
+            this.persistentStoreCapacity = PersistentPointingStore.DEFAULT_CAPACITY;
+            this.aberrationCorrection = DEFAULT_ABERRATION_CORRECTION;
+            this.warmStartLightTime = false;
+            this.concurrent = false;
         }
 
         /**
@@ -350,6 +399,172 @@ public abstract class SpicePointingProvider implements IPointingProvider
             return this;
         }
 
+        /**
+         * Set the maximum number of {@link InstrumentPointing}s the provider
+         * will cache. Once this many pointings have been cached, the least
+         * recently used pointings are discarded to make room for new ones. The
+         * default is {@link PointingCache#DEFAULT_MAXIMUM_SIZE}.
+         *
+         * @param maximumSize the maximum number of cached pointings
+         * @return the builder
+         * @throws IllegalArgumentException if the size is not positive
+         */
+        public Builder pointingCacheSize(int maximumSize)
+        {
+            Preconditions.checkArgument(maximumSize > 0, "Pointing cache size must be positive, not " + maximumSize);
+
+            this.pointingCacheSize = maximumSize;
+            return this;
+        }
+
+        /**
+         * Set the width of the time intervals whose pointings share one cache
+         * entry. Requests for any time within the same multiple of the quantum
+         * (for example, 1 ms, or one tick of the spacecraft clock) return the
+         * pointing computed for the first such time requested, so times that
+         * differ only by round-off still hit the cache. The default is 0, which
+         * requires times to match exactly.
+         *
+         * @param seconds the time quantum, must not be negative
+         * @return the builder
+         */
+        public Builder pointingCacheTimeQuantum(double seconds)
+        {
+            Preconditions.checkArgument(seconds >= 0., "Pointing cache time quantum must not be negative");
+            this.pointingCacheTimeQuantum = seconds;
+            return this;
+        }
+
+        /**
+         * Make the pointing cache return the pointing cached for the nearest
+         * time within the specified tolerance of the requested time, if any.
+         * If no time quantum has been set, the tolerance is also used as the
+         * quantum. The default is 0, which turns this mode off.
+         *
+         * @param seconds the tolerance, must not be negative
+         * @return the builder
+         */
+        public Builder pointingCacheTolerance(double seconds)
+        {
+            Preconditions.checkArgument(seconds >= 0., "Pointing cache tolerance must not be negative");
+            this.pointingCacheTolerance = seconds;
+            return this;
+        }
+
+        /**
+         * Back the provider's pointing cache with an on-disk store in the
+         * specified directory, which may be shared by any number of providers,
+         * in this or other processes. Pointings found in the store are not
+         * recomputed, and pointings that are computed are added to it, so
+         * later sessions that use the same kernels start with a warm cache.
+         * <p>
+         * The store is specific to the exact set of kernels (including the
+         * contents of each kernel file), the target and spacecraft, the
+         * aberration correction and the pointing cache's time quantum and
+         * tolerance (which allow pointings from nearby epochs), so the
+         * builder must know the list of kernels, as it does if it was created
+         * by {@link SpicePointingProvider#builder(Iterable, String, String, String, String)}.
+         * Checksums of the kernel files are recorded in the directory as well,
+         * so a kernel is read to identify the store only when its length or
+         * modification time has changed. Body positions are not stored; they
+         * are computed when requested.
+         *
+         * @param directory the directory in which to keep stores
+         * @param capacity the maximum number of pointings in the store
+         * @return the builder
+         * @throws IllegalStateException if the builder does not know the list
+         *             of kernels
+         */
+        public Builder persistentPointingStore(Path directory, int capacity)
+        {
+            Preconditions.checkNotNull(directory);
+            Preconditions.checkArgument(capacity > 0, "Persistent pointing store capacity must be positive, not " + capacity);
+            Preconditions.checkState(kernels != null, "A persistent pointing store requires the list of kernels");
+
+            this.persistentStoreDirectory = directory;
+            this.persistentStoreCapacity = capacity;
+            return this;
+        }
+
+        /**
+         * Back the provider's pointing cache with an on-disk store of the
+         * default capacity ({@link PersistentPointingStore#DEFAULT_CAPACITY}),
+         * see {@link #persistentPointingStore(Path, int)}.
+         *
+         * @param directory the directory in which to keep stores
+         * @return the builder
+         */
+        public Builder persistentPointingStore(Path directory)
+        {
+            return persistentPointingStore(directory, PersistentPointingStore.DEFAULT_CAPACITY);
+        }
+
+        /**
+         * Set the aberration correction applied to the spacecraft state and to
+         * body positions: {@link AberrationCorrection#NONE} for geometric
+         * quantities, {@link AberrationCorrection#LT} for light time only, or
+         * {@link AberrationCorrection#LT_S} for light time and stellar
+         * aberration. The default is {@link AberrationCorrection#LT_S}.
+         * Uncorrected geometry is cheapest, and is usually adequate for quick
+         * look visualization. The correction may be overridden for individual
+         * batch queries (see
+         * {@link SpicePointingProvider#provide(String, double[], int, AberrationCorrection, PointingBatch)}).
+         *
+         * @param correction the correction
+         * @return the builder
+         * @throws IllegalArgumentException if the correction is not one of
+         *             those listed
+         */
+        public Builder aberrationCorrection(AberrationCorrection correction)
+        {
+            checkSupported(correction);
+
+            this.aberrationCorrection = correction;
+            return this;
+        }
+
+        /**
+         * Select whether to warm-start the light-time solution at each epoch
+         * from the solution at the previous epoch queried by the same thread
+         * (see {@link LightTimeSolver}). This saves an ephemeris evaluation per
+         * epoch and is more accurate than the default single iteration when
+         * queries are time-ordered, as they are for playback or batch queries
+         * over a window; it has no effect on queries far from the previous one,
+         * or without aberration correction. The default is false.
+         *
+         * @param warmStart true to warm-start the light time
+         * @return the builder
+         */
+        public Builder warmStartLightTime(boolean warmStart)
+        {
+            this.warmStartLightTime = warmStart;
+            return this;
+        }
+
+        /**
+         * Select whether the provider will be shared by multiple threads. By
+         * default it is not, and the provider uses a single
+         * {@link AberratedEphemerisProvider} that must not be used by more
+         * than one thread at a time.
+         * <p>
+         * A concurrent provider creates a separate
+         * {@link AberratedEphemerisProvider} for each thread that uses it, all
+         * backed by the same {@link SpiceEnvironment}, so the kernels are only
+         * loaded once. It may then be called from any number of threads
+         * simultaneously. Whether evaluations actually proceed in parallel
+         * depends on the locking performed by the underlying kernel data
+         * sources.
+         *
+         * @param concurrent true to make the provider safe for use by multiple
+         *            threads
+         * @return the builder
+         */
+        public Builder concurrent(boolean concurrent)
+        {
+            this.concurrent = concurrent;
+            return this;
+        }
+
         /**
          * Return this {@link Builder}'s underlying
          * {@link SpiceEnvironmentBuilder}, which may be used prior to calling
@@ -365,65 +580,80 @@ public abstract class SpicePointingProvider implements IPointingProvider
 
         /**
          * This internal method is used to ensure {@link #instNameToIdMap} and
-         * {@link #instNameToFrameIdMap} are properly initialized. Note that
-         * this method causes the internal {@link SpiceEnvironmentBuilder} to
-         * build an environment in order to look up the IK information. The
-         * {@link SpiceEnvironment} that is built is subsequently discarded.
+         * {@link #instNameToFrameIdMap} are properly initialized. If the list
+         * of kernels is known, the IK information is looked up by parsing just
+         * the text kernels and indexing them with a {@link KernelPoolIndex},
+         * so that the {@link SpiceEnvironment} is only built once, by
+         * {@link #build()}. Otherwise, this method causes the internal
+         * {@link SpiceEnvironmentBuilder} to build an environment in order to
+         * look up the IK information. The {@link SpiceEnvironment} that is
+         * built is subsequently discarded.
          */
         protected void initInstrumentMaps()
         {
             if (!instMapsInitialized)
             {
-                SpiceEnvironment spiceEnv = builder.build();
-                UnwritableKernelPool kernelPool = spiceEnv.getPool();
+                UnwritableKernelPool kernelPool = kernels != null ? readTextKernelPool() : builder.build().getPool();
+                KernelPoolIndex index = KernelPoolIndex.of(kernelPool);
 
-                for (String keyword : kernelPool.getKeywords())
+                for (int instrument = 0; instrument < index.getInstrumentCount(); ++instrument)
                 {
-                    String instIdString = keyword.replaceFirst("^INS(.*)_FOV_FRAME", "$1");
-                    if (instIdString.length() != keyword.length() && !instIdString.isBlank())
+                    // Found an FOV frame defined for this instrument identifier.
+                    int instId = index.getInstrumentId(instrument);
+                    String instFrameName = index.getInstrumentFovFrame(instrument);
+                    if (instFrameName == null)
+                    {
+                        throw new BuildFailedException("SPICE kernel error: cannot get FOV frame name from IK keyword INS" + instId + "_FOV_FRAME");
+                    }
+                    if (instFrameName.isBlank())
+                    {
+                        throw new BuildFailedException("SPICE kernel error: blank FOV frame name from IK keyword INS" + instId + "_FOV_FRAME");
+                    }
+
+                    // If the kernel pool includes a name, use it, otherwise
+                    // use the frame name.
+                    String instName = index.getInstrumentName(instrument);
+                    if (instName == null)
                     {
-                        // Found an FOV frame defined for this instrument identifier.
-                        List<String> strings = kernelPool.getStrings(keyword);
-                        if (strings == null || strings.isEmpty())
-                        {
-                            throw new BuildFailedException("SPICE kernel error: cannot get FOV frame name from IK keyword " + keyword);
-                        }
-
-                        String instFrameName = strings.get(0);
-                        if (instFrameName.isBlank())
-                        {
-                            throw new BuildFailedException("SPICE kernel error: blank FOV frame name from IK keyword " + keyword);
-                        }
-
-                        // If the kernel pool includes a name, use it, otherwise
-                        // make one up from the ID.
-                        strings = kernelPool.getStrings(String.format("INS%s_NAME", instIdString));
-                        String instName;
-                        if (strings != null && !strings.isEmpty() && !strings.get(0).isBlank())
-                        {
-                            instName = strings.get(0);
-                        }
-                        else
-                        {
-                        	strings = kernelPool.getStrings(String.format("INS%s_FOV_FRAME", instIdString));
-                        	if (strings != null && !strings.isEmpty() && !strings.get(0).isBlank())
-                            {
-                                instName = strings.get(0);
-                            }
-                        	else
-                        		instName = String.format("INS%s", instIdString);
-                        }
-
-                        int instId = Integer.parseInt(instIdString);
-
-                        instNameToIdMap.put(instName, instId);
-                        instNameToFrameIdMap.put(instName, getFrameId(instFrameName));
+                        instName = instFrameName;
                     }
+
+                    instNameToIdMap.put(instName, instId);
+                    instNameToFrameIdMap.put(instName, getFrameId(instFrameName));
                 }
                 instMapsInitialized = true;
             }
         }
 
+        private UnwritableKernelPool readTextKernelPool()
+        {
+            try
+            {
+                return TextKernelPoolReader.read(kernels);
+            }
+            catch (IOException | ParseException e)
+            {
+                throw new BuildFailedException("SPICE kernel error: cannot read text kernels to find instruments", e);
+            }
+        }
+
+        private PersistentPointingStore openPersistentStore()
+        {
+            try
+            {
+                // The cache quantum and tolerance are included because with
+                // either set, a pointing may be computed from a nearby epoch and
+                // stored under the requested time.
+                byte[] digest = PersistentPointingStore.digest(persistentStoreDirectory, kernels, targetId.getName(), targetFrame.getName(), scId.getName(), scFrame.getName(), aberrationCorrection.name(), Boolean.toString(warmStartLightTime), Double.toString(pointingCacheTimeQuantum), Double.toString(pointingCacheTolerance));
+
+                return PersistentPointingStore.open(persistentStoreDirectory, digest, persistentStoreCapacity);
+            }
+            catch (IOException e)
+            {
+                throw new BuildFailedException("Cannot open persistent pointing store in " + persistentStoreDirectory, e);
+            }
+        }
+
         /**
          * Use the underlying {@link SpiceEnvironmentBuilder} to create a
          * {@link SpiceEnvironment} and, in turn a single-iteration
@@ -459,14 +689,24 @@ public abstract class SpicePointingProvider implements IPointingProvider
 
             UnwritableKernelPool kernelPool = spiceEnv.getPool();
 
-            AberratedEphemerisProvider ephProvider = spiceEnv.createSingleAberratedProvider();
+            // A concurrent provider gives each thread its own ephemeris
+            // provider; otherwise one is shared.
+            final boolean concurrent = this.concurrent;
+            AberratedEphemerisProvider ephProvider = concurrent ? null : spiceEnv.createSingleAberratedProvider();
+            PerThreadValue<AberratedEphemerisProvider> threadEphProviders = concurrent ? new PerThreadValue<>(spiceEnv::createSingleAberratedProvider) : null;
 
-            SpicePointingProvider provider = new SpicePointingProvider() {
+            SpicePointingProvider provider = new SpicePointingProvider(pointingCacheSize, pointingCacheTimeQuantum, pointingCacheTolerance) {
 
                 @Override
                 public AberratedEphemerisProvider getEphemerisProvider()
                 {
-                    return ephProvider;
+                    return concurrent ? threadEphProviders.get() : ephProvider;
+                }
+
+                @Override
+                public boolean isConcurrent()
+                {
+                    return concurrent;
                 }
 
                 @Override
@@ -534,6 +774,15 @@ public abstract class SpicePointingProvider implements IPointingProvider
 
             };
 
+            provider.setCoverageSources(spiceEnv.getFrameSources(), spiceEnv.getEphemerisSources());
+
+            provider.setAberrationCorrection(aberrationCorrection, warmStartLightTime);
+
+            if (persistentStoreDirectory != null)
+            {
+                provider.setPersistentStore(openPersistentStore());
+            }
+
             // If exactly one instrument has been included, make it the current instrument.
             if (instrumentNames.length == 1)
             {
@@ -571,9 +820,10 @@ public abstract class SpicePointingProvider implements IPointingProvider
         // the metakernels.
         SpiceEnvironmentBuilder builder = new SpiceEnvironmentBuilder();
         builder.setIgnoreFaultyFrames(true);
+        List<File> kernels = new ArrayList<>();
         for (Path path : mkPaths)
         {
-            loadAllKernels(builder, path);
+            kernels.addAll(loadAllKernels(builder, path));
         }
 
         // Bind target body ephemeris and frame.
@@ -589,12 +839,51 @@ public abstract class SpicePointingProvider implements IPointingProvider
 
         FrameID scFrame = getFrameId(scFrameName);
         builder.bindFrameID(scFrameName, scFrame);
-        return new Builder(builder, targetId, targetFrame, scId, scFrame);
+        return new Builder(builder, kernels, targetId, targetFrame, scId, scFrame);
     }
 
     protected SpicePointingProvider()
+    {
+        this(PointingCache.DEFAULT_MAXIMUM_SIZE);
+    }
+
+    /**
+     * Create a provider whose pointing cache holds at most the specified
+     * number of pointings.
+     *
+     * @param pointingCacheSize the maximum number of cached pointings
+     */
+    protected SpicePointingProvider(int pointingCacheSize)
+    {
+        this(pointingCacheSize, 0., 0.);
+    }
+
+    /**
+     * Create a provider whose pointing cache holds at most the specified
+     * number of pointings, and matches times using the specified quantum and
+     * tolerance (see {@link Builder#pointingCacheTimeQuantum(double)} and
+     * {@link Builder#pointingCacheTolerance(double)}). The same matching is
+     * used for the per-epoch contexts shared by different instruments.
+     *
+     * @param pointingCacheSize the maximum number of cached pointings
+     * @param pointingCacheTimeQuantum the time quantum in seconds, or 0
+     * @param pointingCacheTolerance the nearest-time tolerance in seconds, or 0
+     */
+    protected SpicePointingProvider(int pointingCacheSize, double pointingCacheTimeQuantum, double pointingCacheTolerance)
     {
         super();
+
+        this.pointingCache = new PointingCache<>(pointingCacheSize, pointingCacheTimeQuantum, pointingCacheTolerance);
+        this.instrumentFovs = new ConcurrentHashMap<>();
+        this.functions = new PerThreadValue<>(() -> new SpiceFunctions(getEphemerisProvider()));
+        this.epochContexts = new PointingCache<>(EPOCH_CONTEXT_CACHE_SIZE, pointingCacheTimeQuantum, pointingCacheTolerance);
+        this.kernelPoolIndex = null; // Not built yet.
+        this.frameSources = null;
+        this.ephemerisSources = null;
+        this.scCoverage = null; // Not computed yet.
+        this.instrumentCoverages = new ConcurrentHashMap<>();
+        this.aberrationCorrection = DEFAULT_ABERRATION_CORRECTION;
+        this.warmStartLightTime = false;
     }
 
     @Override
@@ -608,35 +897,199 @@ public abstract class SpicePointingProvider implements IPointingProvider
         return provide(instrumentName, frameId, time);
     }
 
-    @SuppressWarnings("unused")
-	private InstrumentPointing provideFromFrameName(FrameID instFrame, double time)
+    /**
+     * {@inheritDoc}
+     * <p>
+     * This implementation looks up the state and frame transform functions once
+     * per call and evaluates them directly into the batch. No
+     * {@link InstrumentPointing}s are created, and the pointing cache is
+     * neither consulted nor updated. Epochs outside the instrument's coverage
+     * (see {@link #getCoverage(String)}) are filled with NaN without
+     * attempting to evaluate the kernels. The provider's aberration correction
+     * is used (see {@link #getAberrationCorrection()}).
+     */
+    @Override
+    public void provide(String instrumentName, double[] times, int fields, PointingBatch batch)
     {
-        Preconditions.checkNotNull(instFrame);
-        Preconditions.checkNotNull(time);
-        if (previousPointings.get(Triple.of(time, instFrame, getTargetFrame())) != null) return previousPointings.get(Triple.of(time, instFrame, getTargetFrame()));
+        provide(instrumentName, times, fields, getAberrationCorrection(), batch);
+    }
 
-        int instCode = getKernelValue(Integer.class, "FRAME_" + instFrame.getName());
+    /**
+     * Compute the specified fields of the pointing of the specified instrument
+     * at each of the specified times, as
+     * {@link #provide(String, double[], int, PointingBatch)} does, but with the
+     * specified aberration correction instead of the provider's.
+     *
+     * @param instrumentName the name of the instrument
+     * @param times the times, TDB
+     * @param fields the fields to compute, a combination of the
+     *            {@link PointingBatch} field flags
+     * @param correction the correction: {@link AberrationCorrection#NONE},
+     *            {@link AberrationCorrection#LT} or
+     *            {@link AberrationCorrection#LT_S}
+     * @param batch the batch to receive the pointings
+     */
+    public void provide(String instrumentName, double[] times, int fields, AberrationCorrection correction, PointingBatch batch)
+    {
+        Preconditions.checkNotNull(instrumentName, "Instrument name must be defined");
+        checkSupported(correction);
+        Preconditions.checkNotNull(times);
+        Preconditions.checkNotNull(batch);
+        batch.checkCompatible(times.length, fields);
 
+        FrameID instrumentFrame = getFrameIdForInstrument(instrumentName);
+        Preconditions.checkArgument(instrumentFrame != null, "Cannot find a SPICE frame identifier for instrument name " + instrumentName);
 
-     // Get the provider and all information needed to compute the pointing.
-        AberratedEphemerisProvider ephProvider = getEphemerisProvider();
+        InstrumentFov fov = getInstrumentFov(instrumentName, instrumentFrame);
 
-        EphemerisID targetId = getTargetId();
-        FrameID targetFrame = getTargetFrame();
+        boolean needScState = (fields & (PointingBatch.SC_POSITION | PointingBatch.SC_VELOCITY)) != 0;
+        boolean needScRotation = (fields & PointingBatch.SC_ROTATION) != 0;
+        boolean needInstRotation = (fields & (PointingBatch.BORESIGHT | PointingBatch.UP_DIRECTION | PointingBatch.FRUSTUM)) != 0;
 
-        EphemerisID scId = getScId();
-        FrameID scFrame = getScFrameId();
+        // A fixed-offset instrument's rotation is computed from the spacecraft
+        // attitude, which is then evaluated whether or not it is requested.
+        UnwritableRotationMatrixIJK toScRotation = fov.getToScRotation();
+        boolean evaluateScRotation = needScRotation || (needInstRotation && toScRotation != null);
 
-        UnwritableVectorIJK boresight = getBoresight(instCode);
-        PolygonalCone frustum = getFrustum(instFrame, instCode, boresight);
+        SpiceFunctions functions = getFunctions();
 
-        List<UnwritableVectorIJK> corners = frustum.getCorners();
-        corners = ImmutableList.of(corners.get(0), corners.get(1), corners.get(3), corners.get(2));
+        AberratedStateVectorFunction targetFromSc = functions.getStateVectorFunction(getTargetId(), getScId(), getTargetFrame(), correction);
 
-        UnwritableVectorIJK vertex = frustum.getVertex();
-        UnwritableVectorIJK upDir = VectorIJK.cross(boresight, VectorIJK.cross(vertex, boresight));
-        SpiceInstrumentPointing pointing = new SpiceInstrumentPointing(ephProvider, targetId, targetFrame, scId, scFrame, instFrame, boresight, upDir, corners, time);
-        previousPointings.put(Triple.of(time, instFrame, targetFrame), pointing);
+        // When warm-starting, the light time and spacecraft position come from
+        // the solver, in J2000, and only the velocity needs the state.
+        LightTimeSolver solver = warmStartLightTime && correction != AberrationCorrection.NONE ? functions.getLightTimeSolver(getTargetId(), getScId(), correction) : null;
+        boolean needScPosition = (fields & PointingBatch.SC_POSITION) != 0;
+        boolean needScVelocity = (fields & PointingBatch.SC_VELOCITY) != 0;
+        boolean needToTarget = needScRotation || needInstRotation || (solver != null && needScPosition);
+
+        // Rotations are computed in two steps, via J2000, as in
+        // SpiceInstrumentPointing.
+        FrameTransformFunction j2000ToTarget = needToTarget ? functions.getFrameTransformFunction(CelestialFrames.J2000, getTargetFrame()) : null;
+        FrameTransformFunction scToJ2000 = evaluateScRotation ? functions.getFrameTransformFunction(getScFrameId(), CelestialFrames.J2000) : null;
+        FrameTransformFunction instToJ2000 = needInstRotation && toScRotation == null ? functions.getFrameTransformFunction(instrumentFrame, CelestialFrames.J2000) : null;
+
+        StateVector targetState = new StateVector();
+        VectorIJK targetPosition = new VectorIJK();
+        RotationMatrixIJK toTarget = new RotationMatrixIJK();
+        RotationMatrixIJK toJ2000 = new RotationMatrixIJK();
+        double[] scRotation = new double[9];
+        double[] instRotation = new double[9];
+
+        double[] scPositions = batch.getScPositions();
+        double[] scVelocities = batch.getScVelocities();
+        double[] frustums = batch.getFrustums();
+        List<UnwritableVectorIJK> frustum = fov.getFrustum();
+
+        CoverageIndex coverage = getCoverage(instrumentName);
+
+        for (int index = 0; index < times.length; ++index)
+        {
+            double time = times[index];
+
+            if (!coverage.isCovered(time))
+            {
+                batch.clear(index, fields);
+                continue;
+            }
+
+            // Without correction, everything is evaluated at the same time.
+            double timeAtTarget = time;
+            if (solver != null)
+            {
+                timeAtTarget = time - solver.solve(time, targetPosition);
+            }
+            else if (correction != AberrationCorrection.NONE && needToTarget)
+            {
+                timeAtTarget = time - targetFromSc.getLightTime(time);
+            }
+
+            if (needToTarget)
+            {
+                j2000ToTarget.getTransform(timeAtTarget, toTarget);
+            }
+
+            if (solver != null && needScPosition)
+            {
+                toTarget.mxv(targetPosition, targetPosition);
+            }
+
+            if ((solver == null && needScState) || needScVelocity)
+            {
+                // The spacecraft state is the negative of the target state
+                // relative to the spacecraft.
+                targetFromSc.getState(time, targetState);
+                if (solver == null)
+                {
+                    targetPosition.setTo(targetState.getPosition());
+                }
+            }
+
+            if (needScPosition)
+            {
+                scPositions[3 * index] = -targetPosition.getI();
+                scPositions[3 * index + 1] = -targetPosition.getJ();
+                scPositions[3 * index + 2] = -targetPosition.getK();
+            }
+            if (needScVelocity)
+            {
+                UnwritableVectorIJK velocity = targetState.getVelocity();
+                scVelocities[3 * index] = -velocity.getI();
+                scVelocities[3 * index + 1] = -velocity.getJ();
+                scVelocities[3 * index + 2] = -velocity.getK();
+            }
+
+            if (evaluateScRotation)
+            {
+                double[] scRotations = needScRotation ? batch.getScRotations() : scRotation;
+                int scOffset = needScRotation ? 9 * index : 0;
+                PackedRotations.multiply(toTarget, scToJ2000.getTransform(time, toJ2000), scRotations, scOffset);
+
+                if (needInstRotation && toScRotation != null)
+                {
+                    PackedRotations.multiply(scRotations, scOffset, toScRotation, instRotation, 0);
+                }
+            }
+
+            if (needInstRotation)
+            {
+                if (toScRotation == null)
+                {
+                    PackedRotations.multiply(toTarget, instToJ2000.getTransform(time, toJ2000), instRotation, 0);
+                }
+
+                if ((fields & PointingBatch.BORESIGHT) != 0)
+                {
+                    PackedRotations.rotateUnit(instRotation, 0, fov.getBoresight(), batch.getBoresights(), 3 * index);
+                }
+                if ((fields & PointingBatch.UP_DIRECTION) != 0)
+                {
+                    PackedRotations.rotateUnit(instRotation, 0, fov.getUpDirection(), batch.getUpDirections(), 3 * index);
+                }
+                if ((fields & PointingBatch.FRUSTUM) != 0)
+                {
+                    for (int corner = 0; corner < 4; ++corner)
+                    {
+                        PackedRotations.rotateUnit(instRotation, 0, frustum.get(corner), frustums, 12 * index + 3 * corner);
+                    }
+                }
+            }
+        }
+    }
+
+    @SuppressWarnings("unused")
+	private InstrumentPointing provideFromFrameName(FrameID instFrame, double time)
+    {
+        Preconditions.checkNotNull(instFrame);
+        Preconditions.checkNotNull(time);
+        InstrumentPointing cachedPointing = pointingCache.get(instFrame, time);
+        if (cachedPointing != null) return cachedPointing;
+
+        int instCode = getKernelValue(Integer.class, "FRAME_" + instFrame.getName());
+
+        InstrumentFov fov = createInstrumentFov(instFrame, instCode);
+
+        SpiceInstrumentPointing pointing = new SpiceInstrumentPointing(getEpochContext(time), instFrame, fov);
+        pointingCache.put(instFrame, time, pointing);
         return pointing;
     }
 
@@ -656,20 +1109,115 @@ public abstract class SpicePointingProvider implements IPointingProvider
     protected InstrumentPointing provide(String instrumentName, FrameID instrumentFrame, double time)
     {
         Preconditions.checkNotNull(instrumentFrame);
-        if (previousPointings.get(Triple.of(time, instrumentFrame, getTargetFrame())) != null)
-            return previousPointings.get(Triple.of(time, instrumentFrame, getTargetFrame()));
+        InstrumentPointing cachedPointing = pointingCache.get(instrumentFrame, time);
+        if (cachedPointing != null)
+            return cachedPointing;
 
-        int instCode = getInstrumentIdForInstrument(instrumentName);
+        PersistentPointingStore store = persistentStore;
+        double[] record = store != null ? new double[PersistentPointingStore.RECORD_VALUES] : null;
+        if (store != null && store.get(instrumentFrame.getName(), time, record))
+        {
+            InstrumentPointing pointing = PersistentPointingStore.fromRecord(this, time, record);
+            pointingCache.put(instrumentFrame, time, pointing);
+            return pointing;
+        }
 
-        // Get the provider and all information needed to compute the pointing.
-        AberratedEphemerisProvider ephProvider = getEphemerisProvider();
+        // Only the time-dependent quantities are computed here; the FOV is
+        // resolved the first time the instrument is used, then cached.
+        InstrumentFov fov = getInstrumentFov(instrumentName, instrumentFrame);
 
-        EphemerisID targetId = getTargetId();
+        //        Logger.getAnonymousLogger().log(Level.INFO, "Returning pointing " + instrumentFrame + " at time " + TimeUtil.et2str(time));
+        SpiceInstrumentPointing pointing = new SpiceInstrumentPointing(getEpochContext(time), instrumentFrame, fov);
+        pointingCache.put(instrumentFrame, time, pointing);
+
+        if (store != null)
+        {
+            // Writing the record evaluates the pointing, which otherwise is
+            // evaluated only as its quantities are requested. If it cannot be
+            // evaluated (e.g. outside the coverage of the kernels), it is not
+            // stored, and its getters throw as they would without a store.
+            try
+            {
+                PersistentPointingStore.toRecord(pointing, record);
+            }
+            catch (RuntimeException e)
+            {
+                return pointing;
+            }
+            store.put(instrumentFrame.getName(), time, record);
+        }
+
+        return pointing;
+    }
+
+    /**
+     * Return the context holding the instrument-independent quantities for the
+     * specified time, creating it if it is not already cached. All pointings
+     * (and body positions) provided for the same time share one context, so
+     * the spacecraft state, light time and J2000-to-target rotation are only
+     * computed once per epoch.
+     *
+     * @param time the time (at the spacecraft), TDB
+     * @return the context
+     */
+    SpiceEpochContext getEpochContext(double time)
+    {
+        // The cache is keyed on frame and time; only the target frame is
+        // used, since the context does not depend on the instrument.
         FrameID targetFrame = getTargetFrame();
+        SpiceEpochContext context = epochContexts.get(targetFrame, time);
+        if (context == null)
+        {
+            context = createEpochContext(time);
+            epochContexts.put(targetFrame, time, context);
+        }
+
+        return context;
+    }
+
+    /**
+     * Create a new context for the specified time without consulting or
+     * updating the cache of recent contexts.
+     *
+     * @param time the time (at the spacecraft), TDB
+     * @return the context
+     */
+    SpiceEpochContext createEpochContext(double time)
+    {
+        return new SpiceEpochContext(this::getFunctions, getTargetId(), getTargetFrame(), getScId(), getScFrameId(), time, aberrationCorrection, warmStartLightTime);
+    }
+
+    /**
+     * Return the FOV of the specified instrument, resolving it from the kernel
+     * pool the first time it is requested. FOVs are resolved lazily rather than
+     * when the provider is built, so that an instrument whose FOV cannot be
+     * resolved (for example, an unsupported FOV shape or a missing keyword)
+     * only fails when its pointing is requested, rather than preventing the
+     * provider for all the other instruments from being built. A failed
+     * resolution is not retained, so it is attempted again on the next
+     * request.
+     */
+    InstrumentFov getInstrumentFov(String instrumentName, FrameID instrumentFrame)
+    {
+        InstrumentFov fov = instrumentFovs.get(instrumentName);
+        if (fov == null)
+        {
+            fov = instrumentFovs.computeIfAbsent(instrumentName, name -> createInstrumentFov(instrumentFrame, getInstrumentIdForInstrument(name)));
+        }
 
-        EphemerisID scId = getScId();
-        FrameID scFrame = getScFrameId();
+        return fov;
+    }
 
+    /**
+     * Resolve the time-independent FOV quantities for the specified
+     * instrument from the kernel pool.
+     *
+     * @param instrumentFrame the instrument frame
+     * @param instCode the integer code identifying the instrument
+     * @return the FOV
+     */
+    InstrumentFov createInstrumentFov(FrameID instrumentFrame, int instCode)
+    {
         // Get FOV quantities in the instrument frame.
         UnwritableVectorIJK boresight = getBoresight(instCode);
 
@@ -703,10 +1251,40 @@ public abstract class SpicePointingProvider implements IPointingProvider
 
         UnwritableVectorIJK vertex = frustum.getVertex();
         UnwritableVectorIJK upDir = VectorIJK.cross(boresight, VectorIJK.cross(vertex, boresight));
-        //        Logger.getAnonymousLogger().log(Level.INFO, "Returning pointing " + instrumentFrame + " at time " + TimeUtil.et2str(time));
-        SpiceInstrumentPointing pointing = new SpiceInstrumentPointing(ephProvider, targetId, targetFrame, scId, scFrame, instrumentFrame, boresight, upDir, corners, time);
-        previousPointings.put(Triple.of(time, instrumentFrame, targetFrame), pointing);
-        return pointing;
+
+        return new InstrumentFov(instCode, instrumentFrame, boresight, upDir, corners, computeFixedRotationToScFrame(instrumentFrame));
+    }
+
+    /**
+     * Return the constant rotation from the specified frame to the spacecraft
+     * frame if the frame is a fixed offset from the spacecraft frame, that is,
+     * if it is linked to it only by text kernel (TK) frames (see
+     * {@link KernelPoolIndex#isFixedOffset(String, String)}). Most instrument
+     * frames are, and their rotation at any epoch is then the spacecraft
+     * attitude times this rotation, so the instrument frame chain need not be
+     * resolved at every epoch.
+     *
+     * @param frame the frame
+     * @return the rotation, or null if the offset is not fixed, or cannot be
+     *         evaluated
+     */
+    UnwritableRotationMatrixIJK computeFixedRotationToScFrame(FrameID frame)
+    {
+        if (!getKernelPoolIndex().isFixedOffset(frame.getName(), getScFrameId().getName()))
+        {
+            return null;
+        }
+
+        try
+        {
+            // The offset does not depend on time, so any time will do.
+            return UnwritableRotationMatrixIJK.copyOf(getFunctions().getFrameTransformFunction(frame, getScFrameId()).getTransform(0.));
+        }
+        catch (RuntimeException e)
+        {
+            // Fall back to resolving the whole chain at each epoch.
+            return null;
+        }
     }
 
     @Override
@@ -726,14 +1304,273 @@ public abstract class SpicePointingProvider implements IPointingProvider
         this.currentInstName = currentInstrumentName;
     }
 
+    /**
+     * Return a view of this provider that has its own current instrument, and
+     * otherwise forwards everything to this provider. Each holder of a
+     * provider shared through a {@link SpicePointingProviderRegistry} uses its
+     * own view, so that one holder selecting an instrument does not change
+     * the instrument of the others. The view's current instrument is
+     * initially that of this provider.
+     *
+     * @return the view
+     */
+    public SpicePointingProvider createView()
+    {
+        SpicePointingProvider view = new SpicePointingProviderView(this);
+        view.currentInstName = currentInstName;
+
+        return view;
+    }
+
+    /**
+     * Return the cache of pointings computed by this provider. The cache is
+     * owned by this provider, so it only ever holds pointings computed from
+     * this provider's kernels. Its statistics may be used to tune the cache
+     * size passed to {@link Builder#pointingCacheSize(int)}.
+     *
+     * @return the pointing cache
+     */
+    public PointingCache<? extends InstrumentPointing> getPointingCache()
+    {
+        return pointingCache;
+    }
+
+    /**
+     * Return the times for which the spacecraft pointing can be computed: the
+     * intersection of the coverage of the spacecraft and target ephemerides,
+     * the spacecraft frame and the target frame. Callers may use this to skip
+     * uncovered epochs instead of catching the exceptions thrown when data are
+     * missing. The index is computed from the kernels the first time it is
+     * requested.
+     * <p>
+     * The coverage is computed from the coverage of the individual kernel
+     * segments (see {@link CoverageIndex}); light time is not accounted for,
+     * so epochs within the light time of the edges of the target's coverage
+     * may still fail. Providers not created by a {@link Builder} have no
+     * access to the segments, and report all times as covered.
+     *
+     * @return the coverage of the spacecraft pointing
+     */
+    public CoverageIndex getScCoverage()
+    {
+        CoverageIndex result = scCoverage;
+        if (result == null)
+        {
+            result = computeCoverage(null);
+            scCoverage = result;
+        }
+
+        return result;
+    }
+
+    /**
+     * Return the times for which the pointing of the specified instrument can
+     * be computed: the coverage returned by {@link #getScCoverage()},
+     * intersected with that of the instrument frame.
+     *
+     * @param instrumentName the name of the instrument
+     * @return the coverage of the instrument pointing
+     */
+    public CoverageIndex getCoverage(String instrumentName)
+    {
+        Preconditions.checkNotNull(instrumentName, "Instrument name must be defined");
+
+        CoverageIndex result = instrumentCoverages.get(instrumentName);
+        if (result == null)
+        {
+            result = instrumentCoverages.computeIfAbsent(instrumentName, this::computeCoverage);
+        }
+
+        return result;
+    }
+
+    /**
+     * Return whether the pointing of the specified instrument can be computed
+     * at the specified time, without attempting to compute it.
+     *
+     * @param instrumentName the name of the instrument
+     * @param time the time, TDB
+     * @return true if the time is covered
+     */
+    public boolean isCovered(String instrumentName, double time)
+    {
+        return getCoverage(instrumentName).isCovered(time);
+    }
+
+    /**
+     * Return whether the pointing of the current instrument (or, if there is
+     * none, of the spacecraft) can be computed at the specified time.
+     *
+     * @param time the time, TDB
+     * @return true if the time is covered
+     */
+    public boolean isCovered(double time)
+    {
+        String instrumentName = getCurrentInstrumentName();
+
+        return instrumentName != null ? isCovered(instrumentName, time) : getScCoverage().isCovered(time);
+    }
+
+    /**
+     * @return the aberration correction applied to the pointings and body
+     *         positions this provider computes
+     */
+    public AberrationCorrection getAberrationCorrection()
+    {
+        return aberrationCorrection;
+    }
+
+    /**
+     * @return true if the light time at each epoch is warm-started from the
+     *         previous epoch (see {@link Builder#warmStartLightTime(boolean)})
+     */
+    public boolean isWarmStartLightTime()
+    {
+        return warmStartLightTime;
+    }
+
+    /**
+     * Set the aberration correction and light-time strategy. Called by
+     * {@link Builder#build()} before the provider is returned, since cached
+     * pointings are only valid for one correction.
+     *
+     * @param correction the correction
+     * @param warmStart true to warm-start the light time
+     */
+    void setAberrationCorrection(AberrationCorrection correction, boolean warmStart)
+    {
+        checkSupported(correction);
+
+        this.aberrationCorrection = correction;
+        this.warmStartLightTime = warmStart;
+    }
+
+    /**
+     * Check that the specified aberration correction is one this class
+     * supports: {@link AberrationCorrection#NONE},
+     * {@link AberrationCorrection#LT} or {@link AberrationCorrection#LT_S}.
+     *
+     * @param correction the correction
+     * @throws IllegalArgumentException if it is not supported
+     */
+    static void checkSupported(AberrationCorrection correction)
+    {
+        Preconditions.checkNotNull(correction);
+        Preconditions.checkArgument(correction == AberrationCorrection.NONE || correction == AberrationCorrection.LT || correction == AberrationCorrection.LT_S, "Unsupported aberration correction " + correction);
+    }
+
+    /**
+     * Set the kernel segments from which coverage is computed. Called by
+     * {@link Builder#build()} before the provider is returned.
+     *
+     * @param frameSources the frame sources of the SPICE environment
+     * @param ephemerisSources the ephemeris sources of the SPICE environment
+     */
+    void setCoverageSources(List<? extends FrameTransformFunction> frameSources, List<? extends PositionVectorFunction> ephemerisSources)
+    {
+        this.frameSources = frameSources;
+        this.ephemerisSources = ephemerisSources;
+    }
+
+    private CoverageIndex computeCoverage(String instrumentName)
+    {
+        if (frameSources == null || ephemerisSources == null)
+        {
+            return CoverageIndex.ALL_TIME;
+        }
+
+        if (instrumentName != null)
+        {
+            FrameID instrumentFrame = getFrameIdForInstrument(instrumentName);
+            Preconditions.checkArgument(instrumentFrame != null, "Cannot find a SPICE frame identifier for instrument name " + instrumentName);
+
+            return getScCoverage().intersect(CoverageIndex.ofFrame(instrumentFrame, frameSources));
+        }
+
+        return CoverageIndex.ofBody(getScId(), ephemerisSources) //
+                .intersect(CoverageIndex.ofBody(getTargetId(), ephemerisSources)) //
+                .intersect(CoverageIndex.ofFrame(getScFrameId(), frameSources)) //
+                .intersect(CoverageIndex.ofFrame(getTargetFrame(), frameSources));
+    }
+
+    /**
+     * Return the on-disk store backing the pointing cache, if any (see
+     * {@link Builder#persistentPointingStore(Path, int)}).
+     *
+     * @return the store, or null if the provider does not have one
+     */
+    PersistentPointingStore getPersistentStore()
+    {
+        return persistentStore;
+    }
+
+    /**
+     * Set the on-disk store backing the pointing cache. Called by
+     * {@link Builder#build()} before the provider is returned. The provider
+     * closes the store when it is garbage collected.
+     *
+     * @param store the open store
+     */
+    void setPersistentStore(PersistentPointingStore store)
+    {
+        Preconditions.checkState(persistentStore == null, "Pointing provider already has a persistent store");
+
+        this.persistentStore = Preconditions.checkNotNull(store);
+        StoreCleaner.register(this, store::close);
+    }
+
     /**
      * Return the {@link AberratedEphemerisProvider} used by this
-     * {@link SpicePointingProvider}.
+     * {@link SpicePointingProvider}. For a concurrent provider (see
+     * {@link #isConcurrent()}) this is the ephemeris provider belonging to the
+     * calling thread, which must not be handed to other threads.
      *
      * @return the ephemeris provider
      */
     public abstract AberratedEphemerisProvider getEphemerisProvider();
 
+    /**
+     * Return the transform function from one frame to another, evaluated using
+     * the ephemeris provider returned by {@link #getEphemerisProvider()}. The
+     * function is created the first time it is requested and reused
+     * thereafter. Like the ephemeris provider, the function must only be
+     * used by the calling thread.
+     *
+     * @param fromId the frame from which to transform
+     * @param toId the frame to which to transform
+     * @return the frame transform function
+     */
+    public FrameTransformFunction getFrameTransformFunction(FrameID fromId, FrameID toId)
+    {
+        Preconditions.checkNotNull(fromId);
+        Preconditions.checkNotNull(toId);
+
+        return getFunctions().getFrameTransformFunction(fromId, toId);
+    }
+
+    /**
+     * Return the cache of state and frame transform functions belonging to the
+     * calling thread.
+     *
+     * @return the functions
+     */
+    SpiceFunctions getFunctions()
+    {
+        return functions.get();
+    }
+
+    /**
+     * Return whether this provider may be used by multiple threads
+     * simultaneously (see {@link Builder#concurrent(boolean)}). This base
+     * implementation returns false.
+     *
+     * @return true if the provider is safe for concurrent use
+     */
+    public boolean isConcurrent()
+    {
+        return false;
+    }
+
     /**
      * Return the {@link UnwritableKernelPool} that may be used to obtain SPICE
      * information other than state/vector transforms.
@@ -819,7 +1656,7 @@ public abstract class SpicePointingProvider implements IPointingProvider
             UnwritableVectorIJK refVector = toVector(getKernelValues(Double.class, instPrefix + "FOV_REF_VECTOR", 3));
             double refAngle = getKernelValue(Double.class, instPrefix + "FOV_REF_ANGLE");
             double crossAngle = refAngle;
-            if (getKernelPool().getStrings(instPrefix + "FOV_CROSS_ANGLE") != null)
+            if (getKernelPoolIndex().getStrings(instPrefix + "FOV_CROSS_ANGLE") != null)
                 crossAngle = getKernelValue(Double.class, instPrefix + "FOV_CROSS_ANGLE");
 
             // TODO also need to read/check units, convert as needed.
@@ -866,7 +1703,9 @@ public abstract class SpicePointingProvider implements IPointingProvider
      */
     protected <T> T getKernelValue(Class<T> valueType, String keyName, boolean errorIfNull)
     {
-        return valueType.cast(getKernelValues(valueType, keyName, 1, errorIfNull).get(0));
+        List<T> values = getKernelValues(valueType, keyName, 1, errorIfNull);
+
+        return values != null ? valueType.cast(values.get(0)) : null;
     }
 
     /**
@@ -895,33 +1734,42 @@ public abstract class SpicePointingProvider implements IPointingProvider
      */
     protected <T> List<T> getKernelValues(Class<?> valueType, String keyName, int expectedSize, boolean errorIfNull)
     {
-        List<?> list = new ArrayList<>();
+        KernelPoolIndex index = getKernelPoolIndex();
+
+        List<?> list;
         if (Double.class == valueType)
         {
-            list = getKernelPool().getDoubles(keyName);
+            double[] values = index.getDoubles(keyName);
+            list = values != null ? Doubles.asList(values) : null;
         }
         else if (Integer.class == valueType)
         {
-            list = getKernelPool().getIntegers(keyName);
+            int[] values = index.getIntegers(keyName);
+            list = values != null ? Ints.asList(values) : null;
         }
         else if (String.class == valueType)
         {
-            list = getKernelPool().getStrings(keyName);
+            String[] values = index.getStrings(keyName);
+            list = values != null ? Arrays.asList(values) : null;
         }
         else
         {
             throw new AssertionError("Cannot get invalid kernel value type " + valueType + " (key was " + keyName + ")");
         }
 
-        if (list == null && errorIfNull)
+        if (list == null)
         {
-            if (getKernelPool().getKeywords().contains(keyName))
+            if (!errorIfNull)
+            {
+                return null;
+            }
+            else if (index.hasKeyword(keyName))
             {
                 throw new IllegalArgumentException("SPICE kernel does not have values of type " + valueType + " for key " + keyName);
             }
             else
             {
-                throw new IllegalArgumentException("SPICE kernel is missing values for key " + keyName + " " + getKernelPool().getKeywords());
+                throw new IllegalArgumentException("SPICE kernel is missing values for key " + keyName);
             }
         }
         else if (list.size() != expectedSize)
@@ -937,12 +1785,48 @@ public abstract class SpicePointingProvider implements IPointingProvider
         return result;
     }
 
+    /**
+     * Return the index of the kernel pool returned by
+     * {@link #getKernelPool()}, building it the first time it is requested.
+     *
+     * @return the index
+     */
+    KernelPoolIndex getKernelPoolIndex()
+    {
+        KernelPoolIndex result = kernelPoolIndex;
+        if (result == null)
+        {
+            synchronized (this)
+            {
+                result = kernelPoolIndex;
+                if (result == null)
+                {
+                    result = KernelPoolIndex.of(getKernelPool());
+                    kernelPoolIndex = result;
+                }
+            }
+        }
+
+        return result;
+    }
+
     protected UnwritableVectorIJK toVector(List<Double> tmpList)
     {
         return new UnwritableVectorIJK(tmpList.get(0), tmpList.get(1), tmpList.get(2));
     }
 
-    public static void loadAllKernels(SpiceEnvironmentBuilder builder, Path path) throws KernelInstantiationException, IOException
+    /**
+     * Load all the kernels listed in the specified metakernel into the
+     * specified {@link SpiceEnvironmentBuilder}.
+     *
+     * @param builder the builder into which to load the kernels
+     * @param path the metakernel
+     * @return the kernels that were loaded, in order
+     * @throws KernelInstantiationException if a kernel cannot be loaded
+     * @throws IOException if an IOException is thrown while accessing the
+     *             metakernel
+     */
+    public static List<File> loadAllKernels(SpiceEnvironmentBuilder builder, Path path) throws KernelInstantiationException, IOException
     {
         KernelProviderFromLocalMetakernel kernelProvider = new KernelProviderFromLocalMetakernel(path);
         List<File> kernels = kernelProvider.get();
@@ -952,6 +1836,7 @@ public abstract class SpicePointingProvider implements IPointingProvider
             builder.load(kernel.getName(), kernel);
         }
 
+        return kernels;
     }
 
 }
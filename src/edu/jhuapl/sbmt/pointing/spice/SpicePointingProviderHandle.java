@@ -0,0 +1,248 @@
+package edu.jhuapl.sbmt.pointing.spice;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.google.common.base.Preconditions;
+
+import edu.jhuapl.sbmt.pointing.DaemonThreadFactory;
+import edu.jhuapl.sbmt.pointing.InstrumentPointing;
+
+/**
+ * Handle to a {@link SpicePointingProvider} that is being created in the
+ * background. Loading the kernels and building the SPICE environment can
+ * take a long time for large kernel sets, so callers on the event dispatch
+ * thread (or any other thread that must stay responsive) can start the
+ * creation with {@link #load(Callable)}, and then either register a callback
+ * on {@link #getProvider()} or check {@link #isReady()}.
+ * <p>
+ * Optionally, once the provider is built, its caches may be warmed by
+ * computing the pointings of all its instruments over a window of time (see
+ * {@link Builder#prewarm(double, double, double)}), typically the window the
+ * user will look at first. {@link #getProvider()} completes before the warm-up
+ * starts and {@link #getPrewarmed()} completes after. A provider built with
+ * {@link SpicePointingProvider.Builder#concurrent(boolean)} may be used while
+ * the warm-up is in progress; any other provider must not be used until
+ * {@link #getPrewarmed()} completes.
+ */
+public final class SpicePointingProviderHandle
+{
+    private static final ExecutorService DefaultExecutor = Executors.newCachedThreadPool(new DaemonThreadFactory("SPICE pointing loader"));
+
+    /**
+     * Start creating a provider on the default executor, without warming its
+     * caches.
+     *
+     * @param loader function that creates the provider, for example by
+     *            calling {@link SpicePointingProvider.Builder#build()}
+     * @return the handle
+     */
+    public static SpicePointingProviderHandle load(Callable<? extends SpicePointingProvider> loader)
+    {
+        return builder(loader).start();
+    }
+
+    /**
+     * Create a {@link Builder} for a handle, to configure the executor and
+     * the warm-up window before calling {@link Builder#start()}.
+     *
+     * @param loader function that creates the provider
+     * @return the builder
+     */
+    public static Builder builder(Callable<? extends SpicePointingProvider> loader)
+    {
+        return new Builder(loader);
+    }
+
+    /**
+     * Builder for outer class {@link SpicePointingProviderHandle}.
+     */
+    public static final class Builder
+    {
+        private final Callable<? extends SpicePointingProvider> loader;
+        private Executor executor;
+        private double prewarmStart;
+        private double prewarmStop;
+        private double prewarmStep;
+
+        private Builder(Callable<? extends SpicePointingProvider> loader)
+        {
+            this.loader = Preconditions.checkNotNull(loader);
+            this.executor = DefaultExecutor;
+            this.prewarmStart = Double.NaN;
+            this.prewarmStop = Double.NaN;
+            this.prewarmStep = Double.NaN;
+        }
+
+        /**
+         * Set the executor on which to create (and warm) the provider. By
+         * default a shared pool of daemon threads is used.
+         *
+         * @param executor the executor
+         * @return the builder
+         */
+        public Builder executor(Executor executor)
+        {
+            this.executor = Preconditions.checkNotNull(executor);
+            return this;
+        }
+
+        /**
+         * Once the provider is built, compute the pointings of all of its
+         * instruments from the start to the stop time at the specified step,
+         * so that they are cached when first requested. Each pointing's
+         * spacecraft position and rotation and instrument boresight are
+         * evaluated. The warm-up stops early if the pointings would overflow
+         * the provider's cache (see
+         * {@link SpicePointingProvider.Builder#pointingCacheSize(int)}), so a
+         * window longer than the cache holds warms only its start.
+         *
+         * @param start the start of the window, TDB
+         * @param stop the end of the window, TDB
+         * @param step the time between pointings, in seconds
+         * @return the builder
+         */
+        public Builder prewarm(double start, double stop, double step)
+        {
+            Preconditions.checkArgument(start <= stop, "Pre-warm window must not end before it starts");
+            Preconditions.checkArgument(step > 0., "Pre-warm step must be positive");
+
+            this.prewarmStart = start;
+            this.prewarmStop = stop;
+            this.prewarmStep = step;
+            return this;
+        }
+
+        /**
+         * Start creating the provider.
+         *
+         * @return the handle
+         */
+        public SpicePointingProviderHandle start()
+        {
+            CompletableFuture<SpicePointingProvider> provider = CompletableFuture.supplyAsync(() -> {
+                try
+                {
+                    return loader.call();
+                }
+                catch (Exception e)
+                {
+                    throw new CompletionException(e);
+                }
+            }, executor);
+
+            CompletableFuture<SpicePointingProvider> prewarmed;
+            if (Double.isNaN(prewarmStep))
+            {
+                prewarmed = provider;
+            }
+            else
+            {
+                double start = prewarmStart;
+                double stop = prewarmStop;
+                double step = prewarmStep;
+                prewarmed = provider.thenApplyAsync(p -> warm(p, start, stop, step), executor);
+            }
+
+            return new SpicePointingProviderHandle(provider, prewarmed);
+        }
+    }
+
+    private final CompletableFuture<SpicePointingProvider> provider;
+    private final CompletableFuture<SpicePointingProvider> prewarmed;
+
+    private SpicePointingProviderHandle(CompletableFuture<SpicePointingProvider> provider, CompletableFuture<SpicePointingProvider> prewarmed)
+    {
+        this.provider = provider;
+        this.prewarmed = prewarmed;
+    }
+
+    /**
+     * Return a future that completes with the provider as soon as it is built,
+     * or exceptionally if it could not be built. Dependent actions should not
+     * assume they will run on any particular thread; UI code should hand the
+     * result to the event dispatch thread.
+     *
+     * @return the future provider
+     */
+    public CompletableFuture<SpicePointingProvider> getProvider()
+    {
+        return provider;
+    }
+
+    /**
+     * Return a future that completes with the provider once it is built and
+     * its caches have been warmed. If no warm-up was requested, this is the
+     * same as {@link #getProvider()}. A failure to warm up does not affect
+     * the future returned by {@link #getProvider()}.
+     *
+     * @return the future provider
+     */
+    public CompletableFuture<SpicePointingProvider> getPrewarmed()
+    {
+        return prewarmed;
+    }
+
+    /**
+     * @return true if the provider has been built successfully
+     */
+    public boolean isReady()
+    {
+        return provider.isDone() && !provider.isCompletedExceptionally();
+    }
+
+    /**
+     * Return the provider, waiting for it to be built if necessary.
+     *
+     * @return the provider
+     * @throws ExecutionException if the provider could not be built; the cause
+     *             is the exception thrown when building it
+     * @throws InterruptedException if the calling thread is interrupted while
+     *             waiting
+     */
+    public SpicePointingProvider get() throws ExecutionException, InterruptedException
+    {
+        return provider.get();
+    }
+
+    private static SpicePointingProvider warm(SpicePointingProvider provider, double start, double stop, double step)
+    {
+        String[] instrumentNames = provider.getInstrumentNames();
+        long count = getPrewarmCount(provider, start, stop, step);
+        for (long index = 0; index < count; ++index)
+        {
+            double time = start + index * step;
+            for (String instrumentName : instrumentNames)
+            {
+                // Pointings are evaluated lazily, so provide alone would only
+                // cache the unevaluated pointing.
+                InstrumentPointing pointing = provider.provide(instrumentName, time);
+                pointing.getScPosition();
+                pointing.getScRotation();
+                pointing.getBoresight();
+            }
+        }
+
+        return provider;
+    }
+
+    /**
+     * Return the number of times in the window at which to warm the provider:
+     * all of them, unless their pointings would not all fit in the provider's
+     * cache, in which case only as many as fit, from the start of the window.
+     * Warming more would only evict the earliest pointings.
+     */
+    private static long getPrewarmCount(SpicePointingProvider provider, double start, double stop, double step)
+    {
+        long count = (long) Math.floor((stop - start) / step) + 1;
+        int instrumentCount = Math.max(provider.getInstrumentNames().length, 1);
+
+        return Math.min(count, provider.getPointingCache().getMaximumSize() / instrumentCount);
+    }
+
+}
@@ -0,0 +1,244 @@
+package edu.jhuapl.sbmt.pointing.spice;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.google.common.base.Preconditions;
+
+import picante.spice.adapters.AdapterInstantiationException;
+import picante.spice.kernel.KernelInstantiationException;
+
+/**
+ * Registry of shared {@link SpicePointingProvider}s, so that the kernels of a
+ * mission are loaded once however many consumers (the position manager, state
+ * histories, image pointing and so on) use them.
+ * <p>
+ * Providers are keyed by a digest of the metakernel file (its path, length and
+ * contents, not those of the kernels it lists) and the {@link SpiceInfo}, so
+ * all the instruments of a mission share one provider. Each
+ * {@link #acquire(String, SpiceInfo)} returns a {@link Lease}, and the
+ * provider is created by the first acquisition for its key. While any lease
+ * for a provider is open, the registry holds it strongly. Once the last lease
+ * is closed, the provider is held only softly: a later acquisition reuses it
+ * if it is still in memory, but the garbage collector may evict it when memory
+ * is tight, and it is then created again when next acquired.
+ * <p>
+ * A shared provider may be used by the holders' threads simultaneously, so the
+ * factory must create concurrent providers (see
+ * {@link SpicePointingProvider.Builder#concurrent(boolean)}). Its current
+ * instrument would be shared by all the holders, so each holder should pass
+ * instrument names to {@link SpicePointingProvider#provide(String, double)},
+ * or select its instrument on its own view of the provider (see
+ * {@link SpicePointingProvider#createView()}).
+ * <p>
+ * Instances are thread safe. Concurrent acquisitions of the same key wait for
+ * a single provider to be created; acquisitions of other keys are not
+ * blocked. The {@link SpiceInfo} must not be modified once it is used as a
+ * key.
+ */
+public final class SpicePointingProviderRegistry
+{
+    /**
+     * Function that creates a concurrent provider, such as
+     * {@code SpiceReaderPublisher.createProvider} with a builder set to
+     * concurrent.
+     */
+    @FunctionalInterface
+    public interface Factory
+    {
+        SpicePointingProvider create(String mkFilename, SpiceInfo spiceInfo) throws KernelInstantiationException, IOException, AdapterInstantiationException;
+    }
+
+    private final Factory factory;
+    private final ConcurrentMap<Key, Entry> entries;
+
+    /**
+     * @param factory the function that creates providers
+     */
+    public SpicePointingProviderRegistry(Factory factory)
+    {
+        this.factory = Preconditions.checkNotNull(factory);
+        this.entries = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Acquire the shared provider for the specified metakernel and
+     * {@link SpiceInfo}, creating it if it is not in memory. The lease must be
+     * closed when the caller no longer needs the provider.
+     *
+     * @param mkFilename the metakernel
+     * @param spiceInfo the bodies, frames and instruments to bind
+     * @return the lease
+     * @throws IOException if the metakernel cannot be read, or the factory
+     *             throws it
+     * @throws KernelInstantiationException if the factory throws it
+     * @throws AdapterInstantiationException if the factory throws it
+     * @throws IllegalStateException if the factory creates a provider that is
+     *             not concurrent
+     */
+    public Lease acquire(String mkFilename, SpiceInfo spiceInfo) throws KernelInstantiationException, IOException, AdapterInstantiationException
+    {
+        Preconditions.checkNotNull(mkFilename);
+        Preconditions.checkNotNull(spiceInfo);
+
+        purge();
+
+        byte[] digest = PersistentPointingStore.digest(List.of(new File(mkFilename)));
+        Key key = new Key(digest, spiceInfo);
+
+        while (true)
+        {
+            Entry entry = entries.computeIfAbsent(key, k -> new Entry());
+            synchronized (entry)
+            {
+                if (entry.removed)
+                {
+                    // Purged after it was looked up; look up its replacement.
+                    continue;
+                }
+
+                SpicePointingProvider provider = entry.provider != null ? entry.provider : entry.cached.get();
+                if (provider == null)
+                {
+                    provider = factory.create(mkFilename, spiceInfo);
+                    Preconditions.checkState(provider.isConcurrent(), "Shared pointing providers must be concurrent");
+                    entry.cached = new SoftReference<>(provider);
+                }
+                entry.provider = provider;
+                ++entry.leases;
+
+                return new Lease(entry, provider);
+            }
+        }
+    }
+
+    /**
+     * @return the number of providers currently in memory, leased or not
+     */
+    public int size()
+    {
+        purge();
+
+        return entries.size();
+    }
+
+    /**
+     * Remove the entries whose providers are neither leased nor still in
+     * memory.
+     */
+    private void purge()
+    {
+        entries.values().removeIf(entry -> {
+            synchronized (entry)
+            {
+                entry.removed = entry.leases == 0 && entry.cached.get() == null;
+                return entry.removed;
+            }
+        });
+    }
+
+    /**
+     * Lease on a shared provider. Closing the lease releases this holder's
+     * claim on the provider; closing it more than once has no further effect.
+     */
+    public static final class Lease implements AutoCloseable
+    {
+        private final Entry entry;
+        private final SpicePointingProvider provider;
+        private boolean closed;
+
+        private Lease(Entry entry, SpicePointingProvider provider)
+        {
+            this.entry = entry;
+            this.provider = provider;
+            this.closed = false;
+        }
+
+        /**
+         * @return the provider
+         */
+        public SpicePointingProvider getProvider()
+        {
+            return provider;
+        }
+
+        @Override
+        public void close()
+        {
+            synchronized (entry)
+            {
+                if (closed)
+                {
+                    return;
+                }
+                closed = true;
+
+                if (--entry.leases == 0)
+                {
+                    // Only the soft reference remains.
+                    entry.provider = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * Provider for one key, guarded by itself.
+     */
+    private static final class Entry
+    {
+        private SpicePointingProvider provider;
+        private SoftReference<SpicePointingProvider> cached;
+        private int leases;
+        private boolean removed;
+
+        Entry()
+        {
+            this.provider = null;
+            this.cached = new SoftReference<>(null);
+            this.leases = 0;
+            this.removed = false;
+        }
+    }
+
+    private static final class Key
+    {
+        private final byte[] digest;
+        private final SpiceInfo spiceInfo;
+
+        Key(byte[] digest, SpiceInfo spiceInfo)
+        {
+            this.digest = digest;
+            this.spiceInfo = spiceInfo;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(Arrays.hashCode(digest), spiceInfo);
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (this == obj)
+            {
+                return true;
+            }
+            if (!(obj instanceof Key))
+            {
+                return false;
+            }
+            Key other = (Key) obj;
+
+            return Arrays.equals(digest, other.digest) && spiceInfo.equals(other.spiceInfo);
+        }
+    }
+
+}
@@ -0,0 +1,191 @@
+package edu.jhuapl.sbmt.pointing.spice;
+
+import com.google.common.base.Preconditions;
+
+import edu.jhuapl.sbmt.pointing.InstrumentPointing;
+import edu.jhuapl.sbmt.pointing.PointingBatch;
+import picante.math.vectorspace.UnwritableRotationMatrixIJK;
+import picante.mechanics.EphemerisID;
+import picante.mechanics.FrameID;
+import picante.mechanics.providers.aberrated.AberratedEphemerisProvider;
+import picante.mechanics.providers.aberrated.AberrationCorrection;
+import picante.spice.kernelpool.UnwritableKernelPool;
+
+/**
+ * View of a {@link SpicePointingProvider} with its own current instrument (see
+ * {@link SpicePointingProvider#createView()}). Everything else, including the
+ * kernels, caches and persistent store, is that of the underlying provider, to
+ * which all the queries are forwarded.
+ */
+final class SpicePointingProviderView extends SpicePointingProvider
+{
+    private final SpicePointingProvider provider;
+
+    /**
+     * @param provider the underlying provider
+     */
+    SpicePointingProviderView(SpicePointingProvider provider)
+    {
+        // The view's own pointing cache is never used.
+        super(1);
+
+        this.provider = Preconditions.checkNotNull(provider);
+    }
+
+    @Override
+    public InstrumentPointing provide(String instrumentName, double time)
+    {
+        return provider.provide(instrumentName, time);
+    }
+
+    @Override
+    public void provide(String instrumentName, double[] times, int fields, AberrationCorrection correction, PointingBatch batch)
+    {
+        provider.provide(instrumentName, times, fields, correction, batch);
+    }
+
+    @Override
+    protected InstrumentPointing provide(String instrumentName, FrameID instrumentFrame, double time)
+    {
+        return provider.provide(instrumentName, instrumentFrame, time);
+    }
+
+    @Override
+    SpiceEpochContext getEpochContext(double time)
+    {
+        return provider.getEpochContext(time);
+    }
+
+    @Override
+    SpiceEpochContext createEpochContext(double time)
+    {
+        return provider.createEpochContext(time);
+    }
+
+    @Override
+    InstrumentFov getInstrumentFov(String instrumentName, FrameID instrumentFrame)
+    {
+        return provider.getInstrumentFov(instrumentName, instrumentFrame);
+    }
+
+    @Override
+    InstrumentFov createInstrumentFov(FrameID instrumentFrame, int instCode)
+    {
+        return provider.createInstrumentFov(instrumentFrame, instCode);
+    }
+
+    @Override
+    UnwritableRotationMatrixIJK computeFixedRotationToScFrame(FrameID frame)
+    {
+        return provider.computeFixedRotationToScFrame(frame);
+    }
+
+    @Override
+    public PointingCache<? extends InstrumentPointing> getPointingCache()
+    {
+        return provider.getPointingCache();
+    }
+
+    @Override
+    public CoverageIndex getScCoverage()
+    {
+        return provider.getScCoverage();
+    }
+
+    @Override
+    public CoverageIndex getCoverage(String instrumentName)
+    {
+        return provider.getCoverage(instrumentName);
+    }
+
+    @Override
+    public AberrationCorrection getAberrationCorrection()
+    {
+        return provider.getAberrationCorrection();
+    }
+
+    @Override
+    public boolean isWarmStartLightTime()
+    {
+        return provider.isWarmStartLightTime();
+    }
+
+    @Override
+    PersistentPointingStore getPersistentStore()
+    {
+        return provider.getPersistentStore();
+    }
+
+    @Override
+    public AberratedEphemerisProvider getEphemerisProvider()
+    {
+        return provider.getEphemerisProvider();
+    }
+
+    @Override
+    SpiceFunctions getFunctions()
+    {
+        return provider.getFunctions();
+    }
+
+    @Override
+    public boolean isConcurrent()
+    {
+        return provider.isConcurrent();
+    }
+
+    @Override
+    public UnwritableKernelPool getKernelPool()
+    {
+        return provider.getKernelPool();
+    }
+
+    @Override
+    KernelPoolIndex getKernelPoolIndex()
+    {
+        return provider.getKernelPoolIndex();
+    }
+
+    @Override
+    public EphemerisID getTargetId()
+    {
+        return provider.getTargetId();
+    }
+
+    @Override
+    public FrameID getTargetFrame()
+    {
+        return provider.getTargetFrame();
+    }
+
+    @Override
+    public EphemerisID getScId()
+    {
+        return provider.getScId();
+    }
+
+    @Override
+    public FrameID getScFrameId()
+    {
+        return provider.getScFrameId();
+    }
+
+    @Override
+    public String[] getInstrumentNames()
+    {
+        return provider.getInstrumentNames();
+    }
+
+    @Override
+    protected int getInstrumentIdForInstrument(String instrumentName)
+    {
+        return provider.getInstrumentIdForInstrument(instrumentName);
+    }
+
+    @Override
+    protected FrameID getFrameIdForInstrument(String instrumentName)
+    {
+        return provider.getFrameIdForInstrument(instrumentName);
+    }
+
+}
@@ -0,0 +1,646 @@
+package edu.jhuapl.sbmt.pointing.spice;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+
+import edu.jhuapl.sbmt.pointing.AbstractInstrumentPointing;
+import edu.jhuapl.sbmt.pointing.IPointingProvider;
+import edu.jhuapl.sbmt.pointing.InstrumentPointing;
+import picante.math.vectorspace.UnwritableMatrixIJK;
+import picante.math.vectorspace.UnwritableRotationMatrixIJK;
+import picante.math.vectorspace.UnwritableVectorIJK;
+import picante.mechanics.EphemerisID;
+import picante.mechanics.FrameID;
+
+/**
+ * {@link IPointingProvider} that answers queries from piecewise interpolants
+ * fitted to a wrapped {@link SpicePointingProvider} over a fixed time window,
+ * for animation and sweep workloads that query pointings at very fine time
+ * steps.
+ * <p>
+ * The spacecraft position and velocity are interpolated using cubic Hermite
+ * polynomials through the exact positions and velocities at the nodes. The
+ * spacecraft and instrument rotations are interpolated by spherical linear
+ * interpolation (SLERP) between the exact rotations at the nodes, expressed as
+ * unit quaternions.
+ * <p>
+ * Nodes are placed adaptively: the window is first divided into intervals of
+ * the initial step, and each interval is validated by evaluating the wrapped
+ * provider at its midpoint, where the error of both interpolants is largest.
+ * Intervals whose position error or angular error exceeds the configured
+ * maximum are bisected until they pass, or until they reach the minimum step.
+ * The spacecraft fit is computed the first time any pointing is requested,
+ * and each instrument's rotation fit the first time that instrument is
+ * requested. The interpolated velocity is the derivative of the position
+ * interpolant and is not validated separately.
+ * <p>
+ * If a fit fails, typically because the window extends beyond the coverage of
+ * the kernels, the failure is recorded and the queries it would have answered
+ * are delegated to the wrapped provider, rather than fitting the whole window
+ * again on every query.
+ * <p>
+ * Queries outside the window, and all positions of other bodies (see
+ * {@link InstrumentPointing#getPosition(EphemerisID)}), are delegated to the
+ * wrapped provider. The current instrument is that of the wrapped provider.
+ * This provider may be used by multiple threads if the wrapped provider is
+ * concurrent (see {@link SpicePointingProvider.Builder#concurrent(boolean)}).
+ */
+public final class SurrogatePointingProvider implements IPointingProvider
+{
+    /**
+     * Return a builder for a {@link SurrogatePointingProvider} that wraps the
+     * specified provider over the specified time window.
+     *
+     * @param provider the provider to wrap
+     * @param startTime the beginning of the window, TDB
+     * @param stopTime the end of the window, TDB
+     * @return the builder
+     */
+    public static Builder builder(SpicePointingProvider provider, double startTime, double stopTime)
+    {
+        Preconditions.checkNotNull(provider);
+        Preconditions.checkArgument(stopTime > startTime, "Surrogate window stop time must be after its start time");
+
+        return new Builder(provider, startTime, stopTime);
+    }
+
+    public static class Builder
+    {
+        private final SpicePointingProvider provider;
+        private final double startTime;
+        private final double stopTime;
+        private double initialStep;
+        private double minimumStep;
+        private double maximumPositionError;
+        private double maximumAngularError;
+
+        protected Builder(SpicePointingProvider provider, double startTime, double stopTime)
+        {
+            this.provider = provider;
+            this.startTime = startTime;
+            this.stopTime = stopTime;
+            this.initialStep = 600.;
+            this.minimumStep = 0.1;
+            this.maximumPositionError = 1.e-3;
+            this.maximumAngularError = 1.e-6;
+        }
+
+        /**
+         * Set the width of the intervals into which the window is divided
+         * before any are bisected. The default is 600 s.
+         *
+         * @param seconds the initial step
+         * @return the builder
+         */
+        public Builder initialStep(double seconds)
+        {
+            Preconditions.checkArgument(seconds > 0., "Surrogate initial step must be positive");
+            this.initialStep = seconds;
+            return this;
+        }
+
+        /**
+         * Set the width below which intervals are not bisected further, even
+         * if their errors exceed the maximum. This bounds the number of nodes
+         * near discontinuities in the kernels. The default is 0.1 s.
+         *
+         * @param seconds the minimum step
+         * @return the builder
+         */
+        public Builder minimumStep(double seconds)
+        {
+            Preconditions.checkArgument(seconds > 0., "Surrogate minimum step must be positive");
+            this.minimumStep = seconds;
+            return this;
+        }
+
+        /**
+         * Set the maximum allowed difference between the interpolated and
+         * exact spacecraft positions at the validation points. The default is
+         * 1.e-3 km.
+         *
+         * @param kilometers the maximum position error
+         * @return the builder
+         */
+        public Builder maximumPositionError(double kilometers)
+        {
+            Preconditions.checkArgument(kilometers > 0., "Surrogate maximum position error must be positive");
+            this.maximumPositionError = kilometers;
+            return this;
+        }
+
+        /**
+         * Set the maximum allowed angle between the interpolated and exact
+         * spacecraft and instrument rotations at the validation points. The
+         * default is 1.e-6 radians.
+         *
+         * @param radians the maximum angular error
+         * @return the builder
+         */
+        public Builder maximumAngularError(double radians)
+        {
+            Preconditions.checkArgument(radians > 0., "Surrogate maximum angular error must be positive");
+            this.maximumAngularError = radians;
+            return this;
+        }
+
+        public SurrogatePointingProvider build()
+        {
+            Preconditions.checkArgument(minimumStep <= initialStep, "Surrogate minimum step must not exceed the initial step");
+
+            return new SurrogatePointingProvider(this);
+        }
+    }
+
+    private final SpicePointingProvider provider;
+    private final double startTime;
+    private final double stopTime;
+    private final double initialStep;
+    private final double minimumStep;
+    private final double maximumPositionError;
+    private final double maximumAngularError;
+    private final Map<String, Optional<InstrumentTrack>> instrumentTracks;
+    private volatile Optional<ScTrack> scTrack;
+
+    private SurrogatePointingProvider(Builder builder)
+    {
+        this.provider = builder.provider;
+        this.startTime = builder.startTime;
+        this.stopTime = builder.stopTime;
+        this.initialStep = builder.initialStep;
+        this.minimumStep = builder.minimumStep;
+        this.maximumPositionError = builder.maximumPositionError;
+        this.maximumAngularError = builder.maximumAngularError;
+        this.instrumentTracks = new ConcurrentHashMap<>();
+        this.scTrack = null; // Not fitted yet; empty if the fit failed.
+    }
+
+    @Override
+    public InstrumentPointing provide(String instrumentName, double time)
+    {
+        Preconditions.checkNotNull(instrumentName, "Instrument name must be defined");
+
+        if (time < startTime || time > stopTime)
+        {
+            return provider.provide(instrumentName, time);
+        }
+
+        FrameID instFrame = provider.getFrameIdForInstrument(instrumentName);
+        Preconditions.checkArgument(instFrame != null, "Cannot find a SPICE frame identifier for instrument name " + instrumentName);
+
+        Optional<ScTrack> scTrack = getScTrack();
+        if (scTrack.isEmpty())
+        {
+            return provider.provide(instrumentName, time);
+        }
+
+        // The FOV is resolved outside the fit, so that only a failure of the
+        // fit itself is recorded.
+        InstrumentFov fov = provider.getInstrumentFov(instrumentName, instFrame);
+        Optional<InstrumentTrack> instTrack = instrumentTracks.computeIfAbsent(instrumentName, name -> fit(() -> new InstrumentTrack(instFrame, fov)));
+        if (instTrack.isEmpty())
+        {
+            return provider.provide(instrumentName, time);
+        }
+
+        double[] scValues = new double[ScTrack.STRIDE];
+        scTrack.get().evaluate(time, scValues, 0);
+
+        double[] instQuaternion = new double[InstrumentTrack.STRIDE];
+        instTrack.get().evaluate(time, instQuaternion, 0);
+
+        return new SurrogateInstrumentPointing(provider, time, scValues, instQuaternion, fov);
+    }
+
+    @Override
+    public String[] getInstrumentNames()
+    {
+        return provider.getInstrumentNames();
+    }
+
+    @Override
+    public String getCurrentInstrumentName()
+    {
+        return provider.getCurrentInstrumentName();
+    }
+
+    @Override
+    public void setCurrentInstrumentName(String currentInstrumentName)
+    {
+        provider.setCurrentInstrumentName(currentInstrumentName);
+    }
+
+    /**
+     * @return the wrapped provider
+     */
+    public SpicePointingProvider getProvider()
+    {
+        return provider;
+    }
+
+    /**
+     * @return the beginning of the time window, TDB
+     */
+    public double getStartTime()
+    {
+        return startTime;
+    }
+
+    /**
+     * @return the end of the time window, TDB
+     */
+    public double getStopTime()
+    {
+        return stopTime;
+    }
+
+    /**
+     * Return the number of nodes of the spacecraft fit, fitting it first if
+     * necessary. This is a measure of the memory used by the fit and of how
+     * smooth the spacecraft trajectory and attitude are relative to the
+     * requested accuracy.
+     *
+     * @return the number of nodes, or 0 if the fit failed
+     */
+    public int getScNodeCount()
+    {
+        return getScTrack().map(ScTrack::getCount).orElse(0);
+    }
+
+    private Optional<ScTrack> getScTrack()
+    {
+        Optional<ScTrack> result = scTrack;
+        if (result == null)
+        {
+            synchronized (this)
+            {
+                result = scTrack;
+                if (result == null)
+                {
+                    result = fit(ScTrack::new);
+                    scTrack = result;
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Create a track, which fits it, returning empty if the fit fails.
+     */
+    private static <T extends Track> Optional<T> fit(Supplier<T> track)
+    {
+        try
+        {
+            return Optional.of(track.get());
+        }
+        catch (RuntimeException e)
+        {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Piecewise interpolant of a vector-valued function of time, with nodes
+     * placed adaptively when it is created. The values at each node are packed
+     * into one array with a fixed stride.
+     */
+    private abstract class Track
+    {
+        private final int stride;
+        private double[] times;
+        private double[] values;
+        private int count;
+
+        protected Track(int stride)
+        {
+            this.stride = stride;
+        }
+
+        /**
+         * Compute the exact values at the specified time.
+         */
+        protected abstract void sample(double time, double[] into, int offset);
+
+        /**
+         * Interpolate between the values at two adjacent nodes.
+         */
+        protected abstract void interpolate(double[] left, int leftOffset, double[] right, int rightOffset, double fraction, double step, double[] into, int offset);
+
+        /**
+         * Return whether the interpolated values are close enough to the exact
+         * values.
+         */
+        protected abstract boolean isAccurate(double[] exact, double[] interpolated);
+
+        /**
+         * Place the nodes and compute the values at them. Called once, by the
+         * constructor of each concrete track.
+         */
+        protected void fit()
+        {
+            int initialCount = (int) Math.ceil((stopTime - startTime) / initialStep) + 1;
+            times = new double[initialCount];
+            values = new double[initialCount * stride];
+            count = 0;
+
+            double[] right = new double[stride];
+            sample(startTime, right, 0);
+            append(startTime, right);
+
+            double[] exact = new double[stride];
+            double[] interpolated = new double[stride];
+            for (int index = 1; index < initialCount; ++index)
+            {
+                double leftTime = times[count - 1];
+                double rightTime = index == initialCount - 1 ? stopTime : startTime + index * initialStep;
+                sample(rightTime, right, 0);
+                refine(leftTime, rightTime, right, exact, interpolated);
+            }
+
+            times = Arrays.copyOf(times, count);
+            values = Arrays.copyOf(values, count * stride);
+        }
+
+        /**
+         * Append the node at rightTime, after first bisecting the interval
+         * that ends there as often as necessary to meet the accuracy
+         * requirement. The last node appended so far is the left end of the
+         * interval.
+         */
+        private void refine(double leftTime, double rightTime, double[] right, double[] exact, double[] interpolated)
+        {
+            double step = rightTime - leftTime;
+            double midTime = leftTime + 0.5 * step;
+            sample(midTime, exact, 0);
+            interpolate(values, (count - 1) * stride, right, 0, 0.5, step, interpolated, 0);
+
+            if (step <= minimumStep || isAccurate(exact, interpolated))
+            {
+                append(rightTime, right);
+            }
+            else
+            {
+                double[] mid = exact.clone();
+                refine(leftTime, midTime, mid, exact, interpolated);
+                refine(midTime, rightTime, right, exact, interpolated);
+            }
+        }
+
+        private void append(double time, double[] nodeValues)
+        {
+            if (count == times.length)
+            {
+                times = Arrays.copyOf(times, 2 * count);
+                values = Arrays.copyOf(values, 2 * count * stride);
+            }
+            times[count] = time;
+            System.arraycopy(nodeValues, 0, values, count * stride, stride);
+            ++count;
+        }
+
+        int getCount()
+        {
+            return count;
+        }
+
+        /**
+         * Interpolate the values at the specified time, which must be in the
+         * window.
+         */
+        void evaluate(double time, double[] into, int offset)
+        {
+            int index = Arrays.binarySearch(times, 0, count, time);
+            if (index >= 0)
+            {
+                System.arraycopy(values, index * stride, into, offset, stride);
+                return;
+            }
+
+            // Index of the node before the time.
+            index = -index - 2;
+            double step = times[index + 1] - times[index];
+            interpolate(values, index * stride, values, (index + 1) * stride, (time - times[index]) / step, step, into, offset);
+        }
+    }
+
+    /**
+     * Fit of the spacecraft position (0-2), velocity (3-5) and rotation
+     * quaternion (6-9).
+     */
+    private final class ScTrack extends Track
+    {
+        static final int STRIDE = 10;
+
+        ScTrack()
+        {
+            super(STRIDE);
+            fit();
+        }
+
+        @Override
+        protected void sample(double time, double[] into, int offset)
+        {
+            SpiceEpochContext context = provider.createEpochContext(time);
+
+            UnwritableVectorIJK position = context.getScPosition();
+            into[offset] = position.getI();
+            into[offset + 1] = position.getJ();
+            into[offset + 2] = position.getK();
+
+            UnwritableVectorIJK velocity = context.getScVelocity();
+            into[offset + 3] = velocity.getI();
+            into[offset + 4] = velocity.getJ();
+            into[offset + 5] = velocity.getK();
+
+            PackedRotations.toQuaternion(context.getScRotation(), into, offset + 6);
+        }
+
+        @Override
+        protected void interpolate(double[] left, int leftOffset, double[] right, int rightOffset, double fraction, double step, double[] into, int offset)
+        {
+            // Cubic Hermite basis functions and their derivatives.
+            double s = fraction;
+            double s2 = s * s;
+            double s3 = s2 * s;
+            double h00 = 2. * s3 - 3. * s2 + 1.;
+            double h10 = s3 - 2. * s2 + s;
+            double h01 = -2. * s3 + 3. * s2;
+            double h11 = s3 - s2;
+            double dh00 = 6. * s2 - 6. * s;
+            double dh10 = 3. * s2 - 4. * s + 1.;
+            double dh01 = -6. * s2 + 6. * s;
+            double dh11 = 3. * s2 - 2. * s;
+
+            for (int component = 0; component < 3; ++component)
+            {
+                double p0 = left[leftOffset + component];
+                double v0 = left[leftOffset + 3 + component];
+                double p1 = right[rightOffset + component];
+                double v1 = right[rightOffset + 3 + component];
+
+                into[offset + component] = h00 * p0 + h10 * step * v0 + h01 * p1 + h11 * step * v1;
+                into[offset + 3 + component] = (dh00 * p0 + dh01 * p1) / step + dh10 * v0 + dh11 * v1;
+            }
+
+            PackedRotations.slerp(left, leftOffset + 6, right, rightOffset + 6, fraction, into, offset + 6);
+        }
+
+        @Override
+        protected boolean isAccurate(double[] exact, double[] interpolated)
+        {
+            double di = exact[0] - interpolated[0];
+            double dj = exact[1] - interpolated[1];
+            double dk = exact[2] - interpolated[2];
+
+            return Math.sqrt(di * di + dj * dj + dk * dk) <= maximumPositionError && PackedRotations.angle(exact, 6, interpolated, 6) <= maximumAngularError;
+        }
+    }
+
+    /**
+     * Fit of the quaternion of the rotation from one instrument's frame to the
+     * target frame.
+     */
+    private final class InstrumentTrack extends Track
+    {
+        static final int STRIDE = 4;
+
+        private final FrameID instFrame;
+        private final InstrumentFov fov;
+
+        InstrumentTrack(FrameID instFrame, InstrumentFov fov)
+        {
+            super(STRIDE);
+            this.instFrame = instFrame;
+            this.fov = fov;
+            fit();
+        }
+
+        @Override
+        protected void sample(double time, double[] into, int offset)
+        {
+            SpiceEpochContext context = provider.createEpochContext(time);
+            UnwritableRotationMatrixIJK toScRotation = fov.getToScRotation();
+            PackedRotations.toQuaternion(toScRotation != null ? context.computeRotationToTargetFrame(toScRotation) : context.computeRotationToTargetFrame(instFrame), into, offset);
+        }
+
+        @Override
+        protected void interpolate(double[] left, int leftOffset, double[] right, int rightOffset, double fraction, double step, double[] into, int offset)
+        {
+            PackedRotations.slerp(left, leftOffset, right, rightOffset, fraction, into, offset);
+        }
+
+        @Override
+        protected boolean isAccurate(double[] exact, double[] interpolated)
+        {
+            return PackedRotations.angle(exact, 0, interpolated, 0) <= maximumAngularError;
+        }
+    }
+
+    /**
+     * Pointing built from interpolated values. Positions of other bodies are
+     * computed exactly, on demand, by the wrapped provider.
+     */
+    private static final class SurrogateInstrumentPointing extends AbstractInstrumentPointing
+    {
+        private final SpicePointingProvider provider;
+        private final double time;
+        private final UnwritableVectorIJK scPos;
+        private final UnwritableVectorIJK scVel;
+        private final UnwritableMatrixIJK scRotation;
+        private final UnwritableVectorIJK boresight;
+        private final UnwritableVectorIJK upDir;
+        private final ImmutableList<UnwritableVectorIJK> frustum;
+
+        SurrogateInstrumentPointing(SpicePointingProvider provider, double time, double[] scValues, double[] instQuaternion, InstrumentFov fov)
+        {
+            double[] matrix = new double[9];
+            double[] vector = new double[3];
+
+            this.provider = provider;
+            this.time = time;
+            this.scPos = new UnwritableVectorIJK(scValues[0], scValues[1], scValues[2]);
+            this.scVel = new UnwritableVectorIJK(scValues[3], scValues[4], scValues[5]);
+
+            PackedRotations.toMatrix(scValues, 6, matrix, 0);
+            this.scRotation = toMatrix(matrix);
+
+            PackedRotations.toMatrix(instQuaternion, 0, matrix, 0);
+            this.boresight = rotate(matrix, fov.getBoresight(), vector);
+            this.upDir = rotate(matrix, fov.getUpDirection(), vector);
+
+            ImmutableList.Builder<UnwritableVectorIJK> builder = ImmutableList.builder();
+            for (UnwritableVectorIJK corner : fov.getFrustum())
+            {
+                builder.add(rotate(matrix, corner, vector));
+            }
+            this.frustum = builder.build();
+        }
+
+        @Override
+        public UnwritableVectorIJK getScPosition()
+        {
+            return scPos;
+        }
+
+        @Override
+        public UnwritableVectorIJK getScVelocity()
+        {
+            return scVel;
+        }
+
+        @Override
+        public UnwritableMatrixIJK getScRotation()
+        {
+            return scRotation;
+        }
+
+        @Override
+        public UnwritableVectorIJK getPosition(EphemerisID bodyId)
+        {
+            return provider.getEpochContext(time).getPosition(bodyId);
+        }
+
+        @Override
+        public UnwritableVectorIJK getBoresight()
+        {
+            return boresight;
+        }
+
+        @Override
+        public UnwritableVectorIJK getUpDirection()
+        {
+            return upDir;
+        }
+
+        @Override
+        public List<UnwritableVectorIJK> getFrustum()
+        {
+            return frustum;
+        }
+
+        private static UnwritableMatrixIJK toMatrix(double[] matrix)
+        {
+            // The constructor takes the elements in column-major order.
+            return new UnwritableMatrixIJK( //
+                    matrix[0], matrix[3], matrix[6], //
+                    matrix[1], matrix[4], matrix[7], //
+                    matrix[2], matrix[5], matrix[8]);
+        }
+
+        private static UnwritableVectorIJK rotate(double[] matrix, UnwritableVectorIJK vector, double[] buffer)
+        {
+            PackedRotations.rotateUnit(matrix, 0, vector, buffer, 0);
+            return new UnwritableVectorIJK(buffer[0], buffer[1], buffer[2]);
+        }
+    }
+
+}
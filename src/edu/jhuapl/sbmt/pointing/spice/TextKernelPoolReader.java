@@ -0,0 +1,117 @@
+package edu.jhuapl.sbmt.pointing.spice;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import picante.spice.kernelpool.BasicKernelPool;
+import picante.spice.kernelpool.parser.ParseException;
+import picante.spice.kernelpool.parser.TextKernelParser;
+
+/**
+ * Reads the text kernels (IK, FK, PCK, SCLK, LSK, etc.) from a list of kernel
+ * files into a kernel pool, skipping the binary kernels. This gives access to
+ * the keyword/value information (such as instrument FOV definitions) much more
+ * cheaply than building a complete {@link picante.spice.SpiceEnvironment},
+ * which must also open every binary SPK and CK file.
+ */
+final class TextKernelPoolReader
+{
+    // Text kernels start in comment mode; this returns the parser to comment
+    // mode between files, exactly as if each were parsed separately.
+    private static final byte[] SEPARATOR = "\n\\begintext\n".getBytes(StandardCharsets.US_ASCII);
+
+    private TextKernelPoolReader()
+    {
+        throw new AssertionError();
+    }
+
+    /**
+     * Parse all the text kernels in the list, in order, into a single kernel
+     * pool. Later kernels override (or, using +=, append to) the values of
+     * earlier kernels, as with the SPICE kernel pool.
+     *
+     * @param kernels the kernel files
+     * @return the kernel pool
+     * @throws IOException if any text kernel cannot be read
+     * @throws ParseException if any text kernel cannot be parsed
+     */
+    static BasicKernelPool read(List<File> kernels) throws IOException, ParseException
+    {
+        List<InputStream> streams = new ArrayList<>();
+        try
+        {
+            for (File kernel : kernels)
+            {
+                if (isTextKernel(kernel))
+                {
+                    streams.add(new FileInputStream(kernel));
+                    streams.add(new ByteArrayInputStream(SEPARATOR));
+                }
+            }
+
+            try (Reader reader = new InputStreamReader(new SequenceInputStream(Collections.enumeration(streams))))
+            {
+                return new TextKernelParser().parse(reader);
+            }
+        }
+        finally
+        {
+            for (InputStream stream : streams)
+            {
+                stream.close();
+            }
+        }
+    }
+
+    /**
+     * Return whether the specified kernel is a text kernel. Kernels that begin
+     * with a NAIF text kernel architecture tag ("KPL/") are text kernels, and
+     * those that begin with a binary architecture tag ("DAF/", "DAS/" or the
+     * old "NAIF/DAF") are not. Old kernels without either are classified using
+     * the NAIF naming convention, in which text kernel extensions begin with
+     * "t".
+     *
+     * @param kernel the kernel file
+     * @return true if the kernel is a text kernel
+     * @throws IOException if the kernel cannot be read
+     */
+    static boolean isTextKernel(File kernel) throws IOException
+    {
+        byte[] header = new byte[8];
+        int length = 0;
+        try (InputStream stream = new FileInputStream(kernel))
+        {
+            int count;
+            while (length < header.length && (count = stream.read(header, length, header.length - length)) > 0)
+            {
+                length += count;
+            }
+        }
+
+        String tag = new String(header, 0, length, StandardCharsets.US_ASCII);
+        if (tag.startsWith("KPL/"))
+        {
+            return true;
+        }
+        if (tag.startsWith("DAF/") || tag.startsWith("DAS/") || tag.startsWith("NAIF/DAF"))
+        {
+            return false;
+        }
+
+        String name = kernel.getName();
+        int dot = name.lastIndexOf('.');
+
+        return dot >= 0 && dot + 1 < name.length() && Character.toLowerCase(name.charAt(dot + 1)) == 't';
+    }
+
+}
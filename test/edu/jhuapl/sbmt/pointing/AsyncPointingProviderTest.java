@@ -0,0 +1,263 @@
+package edu.jhuapl.sbmt.pointing;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import picante.math.vectorspace.UnwritableMatrixIJK;
+import picante.math.vectorspace.UnwritableVectorIJK;
+import picante.mechanics.EphemerisID;
+
+class AsyncPointingProviderTest
+{
+	private static IPointingProvider provider;
+
+	@BeforeAll
+	static void setUpBeforeClass() throws Exception
+	{
+		// Pointings record their time as the i component of the spacecraft
+		// position; negative times cannot be provided.
+		provider = new IPointingProvider() {
+
+			@Override
+			public InstrumentPointing provide(String instrumentName, double time)
+			{
+				if (time < 0.)
+				{
+					throw new IllegalArgumentException("No pointing at " + time);
+				}
+				return pointing(time);
+			}
+
+			@Override
+			public String[] getInstrumentNames()
+			{
+				return new String[] { "INSTRUMENT" };
+			}
+
+			@Override
+			public String getCurrentInstrumentName()
+			{
+				return "INSTRUMENT";
+			}
+
+			@Override
+			public void setCurrentInstrumentName(String currentInstrumentName)
+			{
+			}
+		};
+	}
+
+	@AfterAll
+	static void tearDownAfterClass() throws Exception
+	{
+	}
+
+	@Test
+	void testProvide() throws InterruptedException, ExecutionException, TimeoutException
+	{
+		AsyncPointingProvider async = new AsyncPointingProvider(provider);
+
+		CompletableFuture<InstrumentPointing> future = async.provide("INSTRUMENT", 5.);
+		assertEquals(5., future.get(10, TimeUnit.SECONDS).getScPosition().getI(), 0.);
+
+		ExecutionException e = assertThrows(ExecutionException.class, () -> async.provide("INSTRUMENT", -1.).get(10, TimeUnit.SECONDS));
+		assertTrue(e.getCause() instanceof IllegalArgumentException);
+	}
+
+	@Test
+	void testDefaultExecutorReusesThreads() throws InterruptedException, ExecutionException, TimeoutException
+	{
+		// Concurrent providers create their functions once per calling
+		// thread, so the number of threads bounds the number of instances.
+		Set<Thread> threads = ConcurrentHashMap.newKeySet();
+		IPointingProvider recording = new IPointingProvider() {
+
+			@Override
+			public InstrumentPointing provide(String instrumentName, double time)
+			{
+				threads.add(Thread.currentThread());
+				return provider.provide(instrumentName, time);
+			}
+
+			@Override
+			public String[] getInstrumentNames()
+			{
+				return provider.getInstrumentNames();
+			}
+
+			@Override
+			public String getCurrentInstrumentName()
+			{
+				return provider.getCurrentInstrumentName();
+			}
+
+			@Override
+			public void setCurrentInstrumentName(String currentInstrumentName)
+			{
+			}
+		};
+		AsyncPointingProvider async = new AsyncPointingProvider(recording);
+
+		List<CompletableFuture<InstrumentPointing>> futures = new ArrayList<>();
+		for (int index = 0; index < 1000; ++index)
+		{
+			futures.add(async.provide("INSTRUMENT", index));
+		}
+		for (CompletableFuture<InstrumentPointing> future : futures)
+		{
+			future.get(10, TimeUnit.SECONDS);
+		}
+
+		assertTrue(threads.size() <= Runtime.getRuntime().availableProcessors(), "Pointings computed on " + threads.size() + " threads");
+		assertTrue(threads.stream().allMatch(Thread::isDaemon));
+	}
+
+	@Test
+	void testPublishHonorsDemand()
+	{
+		// Runs each drain immediately, so demand can be checked synchronously.
+		Executor direct = Runnable::run;
+		AsyncPointingProvider async = new AsyncPointingProvider(provider, direct);
+
+		RecordingSubscriber subscriber = new RecordingSubscriber();
+		async.publish("INSTRUMENT", 0., 1., 0.25).subscribe(subscriber);
+		assertTrue(subscriber.times.isEmpty());
+
+		subscriber.subscription.request(2);
+		assertEquals(List.of(0., 0.25), subscriber.times);
+		assertFalse(subscriber.complete);
+
+		subscriber.subscription.request(2);
+		assertEquals(List.of(0., 0.25, 0.5, 0.75), subscriber.times);
+		assertFalse(subscriber.complete);
+
+		subscriber.subscription.request(Long.MAX_VALUE);
+		assertEquals(List.of(0., 0.25, 0.5, 0.75, 1.), subscriber.times);
+		assertTrue(subscriber.complete);
+		assertNull(subscriber.error);
+	}
+
+	@Test
+	void testPublishErrors()
+	{
+		AsyncPointingProvider async = new AsyncPointingProvider(provider, Runnable::run);
+
+		// The provider fails partway through.
+		RecordingSubscriber failing = new RecordingSubscriber();
+		async.publish("INSTRUMENT", -1., 1., 1.).subscribe(failing);
+		failing.subscription.request(3);
+		assertTrue(failing.times.isEmpty());
+		assertTrue(failing.error instanceof IllegalArgumentException);
+		assertFalse(failing.complete);
+
+		// Non-positive requests are errors.
+		RecordingSubscriber invalid = new RecordingSubscriber();
+		async.publish("INSTRUMENT", 0., 1., 1.).subscribe(invalid);
+		invalid.subscription.request(0);
+		assertTrue(invalid.error instanceof IllegalArgumentException);
+
+		// Nothing is published after cancellation.
+		RecordingSubscriber cancelled = new RecordingSubscriber();
+		async.publish("INSTRUMENT", 0., 10., 1.).subscribe(cancelled);
+		cancelled.subscription.request(1);
+		cancelled.subscription.cancel();
+		cancelled.subscription.request(5);
+		assertEquals(List.of(0.), cancelled.times);
+		assertFalse(cancelled.complete);
+	}
+
+	private static final class RecordingSubscriber implements Flow.Subscriber<InstrumentPointing>
+	{
+		private final List<Double> times = new ArrayList<>();
+		private Flow.Subscription subscription;
+		private Throwable error;
+		private boolean complete;
+
+		@Override
+		public void onSubscribe(Flow.Subscription subscription)
+		{
+			this.subscription = subscription;
+		}
+
+		@Override
+		public void onNext(InstrumentPointing item)
+		{
+			times.add(item.getScPosition().getI());
+		}
+
+		@Override
+		public void onError(Throwable throwable)
+		{
+			this.error = throwable;
+		}
+
+		@Override
+		public void onComplete()
+		{
+			this.complete = true;
+		}
+	}
+
+	private static InstrumentPointing pointing(double time)
+	{
+		return new InstrumentPointing() {
+
+			@Override
+			public UnwritableVectorIJK getScPosition()
+			{
+				return new UnwritableVectorIJK(time, 0, 0);
+			}
+
+			@Override
+			public UnwritableVectorIJK getScVelocity()
+			{
+				return null;
+			}
+
+			@Override
+			public UnwritableMatrixIJK getScRotation()
+			{
+				return null;
+			}
+
+			@Override
+			public UnwritableVectorIJK getPosition(EphemerisID bodyId)
+			{
+				return null;
+			}
+
+			@Override
+			public UnwritableVectorIJK getBoresight()
+			{
+				return null;
+			}
+
+			@Override
+			public UnwritableVectorIJK getUpDirection()
+			{
+				return null;
+			}
+
+			@Override
+			public List<UnwritableVectorIJK> getFrustum()
+			{
+				return null;
+			}
+		};
+	}
+
+}
@@ -0,0 +1,158 @@
+package edu.jhuapl.sbmt.pointing;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ObjDoubleConsumer;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import edu.jhuapl.sbmt.pointing.modules.BodyTransformEvaluator;
+
+class BodyTransformPlaybackTest
+{
+	private static final List<String> BODIES = List.of("PHOBOS", "DEIMOS");
+	private static final int STRIDE = BodyTransformEvaluator.ELEMENTS_PER_BODY * 2;
+
+	// Writes the time into every element.
+	private static final ObjDoubleConsumer<double[]> TIME_SOURCE = (elements, time) -> {
+		for (int index = 0; index < STRIDE; ++index)
+		{
+			elements[index] = time;
+		}
+	};
+
+	@BeforeAll
+	static void setUpBeforeClass() throws Exception
+	{
+	}
+
+	@AfterAll
+	static void tearDownAfterClass() throws Exception
+	{
+	}
+
+	@Test
+	void testForward() throws Exception
+	{
+		try (BodyTransformPlayback playback = new BodyTransformPlayback(BODIES, TIME_SOURCE, 10., 8, 2))
+		{
+			double[] elements = new double[STRIDE];
+			assertFalse(playback.get(100., elements));
+
+			// The frame at the playhead is left to the caller.
+			playback.setPlayhead(100.);
+			awaitComputed(playback, 110., 10., 7);
+			assertFalse(playback.isComputed(100.));
+			assertTrue(playback.get(170., elements));
+			assertEquals(170., elements[STRIDE - 1], 0.);
+
+			// Not a frame, or outside the window.
+			assertFalse(playback.get(105., elements));
+			assertFalse(playback.get(90., elements));
+			assertFalse(playback.get(180., elements));
+
+			// Sliding keeps the frames still in the window and fills the rest.
+			playback.setPlayhead(130.);
+			assertTrue(playback.isComputed(130.));
+			awaitComputed(playback, 130., 10., 8);
+		}
+	}
+
+	@Test
+	void testReverse() throws Exception
+	{
+		try (BodyTransformPlayback playback = new BodyTransformPlayback(BODIES, TIME_SOURCE, 10., 4, 1))
+		{
+			playback.setReverse(true);
+			playback.setPlayhead(100.);
+			awaitComputed(playback, 90., -10., 3);
+			assertFalse(playback.isComputed(110.));
+
+			double[] elements = new double[STRIDE];
+			assertTrue(playback.get(70., elements));
+			assertEquals(70., elements[0], 0.);
+		}
+	}
+
+	@Test
+	void testJumpDiscardsStaleWork() throws Exception
+	{
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		ObjDoubleConsumer<double[]> blocking = (elements, time) -> {
+			if (time == 10.)
+			{
+				started.countDown();
+				try
+				{
+					release.await();
+				}
+				catch (InterruptedException e)
+				{
+					Thread.currentThread().interrupt();
+				}
+			}
+			TIME_SOURCE.accept(elements, time);
+		};
+
+		try (BodyTransformPlayback playback = new BodyTransformPlayback(BODIES, blocking, 10., 4, 1))
+		{
+			playback.setPlayhead(0.);
+			assertTrue(started.await(5, TimeUnit.SECONDS));
+
+			// Jump while the first frame is being computed, then let it finish.
+			playback.setPlayhead(1000.);
+			release.countDown();
+
+			awaitComputed(playback, 1010., 10., 3);
+			assertFalse(playback.isComputed(10.));
+		}
+	}
+
+	@Test
+	void testJumpOffGrid() throws Exception
+	{
+		try (BodyTransformPlayback playback = new BodyTransformPlayback(BODIES, TIME_SOURCE, 10., 4, 1))
+		{
+			playback.setPlayhead(0.);
+			awaitComputed(playback, 10., 10., 3);
+
+			// The frames are realigned to the new time.
+			playback.setPlayhead(5.);
+			awaitComputed(playback, 15., 10., 3);
+			assertFalse(playback.isComputed(10.));
+		}
+	}
+
+	@Test
+	void testInvalidArguments()
+	{
+		assertThrows(IllegalArgumentException.class, () -> new BodyTransformPlayback(BODIES, TIME_SOURCE, 0., 4, 1));
+		assertThrows(IllegalArgumentException.class, () -> new BodyTransformPlayback(BODIES, TIME_SOURCE, 10., 0, 1));
+		assertThrows(IllegalArgumentException.class, () -> new BodyTransformPlayback(BODIES, TIME_SOURCE, 10., 4, 0));
+
+		BodyTransformPlayback playback = new BodyTransformPlayback(BODIES, TIME_SOURCE, 10., 4, 1);
+		playback.close();
+		assertThrows(IllegalStateException.class, () -> playback.setPlayhead(0.));
+	}
+
+	private static void awaitComputed(BodyTransformPlayback playback, double start, double step, int count) throws InterruptedException
+	{
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		for (int frame = 0; frame < count; ++frame)
+		{
+			double time = start + frame * step;
+			while (!playback.isComputed(time))
+			{
+				assertTrue(System.nanoTime() < deadline, "Frame at " + time + " was not computed");
+				Thread.sleep(1);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,138 @@
+package edu.jhuapl.sbmt.pointing;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import com.google.common.collect.ImmutableList;
+
+import picante.math.vectorspace.MatrixIJK;
+import picante.math.vectorspace.UnwritableMatrixIJK;
+import picante.math.vectorspace.UnwritableVectorIJK;
+import picante.math.vectorspace.VectorIJK;
+import picante.mechanics.EphemerisID;
+
+class InstrumentPointingTest
+{
+	private static InstrumentPointing pointing;
+
+	@BeforeAll
+	static void setUpBeforeClass() throws Exception
+	{
+		// Implements only the allocating getters, so the buffer-filling
+		// getters are the defaults.
+		pointing = new InstrumentPointing() {
+
+			@Override
+			public UnwritableVectorIJK getScPosition()
+			{
+				return new UnwritableVectorIJK(1, 2, 3);
+			}
+
+			@Override
+			public UnwritableVectorIJK getScVelocity()
+			{
+				return null;
+			}
+
+			@Override
+			public UnwritableMatrixIJK getScRotation()
+			{
+				return new UnwritableMatrixIJK(1, 2, 3, 4, 5, 6, 7, 8, 9);
+			}
+
+			@Override
+			public UnwritableVectorIJK getPosition(EphemerisID bodyId)
+			{
+				return null;
+			}
+
+			@Override
+			public UnwritableVectorIJK getBoresight()
+			{
+				return new UnwritableVectorIJK(0, 0, 1);
+			}
+
+			@Override
+			public UnwritableVectorIJK getUpDirection()
+			{
+				return new UnwritableVectorIJK(0, 1, 0);
+			}
+
+			@Override
+			public List<UnwritableVectorIJK> getFrustum()
+			{
+				return ImmutableList.of(new UnwritableVectorIJK(1, 0, 0), new UnwritableVectorIJK(0, 1, 0), new UnwritableVectorIJK(0, 0, 1), new UnwritableVectorIJK(-1, 0, 0));
+			}
+		};
+	}
+
+	@AfterAll
+	static void tearDownAfterClass() throws Exception
+	{
+	}
+
+	@Test
+	void testVectorBuffers()
+	{
+		VectorIJK buffer = new VectorIJK(9, 9, 9);
+
+		assertSame(buffer, pointing.getScPosition(buffer));
+		assertVector(1, 2, 3, buffer);
+
+		assertSame(buffer, pointing.getBoresight(buffer));
+		assertVector(0, 0, 1, buffer);
+
+		assertSame(buffer, pointing.getUpDirection(buffer));
+		assertVector(0, 1, 0, buffer);
+
+		// Missing quantities leave the buffer alone.
+		assertNull(pointing.getScVelocity(buffer));
+		assertVector(0, 1, 0, buffer);
+	}
+
+	@Test
+	void testMatrixBuffer()
+	{
+		MatrixIJK buffer = new MatrixIJK();
+
+		assertSame(buffer, pointing.getScRotation(buffer));
+		for (int row = 0; row < 3; ++row)
+		{
+			for (int column = 0; column < 3; ++column)
+			{
+				assertEquals(pointing.getScRotation().get(row, column), buffer.get(row, column));
+			}
+		}
+	}
+
+	@Test
+	void testFrustumBuffer()
+	{
+		double[] buffer = new double[14];
+
+		assertSame(buffer, pointing.getFrustum(buffer, 2));
+		assertArrayEquals(new double[] { 0, 0, 1, 0, 0, 0, 1, 0, 0, 0, 1, -1, 0, 0 }, buffer);
+	}
+
+	@Test
+	void testFrustumCorner()
+	{
+		for (int corner = 0; corner < 4; ++corner)
+		{
+			assertVector(pointing.getFrustum().get(corner).getI(), pointing.getFrustum().get(corner).getJ(), pointing.getFrustum().get(corner).getK(), new VectorIJK(pointing.getFrustumCorner(corner)));
+		}
+	}
+
+	private static void assertVector(double i, double j, double k, VectorIJK vector)
+	{
+		assertEquals(i, vector.getI());
+		assertEquals(j, vector.getJ());
+		assertEquals(k, vector.getK());
+	}
+
+}
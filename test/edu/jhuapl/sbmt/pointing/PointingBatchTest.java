@@ -0,0 +1,159 @@
+package edu.jhuapl.sbmt.pointing;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import com.google.common.collect.ImmutableList;
+
+import picante.math.vectorspace.UnwritableMatrixIJK;
+import picante.math.vectorspace.UnwritableVectorIJK;
+import picante.mechanics.EphemerisID;
+
+class PointingBatchTest
+{
+	private static InstrumentPointing pointing;
+
+	@BeforeAll
+	static void setUpBeforeClass() throws Exception
+	{
+		pointing = new InstrumentPointing() {
+
+			@Override
+			public UnwritableVectorIJK getScPosition()
+			{
+				return new UnwritableVectorIJK(1, 2, 3);
+			}
+
+			@Override
+			public UnwritableVectorIJK getScVelocity()
+			{
+				return null;
+			}
+
+			@Override
+			public UnwritableMatrixIJK getScRotation()
+			{
+				return new UnwritableMatrixIJK(1, 2, 3, 4, 5, 6, 7, 8, 9);
+			}
+
+			@Override
+			public UnwritableVectorIJK getPosition(EphemerisID bodyId)
+			{
+				return null;
+			}
+
+			@Override
+			public UnwritableVectorIJK getBoresight()
+			{
+				return new UnwritableVectorIJK(0, 0, 1);
+			}
+
+			@Override
+			public UnwritableVectorIJK getUpDirection()
+			{
+				return new UnwritableVectorIJK(0, 1, 0);
+			}
+
+			@Override
+			public List<UnwritableVectorIJK> getFrustum()
+			{
+				return ImmutableList.of(new UnwritableVectorIJK(1, 0, 0), new UnwritableVectorIJK(0, 1, 0), new UnwritableVectorIJK(0, 0, 1), new UnwritableVectorIJK(-1, 0, 0));
+			}
+		};
+	}
+
+	@AfterAll
+	static void tearDownAfterClass() throws Exception
+	{
+	}
+
+	@Test
+	void testOnlySelectedFieldsAreAllocated()
+	{
+		PointingBatch batch = new PointingBatch(5, PointingBatch.SC_POSITION | PointingBatch.FRUSTUM);
+
+		assertEquals(5, batch.getCapacity());
+		assertEquals(15, batch.getScPositions().length);
+		assertEquals(60, batch.getFrustums().length);
+		assertNull(batch.getScVelocities());
+		assertNull(batch.getScRotations());
+		assertTrue(batch.hasFields(PointingBatch.SC_POSITION));
+		assertFalse(batch.hasFields(PointingBatch.SC_POSITION | PointingBatch.BORESIGHT));
+	}
+
+	@Test
+	void testPut()
+	{
+		PointingBatch batch = new PointingBatch(2, PointingBatch.ALL);
+		batch.put(1, PointingBatch.ALL, pointing);
+
+		assertArrayEquals(new double[] { 0, 0, 0, 1, 2, 3 }, batch.getScPositions());
+		assertTrue(Double.isNaN(batch.getScVelocities()[3]));
+		assertEquals(0, batch.getScVelocities()[0]);
+
+		// Row-major: element (0, 1) is the first component of the second column.
+		assertEquals(4, batch.getScRotations()[9 + 1]);
+		assertEquals(2, batch.getScRotations()[9 + 3]);
+
+		assertEquals(1, batch.getBoresights()[5]);
+		assertEquals(1, batch.getUpDirections()[4]);
+		assertEquals(-1, batch.getFrustums()[12 + 9]);
+	}
+
+	@Test
+	void testCopy()
+	{
+		PointingBatch source = new PointingBatch(2, PointingBatch.ALL);
+		source.put(1, PointingBatch.ALL, pointing);
+
+		PointingBatch destination = new PointingBatch(3, PointingBatch.SC_POSITION | PointingBatch.FRUSTUM);
+		source.copy(1, PointingBatch.SC_POSITION | PointingBatch.FRUSTUM, destination, 2);
+
+		assertArrayEquals(new double[] { 0, 0, 0, 0, 0, 0, 1, 2, 3 }, destination.getScPositions());
+		assertEquals(-1, destination.getFrustums()[24 + 9]);
+		assertEquals(0, destination.getFrustums()[12 + 9]);
+	}
+
+	@Test
+	void testDefaultProvide()
+	{
+		IPointingProvider provider = new IPointingProvider() {
+
+			@Override
+			public InstrumentPointing provide(String instrumentName, double time)
+			{
+				return pointing;
+			}
+
+			@Override
+			public String[] getInstrumentNames()
+			{
+				return new String[] { "INST" };
+			}
+
+			@Override
+			public String getCurrentInstrumentName()
+			{
+				return "INST";
+			}
+
+			@Override
+			public void setCurrentInstrumentName(String currentInstrumentName)
+			{
+			}
+		};
+
+		PointingBatch batch = new PointingBatch(3, PointingBatch.SC_POSITION);
+		provider.provide("INST", new double[] { 0., 1., 2. }, PointingBatch.SC_POSITION, batch);
+		assertArrayEquals(new double[] { 1, 2, 3, 1, 2, 3, 1, 2, 3 }, batch.getScPositions());
+
+		assertThrows(IllegalArgumentException.class, () -> provider.provide("INST", new double[4], PointingBatch.SC_POSITION, batch));
+		assertThrows(IllegalArgumentException.class, () -> provider.provide("INST", new double[1], PointingBatch.BORESIGHT, batch));
+	}
+
+}
@@ -0,0 +1,115 @@
+package edu.jhuapl.sbmt.pointing;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class PointingQueryPlannerTest
+{
+	@BeforeAll
+	static void setUpBeforeClass() throws Exception
+	{
+	}
+
+	@AfterAll
+	static void tearDownAfterClass() throws Exception
+	{
+	}
+
+	@Test
+	void testPlan()
+	{
+		double[] times = { 30., 10., 20., 10., 5000., 30., 4990., 20. };
+
+		PointingQueryPlanner plan = PointingQueryPlanner.of(times, 100., 2);
+		assertEquals(8, plan.getCount());
+		assertEquals(5, plan.getDistinctCount());
+
+		// The gap splits the times at 30/4990, and the run length splits the
+		// first three.
+		assertEquals(3, plan.getRunCount());
+		assertArrayEquals(new double[] { 10., 20. }, plan.getRunTimes(0));
+		assertArrayEquals(new double[] { 30. }, plan.getRunTimes(1));
+		assertArrayEquals(new double[] { 4990., 5000. }, plan.getRunTimes(2));
+
+		PointingQueryPlanner empty = PointingQueryPlanner.of(new double[0]);
+		assertEquals(0, empty.getDistinctCount());
+		assertEquals(0, empty.getRunCount());
+	}
+
+	@Test
+	void testProvide()
+	{
+		List<double[]> calls = new ArrayList<>();
+
+		// Writes the time into the i component of the spacecraft position.
+		IPointingProvider provider = new IPointingProvider() {
+
+			@Override
+			public void provide(String instrumentName, double[] times, int fields, PointingBatch batch)
+			{
+				calls.add(times.clone());
+				for (int index = 0; index < times.length; ++index)
+				{
+					batch.getScPositions()[3 * index] = times[index];
+					batch.getScPositions()[3 * index + 1] = -times[index];
+					batch.getScPositions()[3 * index + 2] = 0.;
+				}
+			}
+
+			@Override
+			public InstrumentPointing provide(String instrumentName, double time)
+			{
+				throw new UnsupportedOperationException();
+			}
+
+			@Override
+			public String[] getInstrumentNames()
+			{
+				return new String[] { "INSTRUMENT" };
+			}
+
+			@Override
+			public String getCurrentInstrumentName()
+			{
+				return "INSTRUMENT";
+			}
+
+			@Override
+			public void setCurrentInstrumentName(String currentInstrumentName)
+			{
+			}
+		};
+
+		double[] times = new double[1000];
+		for (int index = 0; index < times.length; ++index)
+		{
+			// Reversed, each time three or four times.
+			times[index] = 300 - (index * 3 / 10);
+		}
+
+		PointingBatch batch = new PointingBatch(times.length, PointingBatch.SC_POSITION);
+		PointingQueryPlanner.provide(provider, "INSTRUMENT", times, PointingBatch.SC_POSITION, batch);
+
+		// One sorted call covering each distinct time once.
+		assertEquals(1, calls.size());
+		double[] evaluated = calls.get(0);
+		assertEquals(300, evaluated.length);
+		for (int index = 1; index < evaluated.length; ++index)
+		{
+			assertTrue(evaluated[index - 1] < evaluated[index]);
+		}
+
+		for (int index = 0; index < times.length; ++index)
+		{
+			assertEquals(times[index], batch.getScPositions()[3 * index], 0.);
+			assertEquals(-times[index], batch.getScPositions()[3 * index + 1], 0.);
+		}
+	}
+
+}
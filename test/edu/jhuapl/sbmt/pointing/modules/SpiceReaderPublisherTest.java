@@ -6,6 +6,9 @@ import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
+import edu.jhuapl.sbmt.pointing.spice.SpiceInfo;
+import edu.jhuapl.sbmt.pointing.spice.TestSpicePointingProvider;
+
 class SpiceReaderPublisherTest
 {
 
@@ -31,4 +34,26 @@ class SpiceReaderPublisherTest
 		fail("Not yet implemented"); // TODO
 	}
 
+	@Test
+	void testSpiceReaderPublisherSpicePointingProviderSpiceInfo()
+	{
+		TestSpicePointingProvider provider = new TestSpicePointingProvider("INSTRUMENT_A", "INSTRUMENT_B");
+		provider.setCurrentInstrumentName("INSTRUMENT_B");
+		SpiceInfo spiceInfo = new SpiceInfo("TEST_SC", "TEST_TARGET_FRAME", "TEST_SC_FRAME", "TEST_TARGET", new String[] { "SUN" }, new String[] {}, new String[] { "INSTRUMENT_B" }, new String[] {});
+		int shared = SpiceReaderPublisher.getProviderRegistry().size();
+
+		// The provider is published as it is, with its current instrument,
+		// and without a lease on a shared provider.
+		SpiceReaderPublisher publisher = new SpiceReaderPublisher(provider, spiceInfo);
+		assertSame(provider, publisher.getPointingProvider());
+		assertEquals("INSTRUMENT_B", publisher.getPointingProvider().getCurrentInstrumentName());
+		assertEquals(shared, SpiceReaderPublisher.getProviderRegistry().size());
+
+		// Closing it has no effect on the provider.
+		publisher.close();
+		publisher.close();
+		assertSame(provider, publisher.getPointingProvider());
+		assertEquals("INSTRUMENT_B", provider.getCurrentInstrumentName());
+	}
+
 }
@@ -0,0 +1,210 @@
+package edu.jhuapl.sbmt.pointing.spice;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import picante.math.intervals.Interval;
+import picante.math.vectorspace.RotationMatrixIJK;
+import picante.mechanics.Coverage;
+import picante.mechanics.FrameID;
+import picante.mechanics.FrameTransformFunction;
+import picante.mechanics.utilities.SimpleFrameID;
+
+class CoverageIndexTest
+{
+
+	@BeforeAll
+	static void setUpBeforeClass() throws Exception
+	{
+	}
+
+	@AfterAll
+	static void tearDownAfterClass() throws Exception
+	{
+	}
+
+	@Test
+	void testIsCovered()
+	{
+		// Unsorted, overlapping and adjacent intervals are merged.
+		CoverageIndex index = CoverageIndex.of(20., 30., 0., 10., 5., 12., 30., 35.);
+
+		assertEquals(2, index.getIntervalCount());
+		assertEquals(0., index.getBegin(0));
+		assertEquals(12., index.getEnd(0));
+		assertEquals(20., index.getBegin(1));
+		assertEquals(35., index.getEnd(1));
+
+		assertFalse(index.isCovered(-1.));
+		assertTrue(index.isCovered(0.));
+		assertTrue(index.isCovered(12.));
+		assertFalse(index.isCovered(15.));
+		assertTrue(index.isCovered(35.));
+		assertFalse(index.isCovered(35.1));
+
+		boolean[] mask = index.getCoverageMask(new double[] { 36., 1., 15., 25. }, new boolean[4]);
+		assertArrayEquals(new boolean[] { false, true, false, true }, mask);
+
+		assertTrue(CoverageIndex.ALL_TIME.isCovered(-1.e12));
+		assertFalse(CoverageIndex.NONE.isCovered(0.));
+	}
+
+	@Test
+	void testUnionAndIntersection()
+	{
+		CoverageIndex a = CoverageIndex.of(0., 10., 20., 30.);
+		CoverageIndex b = CoverageIndex.of(5., 25.);
+
+		CoverageIndex intersection = a.intersect(b);
+		assertEquals(2, intersection.getIntervalCount());
+		assertEquals(5., intersection.getBegin(0));
+		assertEquals(10., intersection.getEnd(0));
+		assertEquals(20., intersection.getBegin(1));
+		assertEquals(25., intersection.getEnd(1));
+
+		CoverageIndex union = a.union(b);
+		assertEquals(1, union.getIntervalCount());
+		assertEquals(0., union.getBegin(0));
+		assertEquals(30., union.getEnd(0));
+
+		assertSame(a, a.intersect(CoverageIndex.ALL_TIME));
+		assertTrue(a.intersect(CoverageIndex.NONE).isEmpty());
+	}
+
+	@Test
+	void testOfCoverage()
+	{
+		CoverageIndex index = CoverageIndex.of(coverage(0., 10., 10., 20., 30., 40.));
+
+		assertEquals(2, index.getIntervalCount());
+		assertEquals(0., index.getBegin(0));
+		assertEquals(20., index.getEnd(0));
+		assertEquals(30., index.getBegin(1));
+		assertEquals(40., index.getEnd(1));
+	}
+
+	@Test
+	void testOfFrame()
+	{
+		FrameID instrument = new SimpleFrameID("INSTRUMENT");
+		FrameID spacecraft = new SimpleFrameID("SPACECRAFT");
+		FrameID j2000 = new SimpleFrameID("J2000");
+
+		// Instrument is fixed relative to the spacecraft, which has two CK
+		// segments relative to J2000.
+		List<FrameTransformFunction> sources = List.of( //
+				source(instrument, spacecraft, coverage(-1.e9, 1.e9)), //
+				source(spacecraft, j2000, coverage(0., 10.)), //
+				source(spacecraft, j2000, coverage(20., 30.)));
+
+		CoverageIndex index = CoverageIndex.ofFrame(instrument, sources);
+		assertEquals(2, index.getIntervalCount());
+		assertTrue(index.isCovered(5.));
+		assertFalse(index.isCovered(15.));
+		assertTrue(index.isCovered(25.));
+
+		assertTrue(CoverageIndex.ofFrame(j2000, sources).isCovered(15.));
+	}
+
+	/**
+	 * Coverage of sorted, disjoint or adjacent intervals.
+	 */
+	private static Coverage coverage(double... bounds)
+	{
+		return new Coverage() {
+
+			@Override
+			public boolean contains(double t)
+			{
+				for (int index = 0; index < bounds.length; index += 2)
+				{
+					if (bounds[index] <= t && t <= bounds[index + 1])
+					{
+						return true;
+					}
+				}
+				return false;
+			}
+
+			@Override
+			public Interval getBoundingInterval(Interval buffer)
+			{
+				return buffer.set(bounds[0], bounds[bounds.length - 1]);
+			}
+
+			@Override
+			public Interval getBracketingInterval(double t, Interval buffer)
+			{
+				for (int index = 0; index < bounds.length; index += 2)
+				{
+					if (bounds[index] <= t && t <= bounds[index + 1])
+					{
+						return buffer.set(bounds[index], bounds[index + 1]);
+					}
+				}
+				throw new IllegalArgumentException();
+			}
+
+			@Override
+			public boolean hasNextInterval(double t)
+			{
+				return t < bounds[bounds.length - 2];
+			}
+
+			@Override
+			public Interval getNextInterval(double t, Interval buffer)
+			{
+				for (int index = 0; index < bounds.length; index += 2)
+				{
+					if (bounds[index] > t)
+					{
+						return buffer.set(bounds[index], bounds[index + 1]);
+					}
+				}
+				throw new IllegalArgumentException();
+			}
+		};
+	}
+
+	private static FrameTransformFunction source(FrameID from, FrameID to, Coverage coverage)
+	{
+		return new FrameTransformFunction() {
+
+			@Override
+			public FrameID getFromID()
+			{
+				return from;
+			}
+
+			@Override
+			public FrameID getToID()
+			{
+				return to;
+			}
+
+			@Override
+			public Coverage getCoverage()
+			{
+				return coverage;
+			}
+
+			@Override
+			public RotationMatrixIJK getTransform(double t)
+			{
+				throw new UnsupportedOperationException();
+			}
+
+			@Override
+			public RotationMatrixIJK getTransform(double t, RotationMatrixIJK buffer)
+			{
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+}
@@ -0,0 +1,107 @@
+package edu.jhuapl.sbmt.pointing.spice;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.StringReader;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import picante.spice.kernelpool.parser.TextKernelParser;
+
+class KernelPoolIndexTest
+{
+	private static final String KERNEL = String.join("\n", //
+			"KPL/IK", //
+			"\\begindata", //
+			"INS-64360_NAME = 'ORX_OCAMS_POLYCAM'", //
+			"INS-64360_FOV_FRAME = 'ORX_OCAMS_POLYCAM'", //
+			"INS-64360_BORESIGHT = ( 0.0 0.0 1.0 )", //
+			"INS-64361_FOV_FRAME = 'ORX_OCAMS_MAPCAM'", //
+			"INSX_FOV_FRAME = 'NOT_AN_INSTRUMENT'", //
+			"FRAME_ORX_OCAMS_POLYCAM = -64360", //
+			"FRAME_-64360_NAME = 'ORX_OCAMS_POLYCAM'", //
+			"FRAME_-64360_CLASS = 4", //
+			"TKFRAME_-64360_RELATIVE = 'ORX_OCAMS_BASE'", //
+			"FRAME_ORX_OCAMS_BASE = -64300", //
+			"FRAME_-64300_CLASS = 4", //
+			"TKFRAME_ORX_OCAMS_BASE_RELATIVE = 'ORX_SPACECRAFT'", //
+			"FRAME_ORX_OCAMS_MAPCAM = -64361", //
+			"FRAME_-64361_CLASS = 3", //
+			"FRAME_ORX_SPACECRAFT = -64000", //
+			"FRAME_-64000_CLASS = 3", //
+			"BODY2101955_RADII = ( 0.28 0.27 0.25 )", //
+			"\\begintext", //
+			"");
+
+	private static KernelPoolIndex index;
+
+	@BeforeAll
+	static void setUpBeforeClass() throws Exception
+	{
+		index = KernelPoolIndex.of(new TextKernelParser().parse(new StringReader(KERNEL)));
+	}
+
+	@AfterAll
+	static void tearDownAfterClass() throws Exception
+	{
+	}
+
+	@Test
+	void testInstruments()
+	{
+		assertEquals(2, index.getInstrumentCount());
+
+		int polycam = index.getInstrumentId(0) == -64360 ? 0 : 1;
+		int mapcam = 1 - polycam;
+
+		assertEquals(-64360, index.getInstrumentId(polycam));
+		assertEquals("ORX_OCAMS_POLYCAM", index.getInstrumentName(polycam));
+		assertEquals("ORX_OCAMS_POLYCAM", index.getInstrumentFovFrame(polycam));
+
+		assertEquals(-64361, index.getInstrumentId(mapcam));
+		assertNull(index.getInstrumentName(mapcam));
+		assertEquals("ORX_OCAMS_MAPCAM", index.getInstrumentFovFrame(mapcam));
+	}
+
+	@Test
+	void testTypedValues()
+	{
+		assertArrayEquals(new double[] { 0, 0, 1 }, index.getDoubles("INS-64360_BORESIGHT"));
+		assertArrayEquals(new int[] { 4 }, index.getIntegers("FRAME_-64360_CLASS"));
+		assertArrayEquals(new String[] { "ORX_OCAMS_MAPCAM" }, index.getStrings("INS-64361_FOV_FRAME"));
+
+		assertTrue(index.hasKeyword("INS-64360_BORESIGHT"));
+		assertFalse(index.hasKeyword("INS-64361_BORESIGHT"));
+		assertNull(index.getDoubles("INS-64360_NAME"));
+		assertNull(index.getStrings("INS-64360_BORESIGHT"));
+	}
+
+	@Test
+	void testFixedOffsets()
+	{
+		// Through an intermediate TK frame, named rather than numbered.
+		assertTrue(index.isFixedOffset("ORX_OCAMS_POLYCAM", "ORX_SPACECRAFT"));
+		assertTrue(index.isFixedOffset("ORX_OCAMS_POLYCAM", "ORX_OCAMS_BASE"));
+		assertTrue(index.isFixedOffset("ORX_SPACECRAFT", "ORX_SPACECRAFT"));
+
+		// CK frames, and frames the chain does not reach.
+		assertFalse(index.isFixedOffset("ORX_OCAMS_MAPCAM", "ORX_SPACECRAFT"));
+		assertFalse(index.isFixedOffset("ORX_SPACECRAFT", "ORX_OCAMS_POLYCAM"));
+		assertFalse(index.isFixedOffset("ORX_OCAMS_POLYCAM", "J2000"));
+		assertFalse(index.isFixedOffset("UNKNOWN", "ORX_SPACECRAFT"));
+	}
+
+	@Test
+	void testFramesAndBodies()
+	{
+		assertEquals(Integer.valueOf(-64360), index.getFrameCode("ORX_OCAMS_POLYCAM"));
+		assertNull(index.getFrameCode("-64360_CLASS"));
+		assertEquals("ORX_OCAMS_POLYCAM", index.getFrameName(-64360));
+
+		assertArrayEquals(new double[] { 0.28, 0.27, 0.25 }, index.getBodyConstant(2101955, "RADII"));
+		assertNull(index.getBodyConstant(2101955, "PM"));
+	}
+
+}
@@ -0,0 +1,163 @@
+package edu.jhuapl.sbmt.pointing.spice;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import picante.math.vectorspace.UnwritableVectorIJK;
+import picante.math.vectorspace.VectorIJK;
+import picante.mechanics.CelestialBodies;
+import picante.mechanics.CelestialFrames;
+import picante.mechanics.Coverage;
+import picante.mechanics.EphemerisID;
+import picante.mechanics.FrameID;
+import picante.mechanics.StateVector;
+import picante.mechanics.StateVectorFunction;
+import picante.mechanics.providers.aberrated.AberrationCorrection;
+
+class LightTimeSolverTest
+{
+	private static final double SPEED_OF_LIGHT = LightTimeSolver.SPEED_OF_LIGHT;
+
+	// Target receding along i from an observer fixed at the barycenter.
+	private static final double DISTANCE = 3.e8;
+	private static final double SPEED = 30.;
+
+	@BeforeAll
+	static void setUpBeforeClass() throws Exception
+	{
+	}
+
+	@AfterAll
+	static void tearDownAfterClass() throws Exception
+	{
+	}
+
+	@Test
+	void testWarmStartConverges()
+	{
+		StateVectorFunction target = linear(new UnwritableVectorIJK(DISTANCE, 0, 0), new UnwritableVectorIJK(SPEED, 0, 0));
+		StateVectorFunction observer = linear(UnwritableVectorIJK.ZERO, UnwritableVectorIJK.ZERO);
+
+		LightTimeSolver solver = new LightTimeSolver(target, observer, AberrationCorrection.LT);
+		VectorIJK position = new VectorIJK();
+
+		// The first epoch is a single iteration from the geometric light time.
+		double lightTime = solver.solve(0., position);
+		assertEquals(DISTANCE / SPEED_OF_LIGHT, lightTime, 1.e-9);
+		double coldError = Math.abs(lightTime - exactLightTime(0.));
+		assertTrue(coldError > 1.e-4);
+
+		// Later epochs start from the previous solution, and are much closer.
+		for (int step = 1; step <= 10; ++step)
+		{
+			double time = 60. * step;
+			lightTime = solver.solve(time, position);
+			assertTrue(Math.abs(lightTime - exactLightTime(time)) < 1.e-3 * coldError);
+			assertEquals(DISTANCE + SPEED * (time - lightTime), position.getI(), 1.e-6);
+		}
+
+		// A gap too large to extrapolate across starts cold again.
+		double time = 2. * LightTimeSolver.MAXIMUM_WARM_START_GAP;
+		lightTime = solver.solve(time, position);
+		assertEquals((DISTANCE + SPEED * time) / SPEED_OF_LIGHT, lightTime, 1.e-9);
+
+		solver.reset();
+		lightTime = solver.solve(time + 60., position);
+		assertEquals((DISTANCE + SPEED * (time + 60.)) / SPEED_OF_LIGHT, lightTime, 1.e-9);
+	}
+
+	@Test
+	void testStellarAberration()
+	{
+		double speed = 30.;
+		VectorIJK position = new VectorIJK(DISTANCE, 0, 0);
+		LightTimeSolver.correctStellarAberration(position, new UnwritableVectorIJK(0, speed, 0));
+
+		// Rotated towards the velocity by asin(v / c), without changing length.
+		double angle = Math.asin(speed / SPEED_OF_LIGHT);
+		assertEquals(DISTANCE * Math.cos(angle), position.getI(), 1.e-6);
+		assertEquals(DISTANCE * Math.sin(angle), position.getJ(), 1.e-6);
+		assertEquals(0., position.getK(), 1.e-12);
+
+		// Motion along the line of sight has no effect.
+		position.setTo(DISTANCE, 0, 0);
+		LightTimeSolver.correctStellarAberration(position, new UnwritableVectorIJK(speed, 0, 0));
+		assertEquals(DISTANCE, position.getI(), 0.);
+		assertEquals(0., position.getJ(), 0.);
+	}
+
+	@Test
+	void testUnsupportedCorrection()
+	{
+		StateVectorFunction fixed = linear(UnwritableVectorIJK.ZERO, UnwritableVectorIJK.ZERO);
+
+		assertThrows(IllegalArgumentException.class, () -> new LightTimeSolver(fixed, fixed, AberrationCorrection.NONE));
+		assertThrows(IllegalArgumentException.class, () -> new LightTimeSolver(fixed, fixed, AberrationCorrection.CN_S));
+	}
+
+	private static double exactLightTime(double time)
+	{
+		// Solves lt = (DISTANCE + SPEED * (time - lt)) / c.
+		return (DISTANCE + SPEED * time) / (SPEED_OF_LIGHT + SPEED);
+	}
+
+	private static StateVectorFunction linear(UnwritableVectorIJK position, UnwritableVectorIJK velocity)
+	{
+		return new StateVectorFunction() {
+
+			@Override
+			public EphemerisID getObserverID()
+			{
+				return CelestialBodies.SOLAR_SYSTEM_BARYCENTER;
+			}
+
+			@Override
+			public EphemerisID getTargetID()
+			{
+				return CelestialBodies.SOLAR_SYSTEM_BARYCENTER;
+			}
+
+			@Override
+			public FrameID getFrameID()
+			{
+				return CelestialFrames.J2000;
+			}
+
+			@Override
+			public Coverage getCoverage()
+			{
+				return Coverage.ALL_TIME;
+			}
+
+			@Override
+			public VectorIJK getPosition(double time)
+			{
+				return getPosition(time, new VectorIJK());
+			}
+
+			@Override
+			public VectorIJK getPosition(double time, VectorIJK buffer)
+			{
+				return buffer.setTo(position.getI() + velocity.getI() * time, position.getJ() + velocity.getJ() * time, position.getK() + velocity.getK() * time);
+			}
+
+			@Override
+			public StateVector getState(double time)
+			{
+				return getState(time, new StateVector());
+			}
+
+			@Override
+			public StateVector getState(double time, StateVector buffer)
+			{
+				buffer.setPosition(getPosition(time));
+				buffer.setVelocity(velocity);
+				return buffer;
+			}
+		};
+	}
+
+}
@@ -0,0 +1,92 @@
+package edu.jhuapl.sbmt.pointing.spice;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import picante.math.vectorspace.UnwritableMatrixIJK;
+
+class PackedRotationsTest
+{
+	private static final double TOLERANCE = 1.e-12;
+
+	// 90 degrees about the k axis; the constructor takes column-major order.
+	private static UnwritableMatrixIJK quarterTurn;
+
+	@BeforeAll
+	static void setUpBeforeClass() throws Exception
+	{
+		quarterTurn = new UnwritableMatrixIJK(0, 1, 0, -1, 0, 0, 0, 0, 1);
+	}
+
+	@AfterAll
+	static void tearDownAfterClass() throws Exception
+	{
+	}
+
+	@Test
+	void testMultiply()
+	{
+		// Two quarter turns about k are a half turn.
+		double[] halfTurn = new double[9];
+		PackedRotations.multiply(quarterTurn, quarterTurn, halfTurn, 0);
+		assertArrayEquals(new double[] { -1, 0, 0, 0, -1, 0, 0, 0, 1 }, halfTurn, TOLERANCE);
+
+		double[] threeQuarters = new double[10];
+		PackedRotations.multiply(halfTurn, 0, quarterTurn, threeQuarters, 1);
+		assertArrayEquals(new double[] { 0, 0, 1, 0, -1, 0, 0, 0, 0, 1 }, threeQuarters, TOLERANCE);
+	}
+
+	@Test
+	void testQuaternionRoundTrip()
+	{
+		double[] quaternion = new double[4];
+		PackedRotations.toQuaternion(quarterTurn, quaternion, 0);
+		assertArrayEquals(new double[] { Math.sqrt(0.5), 0, 0, Math.sqrt(0.5) }, quaternion, TOLERANCE);
+
+		double[] matrix = new double[9];
+		PackedRotations.toMatrix(quaternion, 0, matrix, 0);
+		assertArrayEquals(new double[] { 0, -1, 0, 1, 0, 0, 0, 0, 1 }, matrix, TOLERANCE);
+
+		// Half turn about i has a negative trace.
+		PackedRotations.toQuaternion(new UnwritableMatrixIJK(1, 0, 0, 0, -1, 0, 0, 0, -1), quaternion, 0);
+		assertArrayEquals(new double[] { 0, 1, 0, 0 }, quaternion, TOLERANCE);
+	}
+
+	@Test
+	void testSlerp()
+	{
+		double[] quaternions = { 1, 0, 0, 0, 0, 0, 0, 0 };
+		PackedRotations.toQuaternion(quarterTurn, quaternions, 4);
+
+		double[] halfway = new double[4];
+		PackedRotations.slerp(quaternions, 0, quaternions, 4, 0.5, halfway, 0);
+		assertArrayEquals(new double[] { Math.cos(Math.PI / 8), 0, 0, Math.sin(Math.PI / 8) }, halfway, TOLERANCE);
+
+		// The opposite sign of the same rotation must interpolate the same way.
+		for (int index = 4; index < 8; ++index)
+		{
+			quaternions[index] = -quaternions[index];
+		}
+		double[] flipped = new double[4];
+		PackedRotations.slerp(quaternions, 0, quaternions, 4, 0.5, flipped, 0);
+		assertEquals(0., PackedRotations.angle(halfway, 0, flipped, 0), TOLERANCE);
+	}
+
+	@Test
+	void testAngle()
+	{
+		double[] quaternions = { 1, 0, 0, 0, 0, 0, 0, 0 };
+		PackedRotations.toQuaternion(quarterTurn, quaternions, 4);
+
+		assertEquals(Math.PI / 2, PackedRotations.angle(quaternions, 0, quaternions, 4), TOLERANCE);
+		assertEquals(0., PackedRotations.angle(quaternions, 4, quaternions, 4), TOLERANCE);
+
+		double small = 1.e-9;
+		double[] nearIdentity = { Math.cos(small / 2), Math.sin(small / 2), 0, 0 };
+		assertEquals(small, PackedRotations.angle(quaternions, 0, nearIdentity, 0), 1.e-20);
+	}
+
+}
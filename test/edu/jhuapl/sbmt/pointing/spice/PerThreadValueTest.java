@@ -0,0 +1,65 @@
+package edu.jhuapl.sbmt.pointing.spice;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class PerThreadValueTest
+{
+
+	@BeforeAll
+	static void setUpBeforeClass() throws Exception
+	{
+	}
+
+	@AfterAll
+	static void tearDownAfterClass() throws Exception
+	{
+	}
+
+	@Test
+	void testInstancePerThread() throws Exception
+	{
+		AtomicInteger created = new AtomicInteger();
+		PerThreadValue<Object> value = new PerThreadValue<>(() -> {
+			created.incrementAndGet();
+			return new Object();
+		});
+
+		Object mine = value.get();
+		assertSame(mine, value.get());
+		assertEquals(1, created.get());
+
+		AtomicReference<Object> theirs = new AtomicReference<>();
+		Thread thread = new Thread(() -> theirs.set(value.get()));
+		thread.start();
+		thread.join();
+		assertNotNull(theirs.get());
+		assertNotSame(mine, theirs.get());
+		assertEquals(2, created.get());
+		assertEquals(2, value.size());
+	}
+
+	@Test
+	void testTerminatedThreadsAreDropped() throws Exception
+	{
+		PerThreadValue<Object> value = new PerThreadValue<>(Object::new);
+
+		for (int index = 0; index < 4; ++index)
+		{
+			Thread thread = new Thread(value::get);
+			thread.start();
+			thread.join();
+		}
+
+		// Creating this thread's instance drops those of the finished threads.
+		value.get();
+		assertEquals(1, value.size());
+	}
+
+}
@@ -0,0 +1,325 @@
+package edu.jhuapl.sbmt.pointing.spice;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import edu.jhuapl.sbmt.pointing.InstrumentPointing;
+import picante.math.vectorspace.RotationMatrixIJK;
+import picante.math.vectorspace.UnwritableVectorIJK;
+import picante.mechanics.EphemerisID;
+import picante.mechanics.FrameID;
+import picante.mechanics.FrameTransformFunction;
+import picante.mechanics.providers.aberrated.AberratedStateVectorFunction;
+import picante.mechanics.providers.aberrated.AberrationCorrection;
+
+class PersistentPointingStoreTest
+{
+	private static final String INSTRUMENT = "STORED_INSTRUMENT";
+
+	@TempDir
+	static Path tempDir;
+
+	@BeforeAll
+	static void setUpBeforeClass() throws Exception
+	{
+	}
+
+	@AfterAll
+	static void tearDownAfterClass() throws Exception
+	{
+	}
+
+	@Test
+	void testGetAndPut() throws IOException
+	{
+		byte[] digest = PersistentPointingStore.digest(List.of(), "testGetAndPut");
+		PersistentPointingStore store = PersistentPointingStore.open(tempDir.resolve("getAndPut"), digest, 16);
+
+		double[] values = new double[PersistentPointingStore.RECORD_VALUES];
+		assertFalse(store.get("FRAME_A", 1.0, values));
+
+		// More records than the capacity: the store keeps what fits.
+		for (int index = 0; index < 32; ++index)
+		{
+			store.put("FRAME_A", index, record(index));
+		}
+		store.put("FRAME_B", 1.0, record(-1.0));
+
+		int found = 0;
+		for (int index = 0; index < 32; ++index)
+		{
+			if (store.get("FRAME_A", index, values))
+			{
+				assertArrayEquals(record(index), values);
+				++found;
+			}
+		}
+		assertTrue(found > 0 && found <= store.getCapacity());
+
+		assertTrue(store.get("FRAME_B", 1.0, values));
+		assertArrayEquals(record(-1.0), values);
+		assertFalse(store.get("FRAME_B", 1.0 + 1.e-9, values));
+	}
+
+	@Test
+	void testRecordsPersist() throws IOException
+	{
+		Path directory = tempDir.resolve("persist");
+		byte[] digest = PersistentPointingStore.digest(List.of(), "testRecordsPersist");
+
+		PersistentPointingStore writer = PersistentPointingStore.open(directory, digest, 64);
+		writer.put("FRAME_A", 10.0, record(10.0));
+
+		// Opening the same file again in this JVM returns the same store.
+		PersistentPointingStore reader = PersistentPointingStore.open(directory, digest, 64);
+		assertSame(writer, reader);
+
+		double[] values = new double[PersistentPointingStore.RECORD_VALUES];
+		assertTrue(reader.get("FRAME_A", 10.0, values));
+		assertArrayEquals(record(10.0), values);
+
+		writer.put("FRAME_A", 20.0, record(20.0));
+		assertTrue(reader.get("FRAME_A", 20.0, values));
+		assertArrayEquals(record(20.0), values);
+
+		// A store with a different capacity is a different file, and leaves
+		// the records of the first intact.
+		PersistentPointingStore resized = PersistentPointingStore.open(directory, digest, 32);
+		assertNotEquals(writer.getFile(), resized.getFile());
+		assertFalse(resized.get("FRAME_A", 10.0, values));
+		assertTrue(reader.get("FRAME_A", 10.0, values));
+		assertArrayEquals(record(10.0), values);
+	}
+
+	@Test
+	void testConcurrentPuts() throws Exception
+	{
+		Path directory = tempDir.resolve("concurrent");
+		byte[] digest = PersistentPointingStore.digest(List.of(), "testConcurrentPuts");
+
+		// Each thread opens the store itself, as separate providers do.
+		int threadCount = 4;
+		int putCount = 200;
+		ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+		try
+		{
+			List<Future<?>> futures = new ArrayList<>();
+			for (int thread = 0; thread < threadCount; ++thread)
+			{
+				String frameName = "FRAME_" + thread;
+				futures.add(executor.submit(() -> {
+					PersistentPointingStore store = PersistentPointingStore.open(directory, digest, 4096);
+					for (int index = 0; index < putCount; ++index)
+					{
+						store.put(frameName, index, record(index));
+					}
+					return null;
+				}));
+			}
+			for (Future<?> future : futures)
+			{
+				future.get(30, TimeUnit.SECONDS);
+			}
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+
+		PersistentPointingStore store = PersistentPointingStore.open(directory, digest, 4096);
+		double[] values = new double[PersistentPointingStore.RECORD_VALUES];
+		assertTrue(store.get("FRAME_0", 1.0, values));
+		assertArrayEquals(record(1.0), values);
+	}
+
+	@Test
+	void testDigestTracksKernels() throws IOException
+	{
+		File kernel = tempDir.resolve("test.tpc").toFile();
+		Files.write(kernel.toPath(), "KPL/PCK\n\\begindata\nBODY10_GM = 1.0\n".getBytes(StandardCharsets.US_ASCII));
+
+		byte[] digest = PersistentPointingStore.digest(List.of(kernel), "TARGET");
+		assertArrayEquals(digest, PersistentPointingStore.digest(List.of(kernel), "TARGET"));
+		assertFalse(Arrays.equals(digest, PersistentPointingStore.digest(List.of(kernel), "OTHER")));
+		assertFalse(Arrays.equals(digest, PersistentPointingStore.digest(List.of(), "TARGET")));
+
+		// Same length, different contents.
+		Files.write(kernel.toPath(), "KPL/PCK\n\\begindata\nBODY10_GM = 2.0\n".getBytes(StandardCharsets.US_ASCII));
+		byte[] changed = PersistentPointingStore.digest(List.of(kernel), "TARGET");
+		assertFalse(Arrays.equals(digest, changed));
+
+		// Stores for different digests are different files.
+		PersistentPointingStore before = PersistentPointingStore.open(tempDir.resolve("digests"), digest, 8);
+		before.put("FRAME_A", 0.0, record(0.0));
+		PersistentPointingStore after = PersistentPointingStore.open(tempDir.resolve("digests"), changed, 8);
+		assertNotEquals(before.getFile(), after.getFile());
+		assertFalse(after.get("FRAME_A", 0.0, new double[PersistentPointingStore.RECORD_VALUES]));
+	}
+
+	@Test
+	void testDigestRecordsChecksums() throws IOException
+	{
+		Path directory = tempDir.resolve("checksums");
+		File kernel = tempDir.resolve("recorded.tpc").toFile();
+		Files.write(kernel.toPath(), "KPL/PCK\n\\begindata\nBODY10_GM = 1.0\n".getBytes(StandardCharsets.US_ASCII));
+		long modified = kernel.lastModified();
+
+		byte[] digest = PersistentPointingStore.digest(directory, List.of(kernel), "TARGET");
+		assertArrayEquals(PersistentPointingStore.digest(List.of(kernel), "TARGET"), digest);
+		assertTrue(Files.exists(directory.resolve("kernels.checksums")));
+
+		// Same length and modification time: the recorded checksum is used
+		// and the kernel is not read.
+		Files.write(kernel.toPath(), "KPL/PCK\n\\begindata\nBODY10_GM = 2.0\n".getBytes(StandardCharsets.US_ASCII));
+		assertTrue(kernel.setLastModified(modified));
+		assertArrayEquals(digest, PersistentPointingStore.digest(directory, List.of(kernel), "TARGET"));
+
+		// A different modification time: the kernel is read again.
+		assertTrue(kernel.setLastModified(modified + 2000));
+		byte[] changed = PersistentPointingStore.digest(directory, List.of(kernel), "TARGET");
+		assertFalse(Arrays.equals(digest, changed));
+		assertArrayEquals(PersistentPointingStore.digest(List.of(kernel), "TARGET"), changed);
+	}
+
+	@Test
+	void testClose() throws IOException
+	{
+		Path directory = tempDir.resolve("close");
+		byte[] digest = PersistentPointingStore.digest(List.of(), "testClose");
+
+		PersistentPointingStore store = PersistentPointingStore.open(directory, digest, 16);
+		assertSame(store, PersistentPointingStore.open(directory, digest, 16));
+		store.put("FRAME_A", 1.0, record(1.0));
+
+		// Open twice, so still open after one close.
+		store.close();
+		assertTrue(store.isOpen());
+		assertSame(store, PersistentPointingStore.open(directory, digest, 16));
+		store.close();
+		store.close();
+		assertFalse(store.isOpen());
+		store.close();
+		assertFalse(store.isOpen());
+
+		// Opening the file again creates a new store, with the records.
+		PersistentPointingStore reopened = PersistentPointingStore.open(directory, digest, 16);
+		assertNotSame(store, reopened);
+		double[] values = new double[PersistentPointingStore.RECORD_VALUES];
+		assertTrue(reopened.get("FRAME_A", 1.0, values));
+		assertArrayEquals(record(1.0), values);
+		reopened.close();
+	}
+
+	@Test
+	void testUnevaluatedPointingIsNotStored() throws IOException
+	{
+		byte[] digest = PersistentPointingStore.digest(List.of(), "testUnevaluatedPointingIsNotStored");
+		PersistentPointingStore store = PersistentPointingStore.open(tempDir.resolve("unevaluated"), digest, 16);
+		TestProvider provider = new TestProvider(100.);
+		provider.setPersistentStore(store);
+
+		String frameName = TestSpicePointingProvider.getInstrumentFrame(INSTRUMENT).getName();
+		double[] values = new double[PersistentPointingStore.RECORD_VALUES];
+
+		// Beyond the coverage: provide does not throw, nothing is stored, and
+		// the pointing throws only when it is evaluated.
+		InstrumentPointing uncovered = provider.provide(INSTRUMENT, 200.);
+		assertNotNull(uncovered);
+		assertFalse(store.get(frameName, 200., values));
+		assertThrows(IllegalArgumentException.class, uncovered::getScPosition);
+
+		InstrumentPointing covered = provider.provide(INSTRUMENT, 50.);
+		assertTrue(store.get(frameName, 50., values));
+		assertEquals(covered.getScPosition().getI(), values[PersistentPointingStore.SC_POSITION]);
+	}
+
+	private static double[] record(double seed)
+	{
+		double[] values = new double[PersistentPointingStore.RECORD_VALUES];
+		for (int index = 0; index < values.length; ++index)
+		{
+			values[index] = seed + index / 100.;
+		}
+
+		return values;
+	}
+
+	/**
+	 * Provider of a spacecraft fixed with respect to the target, whose
+	 * functions fail after the end of the coverage.
+	 */
+	private static final class TestProvider extends TestSpicePointingProvider
+	{
+		TestProvider(double coveredUntil)
+		{
+			super(PointingCache.DEFAULT_MAXIMUM_SIZE, false, new StubSource(coveredUntil), INSTRUMENT);
+		}
+
+		@Override
+		InstrumentFov getInstrumentFov(String instrumentName, FrameID instrumentFrame)
+		{
+			List<UnwritableVectorIJK> frustum = List.of(new UnwritableVectorIJK(1, 0.1, 0.1), new UnwritableVectorIJK(1, -0.1, 0.1), new UnwritableVectorIJK(1, -0.1, -0.1), new UnwritableVectorIJK(1, 0.1, -0.1));
+
+			return new InstrumentFov(0, instrumentFrame, UnwritableVectorIJK.I, UnwritableVectorIJK.K, frustum);
+		}
+	}
+
+	private static final class StubSource implements SpiceFunctions.Source
+	{
+		private final double coveredUntil;
+
+		StubSource(double coveredUntil)
+		{
+			this.coveredUntil = coveredUntil;
+		}
+
+		@Override
+		public AberratedStateVectorFunction createStateVectorFunction(EphemerisID targetId, EphemerisID observerId, FrameID frameId, AberrationCorrection correction)
+		{
+			// The spacecraft is 100 units along i from the target, which is
+			// at the barycenter.
+			double scale = targetId == TestSpicePointingProvider.SC ? 100. : observerId == TestSpicePointingProvider.SC ? -100. : 0.;
+
+			return TestSpicePointingProvider.stateFunction(targetId, observerId, frameId, correction, (time, buffer) -> {
+				checkCovered(time);
+				buffer.setPosition(new UnwritableVectorIJK(scale, UnwritableVectorIJK.I));
+				return buffer.setVelocity(new UnwritableVectorIJK(0., 0., 0.));
+			});
+		}
+
+		@Override
+		public FrameTransformFunction createFrameTransformFunction(FrameID fromId, FrameID toId)
+		{
+			return TestSpicePointingProvider.frameFunction(fromId, toId, (time, buffer) -> {
+				checkCovered(time);
+				return buffer.setTo(new RotationMatrixIJK());
+			});
+		}
+
+		private void checkCovered(double time)
+		{
+			if (time > coveredUntil)
+			{
+				throw new IllegalArgumentException("No data at " + time);
+			}
+		}
+	}
+
+}
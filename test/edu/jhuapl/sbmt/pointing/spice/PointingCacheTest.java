@@ -0,0 +1,132 @@
+package edu.jhuapl.sbmt.pointing.spice;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import picante.mechanics.FrameID;
+import picante.mechanics.utilities.SimpleFrameID;
+
+class PointingCacheTest
+{
+	private static FrameID frameA;
+	private static FrameID frameB;
+
+	@BeforeAll
+	static void setUpBeforeClass() throws Exception
+	{
+		frameA = new SimpleFrameID("FRAME_A");
+		frameB = new SimpleFrameID("FRAME_B");
+	}
+
+	@AfterAll
+	static void tearDownAfterClass() throws Exception
+	{
+	}
+
+	@Test
+	void testGetAndPut()
+	{
+		PointingCache<String> cache = new PointingCache<>(10);
+
+		assertNull(cache.get(frameA, 1.0));
+
+		cache.put(frameA, 1.0, "a1");
+		cache.put(frameB, 1.0, "b1");
+		cache.put(frameA, 2.0, "a2");
+
+		assertEquals("a1", cache.get(frameA, 1.0));
+		assertEquals("b1", cache.get(frameB, 1.0));
+		assertEquals("a2", cache.get(frameA, 2.0));
+		assertNull(cache.get(frameB, 2.0));
+		assertEquals(3, cache.size());
+
+		cache.put(frameA, 1.0, "a1-replaced");
+		assertEquals("a1-replaced", cache.get(frameA, 1.0));
+		assertEquals(3, cache.size());
+	}
+
+	@Test
+	void testSizeIsBounded()
+	{
+		PointingCache<Integer> cache = new PointingCache<>(100);
+
+		for (int index = 0; index < 1000; ++index)
+		{
+			cache.put(frameA, index, index);
+		}
+
+		assertEquals(100, cache.size());
+		assertEquals(900, cache.getEvictionCount());
+	}
+
+	@Test
+	void testLeastRecentlyUsedIsEvicted()
+	{
+		PointingCache<String> cache = new PointingCache<>(1);
+
+		cache.put(frameA, 1.0, "first");
+		cache.put(frameA, 2.0, "second");
+
+		assertNull(cache.get(frameA, 1.0));
+		assertEquals("second", cache.get(frameA, 2.0));
+	}
+
+	@Test
+	void testStatistics()
+	{
+		PointingCache<String> cache = new PointingCache<>(10);
+
+		cache.get(frameA, 1.0);
+		cache.put(frameA, 1.0, "a1");
+		cache.get(frameA, 1.0);
+		cache.get(frameA, 1.0);
+
+		assertEquals(2, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+		assertEquals(0, cache.getEvictionCount());
+
+		cache.clear();
+		assertEquals(0, cache.size());
+		assertNull(cache.get(frameA, 1.0));
+	}
+
+	@Test
+	void testTimeQuantum()
+	{
+		PointingCache<String> cache = new PointingCache<>(10, 1.e-3, 0.);
+
+		cache.put(frameA, 100.0, "a100");
+
+		// Round-off differences fall in the same quantum.
+		assertEquals("a100", cache.get(frameA, 100.0 + 1.e-9));
+		assertEquals("a100", cache.get(frameA, 100.0 - 4.e-4));
+		assertNull(cache.get(frameA, 100.0 + 6.e-4));
+		assertNull(cache.get(frameB, 100.0));
+	}
+
+	@Test
+	void testNearestWithinTolerance()
+	{
+		PointingCache<String> cache = new PointingCache<>(10, 1.e-3, 5.e-3);
+
+		cache.put(frameA, 10.000, "a10.000");
+		cache.put(frameA, 10.006, "a10.006");
+
+		assertEquals("a10.000", cache.get(frameA, 10.002));
+		assertEquals("a10.006", cache.get(frameA, 10.004));
+		assertEquals("a10.006", cache.get(frameA, 10.0109));
+		assertNull(cache.get(frameA, 10.0112));
+		assertNull(cache.get(frameA, 9.9948));
+
+		// The tolerance doubles as the quantum if none is given.
+		PointingCache<String> toleranceOnly = new PointingCache<>(10, 0., 0.5);
+		assertEquals(0.5, toleranceOnly.getTimeQuantum());
+		toleranceOnly.put(frameA, 1.0, "a1");
+		assertEquals("a1", toleranceOnly.get(frameA, 1.45));
+		assertNull(toleranceOnly.get(frameA, 1.55));
+	}
+
+}
@@ -0,0 +1,122 @@
+package edu.jhuapl.sbmt.pointing.spice;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import picante.math.vectorspace.RotationMatrixIJK;
+import picante.math.vectorspace.UnwritableVectorIJK;
+import picante.mechanics.CelestialBodies;
+import picante.mechanics.CelestialFrames;
+import picante.mechanics.EphemerisID;
+import picante.mechanics.FrameID;
+import picante.mechanics.FrameTransformFunction;
+import picante.mechanics.providers.aberrated.AberratedStateVectorFunction;
+import picante.mechanics.providers.aberrated.AberrationCorrection;
+
+class SpiceEpochContextTest
+{
+	private static final double SPEED_OF_LIGHT = LightTimeSolver.SPEED_OF_LIGHT;
+
+	// Target receding along i from a spacecraft fixed at the barycenter.
+	private static final double DISTANCE = 3.e8;
+	private static final double SPEED = 30.;
+
+	private static final EphemerisID TARGET = TestSpicePointingProvider.TARGET;
+	private static final EphemerisID SC = TestSpicePointingProvider.SC;
+	private static final FrameID TARGET_FRAME = TestSpicePointingProvider.TARGET_FRAME;
+	private static final FrameID SC_FRAME = TestSpicePointingProvider.SC_FRAME;
+
+	// J2000 to the target frame: a quarter turn about k, taking i to j.
+	private static final RotationMatrixIJK QUARTER_TURN = new RotationMatrixIJK(0, 1, 0, -1, 0, 0, 0, 0, 1);
+
+	@BeforeAll
+	static void setUpBeforeClass() throws Exception
+	{
+	}
+
+	@AfterAll
+	static void tearDownAfterClass() throws Exception
+	{
+	}
+
+	@Test
+	void testWarmStart()
+	{
+		StubSource source = new StubSource();
+		SpiceFunctions functions = new SpiceFunctions(source);
+
+		for (int step = 0; step < 3; ++step)
+		{
+			double time = 60. * step;
+			SpiceEpochContext context = new SpiceEpochContext(() -> functions, TARGET, TARGET_FRAME, SC, SC_FRAME, time, AberrationCorrection.LT, true);
+
+			// The spacecraft is at minus the target's position, rotated into
+			// the target frame.
+			double timeAtTarget = context.getTimeAtTarget();
+			UnwritableVectorIJK scPos = context.getScPosition();
+			assertEquals(0., scPos.getI(), 1.e-6);
+			assertEquals(-(DISTANCE + SPEED * timeAtTarget), scPos.getJ(), 1.e-6);
+			assertEquals(0., scPos.getK(), 1.e-6);
+
+			// Geometric at the first epoch, then warm-started close to the
+			// solution of lt = (DISTANCE + SPEED * (time - lt)) / c.
+			double lightTime = time - timeAtTarget;
+			if (step == 0)
+			{
+				assertEquals(DISTANCE / SPEED_OF_LIGHT, lightTime, 1.e-9);
+			}
+			else
+			{
+				assertEquals((DISTANCE + SPEED * time) / (SPEED_OF_LIGHT + SPEED), lightTime, 1.e-3);
+			}
+
+			// The rotation uses the same J2000 to target rotation.
+			assertEquals(-1., context.getScRotation().get(0, 1), 1.e-12);
+		}
+
+		// Once per epoch, at the time at the target.
+		assertEquals(3, source.rotationsAtTargetTime);
+	}
+
+	/**
+	 * Source of linear ephemerides and constant rotations, counting how often
+	 * the J2000 to target rotation is evaluated.
+	 */
+	private static final class StubSource implements SpiceFunctions.Source
+	{
+		private int rotationsAtTargetTime = 0;
+
+		@Override
+		public AberratedStateVectorFunction createStateVectorFunction(EphemerisID targetId, EphemerisID observerId, FrameID frameId, AberrationCorrection correction)
+		{
+			assertSame(CelestialBodies.SOLAR_SYSTEM_BARYCENTER, observerId);
+			assertTrue(targetId == TARGET || targetId == SC);
+
+			// Only the target moves.
+			double speed = targetId == TARGET ? SPEED : 0.;
+			double distance = targetId == TARGET ? DISTANCE : 0.;
+			return TestSpicePointingProvider.stateFunction(targetId, observerId, frameId, correction, (time, buffer) -> {
+				buffer.setPosition(new UnwritableVectorIJK(distance + speed * time, 0, 0));
+				return buffer.setVelocity(new UnwritableVectorIJK(speed, 0, 0));
+			});
+		}
+
+		@Override
+		public FrameTransformFunction createFrameTransformFunction(FrameID fromId, FrameID toId)
+		{
+			if (fromId == CelestialFrames.J2000 && toId == TARGET_FRAME)
+			{
+				return TestSpicePointingProvider.frameFunction(fromId, toId, (time, buffer) -> {
+					++rotationsAtTargetTime;
+					return buffer.setTo(QUARTER_TURN);
+				});
+			}
+
+			return TestSpicePointingProvider.frameFunction(fromId, toId, (time, buffer) -> buffer.setTo(new RotationMatrixIJK()));
+		}
+	}
+
+}
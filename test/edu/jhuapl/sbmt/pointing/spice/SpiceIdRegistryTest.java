@@ -0,0 +1,40 @@
+package edu.jhuapl.sbmt.pointing.spice;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class SpiceIdRegistryTest
+{
+
+	@BeforeAll
+	static void setUpBeforeClass() throws Exception
+	{
+	}
+
+	@AfterAll
+	static void tearDownAfterClass() throws Exception
+	{
+	}
+
+	@Test
+	void testGetEphemerisId()
+	{
+		assertSame(SpiceIdRegistry.getEphemerisId("EARTH"), SpiceIdRegistry.getEphemerisId("EARTH"));
+		assertSame(SpicePointingProvider.getEphemerisId("SUN"), SpiceIdRegistry.getEphemerisId("SUN"));
+		assertNotSame(SpiceIdRegistry.getEphemerisId("EARTH"), SpiceIdRegistry.getEphemerisId("SUN"));
+		assertThrows(IllegalArgumentException.class, () -> SpiceIdRegistry.getEphemerisId(" "));
+	}
+
+	@Test
+	void testGetFrameId()
+	{
+		assertSame(SpiceIdRegistry.getFrameId("IAU_EARTH"), SpiceIdRegistry.getFrameId("IAU_EARTH"));
+		assertSame(SpicePointingProvider.getFrameId("IAU_SUN"), SpiceIdRegistry.getFrameId("IAU_SUN"));
+		assertEquals("IAU_EARTH", SpiceIdRegistry.getFrameId("IAU_EARTH").getName());
+		assertThrows(IllegalArgumentException.class, () -> SpiceIdRegistry.getFrameId(""));
+	}
+
+}
@@ -67,4 +67,18 @@ class SpiceInfoTest
 		fail("Not yet implemented"); // TODO
 	}
 
+	@Test
+	void testEqualsAndHashCode()
+	{
+		SpiceInfo info = new SpiceInfo("MMX", "IAU_PHOBOS", "MMX_SPACECRAFT", "PHOBOS", new String[] { "MARS" }, new String[] { "IAU_MARS" }, new String[] { "MMX_MEGANE" }, new String[] {});
+		SpiceInfo same = new SpiceInfo("MMX", "IAU_PHOBOS", "MMX_SPACECRAFT", "PHOBOS", new String[] { "MARS" }, new String[] { "IAU_MARS" }, new String[] { "MMX_MEGANE" }, new String[] {});
+		SpiceInfo other = new SpiceInfo("MMX", "IAU_PHOBOS", "MMX_SPACECRAFT", "PHOBOS", new String[] { "MARS", "SUN" }, new String[] { "IAU_MARS" }, new String[] { "MMX_MEGANE" }, new String[] {});
+
+		assertEquals(info, same);
+		assertEquals(info.hashCode(), same.hashCode());
+		assertNotEquals(info, other);
+		assertNotEquals(info, null);
+		assertEquals(new SpiceInfo(), new SpiceInfo());
+	}
+
 }
@@ -0,0 +1,199 @@
+package edu.jhuapl.sbmt.pointing.spice;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import edu.jhuapl.sbmt.pointing.InstrumentPointing;
+import picante.math.vectorspace.UnwritableMatrixIJK;
+import picante.math.vectorspace.UnwritableVectorIJK;
+import picante.mechanics.EphemerisID;
+
+class SpicePointingProviderHandleTest
+{
+
+	@BeforeAll
+	static void setUpBeforeClass() throws Exception
+	{
+	}
+
+	@AfterAll
+	static void tearDownAfterClass() throws Exception
+	{
+	}
+
+	@Test
+	void testLoadInBackground() throws Exception
+	{
+		TestProvider provider = new TestProvider(100);
+		SpicePointingProviderHandle handle = SpicePointingProviderHandle.load(() -> provider);
+
+		assertSame(provider, handle.getProvider().get(5, TimeUnit.SECONDS));
+		assertTrue(handle.isReady());
+		assertSame(provider, handle.get());
+
+		// Without a warm-up, the provider is already warm.
+		assertSame(handle.getProvider(), handle.getPrewarmed());
+		assertEquals(0, provider.provided.get());
+	}
+
+	@Test
+	void testLoadFailure() throws Exception
+	{
+		IOException failure = new IOException("Missing kernel");
+		SpicePointingProviderHandle handle = SpicePointingProviderHandle.builder(() -> {
+			throw failure;
+		}).prewarm(0., 10., 1.).start();
+
+		ExecutionException e = assertThrows(ExecutionException.class, () -> handle.get());
+		assertSame(failure, e.getCause());
+		assertFalse(handle.isReady());
+
+		// The warm-up fails with the loader's exception.
+		e = assertThrows(ExecutionException.class, () -> handle.getPrewarmed().get(5, TimeUnit.SECONDS));
+		assertSame(failure, e.getCause());
+	}
+
+	@Test
+	void testProviderIsReadyBeforePrewarm() throws Exception
+	{
+		CountDownLatch release = new CountDownLatch(1);
+		TestProvider provider = new TestProvider(100) {
+			@Override
+			public InstrumentPointing provide(String instrumentName, double time)
+			{
+				try
+				{
+					release.await();
+				}
+				catch (InterruptedException e)
+				{
+					Thread.currentThread().interrupt();
+				}
+				return super.provide(instrumentName, time);
+			}
+		};
+		SpicePointingProviderHandle handle = SpicePointingProviderHandle.builder(() -> provider).prewarm(0., 10., 1.).start();
+
+		// The provider is available while the warm-up waits.
+		assertSame(provider, handle.getProvider().get(5, TimeUnit.SECONDS));
+		assertFalse(handle.getPrewarmed().isDone());
+
+		release.countDown();
+		assertSame(provider, handle.getPrewarmed().get(5, TimeUnit.SECONDS));
+		assertEquals(22, provider.provided.get());
+	}
+
+	@Test
+	void testPrewarmEvaluatesPointings() throws Exception
+	{
+		TestProvider provider = new TestProvider(100);
+		SpicePointingProviderHandle handle = SpicePointingProviderHandle.builder(() -> provider).prewarm(0., 10., 1.).start();
+		handle.getPrewarmed().get(5, TimeUnit.SECONDS);
+
+		// 11 times for each of 2 instruments, each evaluated, not just created.
+		assertEquals(22, provider.provided.get());
+		assertEquals(22, provider.evaluated.get());
+	}
+
+	@Test
+	void testPrewarmStopsWhenCacheIsFull() throws Exception
+	{
+		TestProvider provider = new TestProvider(10);
+		SpicePointingProviderHandle handle = SpicePointingProviderHandle.builder(() -> provider).prewarm(0., 1000., 1.).start();
+		handle.getPrewarmed().get(5, TimeUnit.SECONDS);
+
+		// Only as many times as the cache holds for both instruments.
+		assertEquals(10, provider.provided.get());
+		assertEquals(4., provider.lastTime, 0.);
+	}
+
+	/**
+	 * Provider of two instruments whose pointings count their evaluations.
+	 */
+	private static class TestProvider extends TestSpicePointingProvider
+	{
+		private final AtomicInteger provided = new AtomicInteger();
+		private final AtomicInteger evaluated = new AtomicInteger();
+		private volatile double lastTime = Double.NaN;
+
+		TestProvider(int pointingCacheSize)
+		{
+			super(pointingCacheSize, false, "INSTRUMENT_A", "INSTRUMENT_B");
+		}
+
+		@Override
+		public InstrumentPointing provide(String instrumentName, double time)
+		{
+			provided.incrementAndGet();
+			lastTime = time;
+			return new TestPointing(evaluated);
+		}
+	}
+
+	/**
+	 * Pointing that counts the evaluations of its spacecraft position.
+	 */
+	private static final class TestPointing implements InstrumentPointing
+	{
+		private final AtomicInteger evaluated;
+
+		TestPointing(AtomicInteger evaluated)
+		{
+			this.evaluated = evaluated;
+		}
+
+		@Override
+		public UnwritableVectorIJK getScPosition()
+		{
+			evaluated.incrementAndGet();
+			return UnwritableVectorIJK.I;
+		}
+
+		@Override
+		public UnwritableVectorIJK getScVelocity()
+		{
+			return UnwritableVectorIJK.ZERO;
+		}
+
+		@Override
+		public UnwritableMatrixIJK getScRotation()
+		{
+			return new UnwritableMatrixIJK(1, 0, 0, 0, 1, 0, 0, 0, 1);
+		}
+
+		@Override
+		public UnwritableVectorIJK getPosition(EphemerisID bodyId)
+		{
+			return null;
+		}
+
+		@Override
+		public UnwritableVectorIJK getBoresight()
+		{
+			return UnwritableVectorIJK.K;
+		}
+
+		@Override
+		public UnwritableVectorIJK getUpDirection()
+		{
+			return UnwritableVectorIJK.J;
+		}
+
+		@Override
+		public List<UnwritableVectorIJK> getFrustum()
+		{
+			return List.of();
+		}
+	}
+
+}
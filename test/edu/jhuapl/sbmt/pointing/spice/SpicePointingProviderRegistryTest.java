@@ -0,0 +1,143 @@
+package edu.jhuapl.sbmt.pointing.spice;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import edu.jhuapl.sbmt.pointing.InstrumentPointing;
+
+class SpicePointingProviderRegistryTest
+{
+	@TempDir
+	static Path tempDir;
+
+	private static final SpiceInfo INFO = new SpiceInfo("MMX", "IAU_PHOBOS", "MMX_SPACECRAFT", "PHOBOS", new String[] { "MARS" }, new String[] {}, new String[] { "MMX_MEGANE" }, new String[] {});
+
+	@BeforeAll
+	static void setUpBeforeClass() throws Exception
+	{
+	}
+
+	@AfterAll
+	static void tearDownAfterClass() throws Exception
+	{
+	}
+
+	@Test
+	void testShared() throws Exception
+	{
+		String mk = writeMetakernel("shared.tm", "\\begindata\nKERNELS_TO_LOAD = ( 'a.bsp' )\n");
+		AtomicInteger created = new AtomicInteger();
+		SpicePointingProviderRegistry registry = new SpicePointingProviderRegistry((mkFilename, spiceInfo) -> {
+			created.incrementAndGet();
+			return new TestSpicePointingProvider();
+		});
+
+		SpicePointingProviderRegistry.Lease first = registry.acquire(mk, INFO);
+		SpiceInfo equalInfo = new SpiceInfo("MMX", "IAU_PHOBOS", "MMX_SPACECRAFT", "PHOBOS", new String[] { "MARS" }, new String[] {}, new String[] { "MMX_MEGANE" }, new String[] {});
+		SpicePointingProviderRegistry.Lease second = registry.acquire(mk, equalInfo);
+		assertSame(first.getProvider(), second.getProvider());
+		assertEquals(1, created.get());
+
+		// A different metakernel is a different provider.
+		String otherMk = writeMetakernel("other.tm", "\\begindata\nKERNELS_TO_LOAD = ( 'b.bsp' )\n");
+		SpicePointingProviderRegistry.Lease metakernel = registry.acquire(otherMk, INFO);
+		assertNotSame(first.getProvider(), metakernel.getProvider());
+		assertEquals(2, created.get());
+		assertEquals(2, registry.size());
+
+		// Closing every lease keeps the provider softly, so it is reused.
+		SpicePointingProvider provider = first.getProvider();
+		first.close();
+		first.close();
+		second.close();
+		SpicePointingProviderRegistry.Lease again = registry.acquire(mk, INFO);
+		assertSame(provider, again.getProvider());
+		assertEquals(2, created.get());
+	}
+
+	@Test
+	void testSharedProvidersAreConcurrent() throws Exception
+	{
+		String mk = writeMetakernel("concurrent.tm", "\\begindata\n");
+		SpicePointingProviderRegistry registry = new SpicePointingProviderRegistry((mkFilename, spiceInfo) -> new TestSpicePointingProvider(PointingCache.DEFAULT_MAXIMUM_SIZE, false));
+		assertThrows(IllegalStateException.class, () -> registry.acquire(mk, INFO));
+	}
+
+	@Test
+	void testHoldersHaveTheirOwnInstrument() throws Exception
+	{
+		String mk = writeMetakernel("views.tm", "\\begindata\n");
+		AtomicInteger provided = new AtomicInteger();
+		SpicePointingProviderRegistry registry = new SpicePointingProviderRegistry((mkFilename, spiceInfo) -> new TestSpicePointingProvider("MMX_MEGANE", "MMX_TENGOO") {
+			@Override
+			public InstrumentPointing provide(String instrumentName, double time)
+			{
+				provided.incrementAndGet();
+				return null;
+			}
+		});
+
+		// Holders of different instruments share the provider.
+		SpicePointingProvider shared = registry.acquire(mk, INFO).getProvider();
+		assertSame(shared, registry.acquire(mk, INFO).getProvider());
+		SpicePointingProvider megane = shared.createView();
+		SpicePointingProvider tengoo = shared.createView();
+		megane.setCurrentInstrumentName("MMX_MEGANE");
+		tengoo.setCurrentInstrumentName("MMX_TENGOO");
+		assertEquals("MMX_MEGANE", megane.getCurrentInstrumentName());
+		assertEquals("MMX_TENGOO", tengoo.getCurrentInstrumentName());
+		assertNull(shared.getCurrentInstrumentName());
+
+		// The views forward everything else to the shared provider.
+		assertThrows(IllegalArgumentException.class, () -> megane.setCurrentInstrumentName("MMX_OROCHI"));
+		assertTrue(megane.isConcurrent());
+		assertSame(shared.getPointingCache(), megane.getPointingCache());
+		megane.provide(0.);
+		tengoo.provide(0.);
+		assertEquals(2, provided.get());
+	}
+
+	@Test
+	void testChangedMetakernel() throws Exception
+	{
+		String mk = writeMetakernel("changed.tm", "\\begindata\nKERNELS_TO_LOAD = ( 'a.bsp' )\n");
+		SpicePointingProviderRegistry registry = new SpicePointingProviderRegistry((mkFilename, spiceInfo) -> new TestSpicePointingProvider());
+
+		SpicePointingProviderRegistry.Lease before = registry.acquire(mk, INFO);
+		writeMetakernel("changed.tm", "\\begindata\nKERNELS_TO_LOAD = ( 'a.bsp', 'c.bc' )\n");
+		SpicePointingProviderRegistry.Lease after = registry.acquire(mk, INFO);
+		assertNotSame(before.getProvider(), after.getProvider());
+	}
+
+	@Test
+	void testFailedCreation() throws Exception
+	{
+		String mk = writeMetakernel("failed.tm", "\\begindata\n");
+		AtomicInteger attempts = new AtomicInteger();
+		SpicePointingProviderRegistry registry = new SpicePointingProviderRegistry((mkFilename, spiceInfo) -> {
+			if (attempts.incrementAndGet() == 1) throw new IOException("Missing kernel");
+			return new TestSpicePointingProvider();
+		});
+
+		assertThrows(IOException.class, () -> registry.acquire(mk, INFO));
+		assertNotNull(registry.acquire(mk, INFO).getProvider());
+		assertEquals(2, attempts.get());
+
+		assertThrows(IOException.class, () -> registry.acquire(tempDir.resolve("missing.tm").toString(), INFO));
+	}
+
+	private static String writeMetakernel(String name, String contents) throws IOException
+	{
+		return Files.writeString(tempDir.resolve(name), contents).toString();
+	}
+
+}
@@ -0,0 +1,208 @@
+package edu.jhuapl.sbmt.pointing.spice;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import edu.jhuapl.sbmt.pointing.InstrumentPointing;
+import picante.math.vectorspace.RotationMatrixIJK;
+import picante.math.vectorspace.UnwritableVectorIJK;
+import picante.math.vectorspace.VectorIJK;
+import picante.mechanics.CelestialBodies;
+import picante.mechanics.CelestialFrames;
+import picante.mechanics.EphemerisID;
+import picante.mechanics.FrameID;
+import picante.mechanics.FrameTransformFunction;
+import picante.mechanics.providers.aberrated.AberratedStateVectorFunction;
+import picante.mechanics.providers.aberrated.AberrationCorrection;
+
+class SurrogatePointingProviderTest
+{
+	// Spacecraft in a circular orbit about a target fixed at the barycenter,
+	// rotating about k once per orbit, with an instrument looking along its i
+	// axis, so that the boresight always points away from the target.
+	private static final double RADIUS = 100.;
+	private static final double RATE = 2. * Math.PI / 7200.;
+
+	private static final double MAXIMUM_POSITION_ERROR = 1.e-3;
+	private static final double MAXIMUM_ANGULAR_ERROR = 1.e-6;
+
+	private static final String INSTRUMENT = "SURROGATE_INSTRUMENT";
+	private static final EphemerisID TARGET = TestSpicePointingProvider.TARGET;
+	private static final EphemerisID SC = TestSpicePointingProvider.SC;
+	private static final FrameID TARGET_FRAME = TestSpicePointingProvider.TARGET_FRAME;
+
+	@BeforeAll
+	static void setUpBeforeClass() throws Exception
+	{
+	}
+
+	@AfterAll
+	static void tearDownAfterClass() throws Exception
+	{
+	}
+
+	@Test
+	void testFitAccuracy()
+	{
+		TestProvider provider = new TestProvider(Double.POSITIVE_INFINITY);
+		SurrogatePointingProvider surrogate = SurrogatePointingProvider.builder(provider, 0., 3600.) //
+				.initialStep(600.) //
+				.maximumPositionError(MAXIMUM_POSITION_ERROR) //
+				.maximumAngularError(MAXIMUM_ANGULAR_ERROR) //
+				.build();
+
+		for (double time = 0.; time <= 3600.; time += 17.3)
+		{
+			InstrumentPointing pointing = surrogate.provide(INSTRUMENT, time);
+
+			assertEquals(0., VectorIJK.subtract(scPosition(time), pointing.getScPosition()).getLength(), 2. * MAXIMUM_POSITION_ERROR);
+			assertEquals(0., scPosition(time).getSeparation(pointing.getBoresight()), 2. * MAXIMUM_ANGULAR_ERROR);
+		}
+
+		// The queries were answered by the fit, which needed more than the
+		// initial nodes but far fewer samples than queries.
+		assertEquals(0, provider.delegated);
+		assertTrue(surrogate.getScNodeCount() > 7);
+		assertTrue(provider.sampled < 300);
+	}
+
+	@Test
+	void testFailedFitIsRecorded()
+	{
+		// The window extends beyond the coverage of the kernels.
+		TestProvider provider = new TestProvider(1800.);
+		SurrogatePointingProvider surrogate = SurrogatePointingProvider.builder(provider, 0., 3600.).build();
+
+		surrogate.provide(INSTRUMENT, 100.);
+		assertEquals(1, provider.delegated);
+		int sampled = provider.sampled;
+		assertTrue(sampled > 0);
+
+		// Later queries are delegated without fitting again.
+		surrogate.provide(INSTRUMENT, 200.);
+		surrogate.provide(INSTRUMENT, 300.);
+		assertEquals(3, provider.delegated);
+		assertEquals(sampled, provider.sampled);
+		assertEquals(0, surrogate.getScNodeCount());
+	}
+
+	private static UnwritableVectorIJK scPosition(double time)
+	{
+		return new UnwritableVectorIJK(RADIUS * Math.cos(RATE * time), RADIUS * Math.sin(RATE * time), 0.);
+	}
+
+	private static UnwritableVectorIJK scVelocity(double time)
+	{
+		return new UnwritableVectorIJK(-RADIUS * RATE * Math.sin(RATE * time), RADIUS * RATE * Math.cos(RATE * time), 0.);
+	}
+
+	/**
+	 * Provider whose epoch contexts use {@link StubSource}'s functions,
+	 * counting the contexts created for fitting and the queries delegated to
+	 * it.
+	 */
+	private static final class TestProvider extends TestSpicePointingProvider
+	{
+		private int sampled = 0;
+		private int delegated = 0;
+
+		TestProvider(double coveredUntil)
+		{
+			super(PointingCache.DEFAULT_MAXIMUM_SIZE, false, new StubSource(coveredUntil), INSTRUMENT);
+			setAberrationCorrection(AberrationCorrection.LT, true);
+		}
+
+		@Override
+		SpiceEpochContext createEpochContext(double time)
+		{
+			++sampled;
+			return super.createEpochContext(time);
+		}
+
+		@Override
+		public InstrumentPointing provide(String instrumentName, double time)
+		{
+			++delegated;
+			return null;
+		}
+
+		@Override
+		InstrumentFov getInstrumentFov(String instrumentName, FrameID instrumentFrame)
+		{
+			List<UnwritableVectorIJK> frustum = List.of(new UnwritableVectorIJK(1, 0.1, 0.1), new UnwritableVectorIJK(1, -0.1, 0.1), new UnwritableVectorIJK(1, -0.1, -0.1), new UnwritableVectorIJK(1, 0.1, -0.1));
+
+			return new InstrumentFov(0, instrumentFrame, UnwritableVectorIJK.I, UnwritableVectorIJK.K, frustum);
+		}
+	}
+
+	/**
+	 * Source of the functions of the orbit, in which the target frame is
+	 * J2000 and the spacecraft and instrument frames coincide, which fail
+	 * after the end of the coverage.
+	 */
+	private static final class StubSource implements SpiceFunctions.Source
+	{
+		private final double coveredUntil;
+
+		StubSource(double coveredUntil)
+		{
+			this.coveredUntil = coveredUntil;
+		}
+
+		@Override
+		public AberratedStateVectorFunction createStateVectorFunction(EphemerisID targetId, EphemerisID observerId, FrameID frameId, AberrationCorrection correction)
+		{
+			// The spacecraft or the target relative to the barycenter, or the
+			// target relative to the spacecraft.
+			double scale;
+			if (observerId == CelestialBodies.SOLAR_SYSTEM_BARYCENTER)
+			{
+				scale = targetId == SC ? 1. : 0.;
+			}
+			else
+			{
+				assertSame(TARGET, targetId);
+				assertSame(SC, observerId);
+				scale = -1.;
+			}
+
+			return TestSpicePointingProvider.stateFunction(targetId, observerId, frameId, correction, (time, buffer) -> {
+				checkCovered(time);
+				buffer.setPosition(new UnwritableVectorIJK(scale, scPosition(time)));
+				return buffer.setVelocity(new UnwritableVectorIJK(scale, scVelocity(time)));
+			});
+		}
+
+		@Override
+		public FrameTransformFunction createFrameTransformFunction(FrameID fromId, FrameID toId)
+		{
+			return TestSpicePointingProvider.frameFunction(fromId, toId, (time, buffer) -> {
+				checkCovered(time);
+				if (fromId == CelestialFrames.J2000 && toId == TARGET_FRAME)
+				{
+					return buffer.setTo(new RotationMatrixIJK());
+				}
+
+				// Spacecraft (or instrument) to J2000: about k by the orbital
+				// phase; the constructor takes column-major order.
+				double cos = Math.cos(RATE * time);
+				double sin = Math.sin(RATE * time);
+				return buffer.setTo(new RotationMatrixIJK(cos, sin, 0, -sin, cos, 0, 0, 0, 1));
+			});
+		}
+
+		private void checkCovered(double time)
+		{
+			if (time > coveredUntil)
+			{
+				throw new IllegalArgumentException("No data at " + time);
+			}
+		}
+	}
+
+}
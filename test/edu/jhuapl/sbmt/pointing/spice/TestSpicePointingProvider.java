@@ -0,0 +1,252 @@
+package edu.jhuapl.sbmt.pointing.spice;
+
+import java.util.Arrays;
+import java.util.function.BiFunction;
+
+import com.google.common.base.Preconditions;
+
+import picante.math.vectorspace.RotationMatrixIJK;
+import picante.math.vectorspace.VectorIJK;
+import picante.mechanics.Coverage;
+import picante.mechanics.EphemerisID;
+import picante.mechanics.FrameID;
+import picante.mechanics.FrameTransformFunction;
+import picante.mechanics.StateVector;
+import picante.mechanics.providers.aberrated.AberratedEphemerisProvider;
+import picante.mechanics.providers.aberrated.AberratedStateVectorFunction;
+import picante.mechanics.providers.aberrated.AberrationCorrection;
+import picante.spice.kernelpool.UnwritableKernelPool;
+
+/**
+ * Provider for tests, which has no kernels. It provides the pointings of the
+ * instruments passed to the constructor, each of which has a frame named after
+ * the instrument with the suffix "_FRAME", for the fixed target and
+ * spacecraft identifiers below. Its functions, if any, are those of the
+ * {@link SpiceFunctions.Source} passed to the constructor, shared by all
+ * threads. Tests override the methods whose behavior they check.
+ * <p>
+ * The static methods create functions from a function of time, for use in
+ * such sources.
+ */
+public class TestSpicePointingProvider extends SpicePointingProvider
+{
+	public static final EphemerisID TARGET = SpiceIdRegistry.getEphemerisId("TEST_TARGET");
+	public static final EphemerisID SC = SpiceIdRegistry.getEphemerisId("TEST_SC");
+	public static final FrameID TARGET_FRAME = SpiceIdRegistry.getFrameId("TEST_TARGET_FRAME");
+	public static final FrameID SC_FRAME = SpiceIdRegistry.getFrameId("TEST_SC_FRAME");
+
+	private final String[] instrumentNames;
+	private final boolean concurrent;
+	private final SpiceFunctions functions;
+
+	/**
+	 * Create a concurrent provider of the specified instruments, with a
+	 * pointing cache of the default size.
+	 */
+	public TestSpicePointingProvider(String... instrumentNames)
+	{
+		this(PointingCache.DEFAULT_MAXIMUM_SIZE, true, instrumentNames);
+	}
+
+	public TestSpicePointingProvider(int pointingCacheSize, boolean concurrent, String... instrumentNames)
+	{
+		this(pointingCacheSize, concurrent, null, instrumentNames);
+	}
+
+	TestSpicePointingProvider(int pointingCacheSize, boolean concurrent, SpiceFunctions.Source source, String... instrumentNames)
+	{
+		super(pointingCacheSize);
+
+		this.instrumentNames = instrumentNames.clone();
+		this.concurrent = concurrent;
+		this.functions = source != null ? new SpiceFunctions(source) : null;
+	}
+
+	/**
+	 * @return the frame of the specified instrument
+	 */
+	public static FrameID getInstrumentFrame(String instrumentName)
+	{
+		return SpiceIdRegistry.getFrameId(instrumentName + "_FRAME");
+	}
+
+	@Override
+	SpiceFunctions getFunctions()
+	{
+		Preconditions.checkState(functions != null, "Test provider has no functions");
+		return functions;
+	}
+
+	@Override
+	public boolean isConcurrent()
+	{
+		return concurrent;
+	}
+
+	@Override
+	public AberratedEphemerisProvider getEphemerisProvider()
+	{
+		return null;
+	}
+
+	@Override
+	public UnwritableKernelPool getKernelPool()
+	{
+		return null;
+	}
+
+	@Override
+	public EphemerisID getTargetId()
+	{
+		return TARGET;
+	}
+
+	@Override
+	public FrameID getTargetFrame()
+	{
+		return TARGET_FRAME;
+	}
+
+	@Override
+	public EphemerisID getScId()
+	{
+		return SC;
+	}
+
+	@Override
+	public FrameID getScFrameId()
+	{
+		return SC_FRAME;
+	}
+
+	@Override
+	public String[] getInstrumentNames()
+	{
+		return instrumentNames.clone();
+	}
+
+	@Override
+	protected int getInstrumentIdForInstrument(String instrumentName)
+	{
+		return Arrays.asList(instrumentNames).indexOf(instrumentName);
+	}
+
+	@Override
+	protected FrameID getFrameIdForInstrument(String instrumentName)
+	{
+		return getInstrumentIdForInstrument(instrumentName) >= 0 ? getInstrumentFrame(instrumentName) : null;
+	}
+
+	/**
+	 * Create a frame transform function, valid for all time, that fills the
+	 * buffer passed to the specified function with the transform at the
+	 * time passed to it.
+	 */
+	static FrameTransformFunction frameFunction(FrameID fromId, FrameID toId, BiFunction<Double, RotationMatrixIJK, RotationMatrixIJK> transform)
+	{
+		return new FrameTransformFunction() {
+
+			@Override
+			public FrameID getFromID()
+			{
+				return fromId;
+			}
+
+			@Override
+			public FrameID getToID()
+			{
+				return toId;
+			}
+
+			@Override
+			public Coverage getCoverage()
+			{
+				return Coverage.ALL_TIME;
+			}
+
+			@Override
+			public RotationMatrixIJK getTransform(double time)
+			{
+				return getTransform(time, new RotationMatrixIJK());
+			}
+
+			@Override
+			public RotationMatrixIJK getTransform(double time, RotationMatrixIJK buffer)
+			{
+				return transform.apply(time, buffer);
+			}
+		};
+	}
+
+	/**
+	 * Create a state vector function, valid for all time, that fills the
+	 * buffer passed to the specified function with the state at the time
+	 * passed to it. The light time is the distance over the speed of light.
+	 */
+	static AberratedStateVectorFunction stateFunction(EphemerisID targetId, EphemerisID observerId, FrameID frameId, AberrationCorrection correction, BiFunction<Double, StateVector, StateVector> state)
+	{
+		return new AberratedStateVectorFunction() {
+
+			@Override
+			public EphemerisID getObserverID()
+			{
+				return observerId;
+			}
+
+			@Override
+			public EphemerisID getTargetID()
+			{
+				return targetId;
+			}
+
+			@Override
+			public FrameID getFrameID()
+			{
+				return frameId;
+			}
+
+			@Override
+			public Coverage getCoverage()
+			{
+				return Coverage.ALL_TIME;
+			}
+
+			@Override
+			public VectorIJK getPosition(double time)
+			{
+				return getPosition(time, new VectorIJK());
+			}
+
+			@Override
+			public VectorIJK getPosition(double time, VectorIJK buffer)
+			{
+				return buffer.setTo(getState(time).getPosition());
+			}
+
+			@Override
+			public StateVector getState(double time)
+			{
+				return getState(time, new StateVector());
+			}
+
+			@Override
+			public StateVector getState(double time, StateVector buffer)
+			{
+				return state.apply(time, buffer);
+			}
+
+			@Override
+			public double getLightTime(double time)
+			{
+				return getPosition(time).getLength() / LightTimeSolver.SPEED_OF_LIGHT;
+			}
+
+			@Override
+			public AberrationCorrection getCorrection()
+			{
+				return correction;
+			}
+		};
+	}
+
+}
@@ -0,0 +1,76 @@
+package edu.jhuapl.sbmt.pointing.spice;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import picante.spice.kernelpool.BasicKernelPool;
+
+class TextKernelPoolReaderTest
+{
+	@TempDir
+	static Path tempDir;
+
+	@BeforeAll
+	static void setUpBeforeClass() throws Exception
+	{
+	}
+
+	@AfterAll
+	static void tearDownAfterClass() throws Exception
+	{
+	}
+
+	@Test
+	void testIsTextKernel() throws IOException
+	{
+		assertTrue(TextKernelPoolReader.isTextKernel(write("inst.ti", "KPL/IK\n")));
+		assertTrue(TextKernelPoolReader.isTextKernel(write("frames.bin", "KPL/FK\n")));
+		assertFalse(TextKernelPoolReader.isTextKernel(write("orbit.bsp", "DAF/SPK \n")));
+		assertFalse(TextKernelPoolReader.isTextKernel(write("shape.bds", "DAS/DSK \n")));
+		assertFalse(TextKernelPoolReader.isTextKernel(write("old.bc", "NAIF/DAF\n")));
+
+		// Without a tag, fall back on the NAIF naming convention.
+		assertTrue(TextKernelPoolReader.isTextKernel(write("old.tpc", "\\begindata\n")));
+		assertFalse(TextKernelPoolReader.isTextKernel(write("old.bpc", "\\begindata\n")));
+		assertFalse(TextKernelPoolReader.isTextKernel(write("short", "")));
+	}
+
+	@Test
+	void testReadMergesKernels() throws Exception
+	{
+		// The first kernel ends in data mode, so the comments at the start of
+		// the next kernel must not be read as data.
+		File first = write("first.ti", "KPL/IK\n\\begindata\nBODY10_GM = 1.0\nINS-1_FOV_SHAPE = 'CIRCLE'\nNAIF_BODY_NAME = ( 'FIRST' )\n");
+		File binary = write("orbit.bsp", "DAF/SPK \n\\begindata\nBODY10_GM = 3.0\n");
+		File second = write("second.tpc", "KPL/PCK\nBODY10_GM = 4.0 in the comments.\n\\begindata\nBODY10_GM = 2.0\nNAIF_BODY_NAME += ( 'SECOND' )\n\\begintext\n");
+
+		BasicKernelPool pool = TextKernelPoolReader.read(List.of(first, binary, second));
+
+		// A later assignment replaces an earlier one, += appends to it, and
+		// the binary kernel is skipped.
+		assertEquals(List.of(2.0), pool.getDoubles("BODY10_GM"));
+		assertEquals(List.of("FIRST", "SECOND"), pool.getStrings("NAIF_BODY_NAME"));
+		assertEquals(List.of("CIRCLE"), pool.getStrings("INS-1_FOV_SHAPE"));
+
+		// Reading in the other order reverses the override.
+		pool = TextKernelPoolReader.read(List.of(second, first));
+		assertEquals(List.of(1.0), pool.getDoubles("BODY10_GM"));
+	}
+
+	private static File write(String name, String contents) throws IOException
+	{
+		return Files.write(tempDir.resolve(name), contents.getBytes(StandardCharsets.US_ASCII)).toFile();
+	}
+
+}